@@ -34,9 +34,10 @@ import CommandPalette from './components/Common/CommandPalette';
 import Dashboard from './components/Dashboard/Dashboard';
 import TerminalManager from './components/Terminal/TerminalManager';
 import { ResizableSider, StatusBar, TopBar } from './components/Layout';
-import { configAPI, sessionAPI, tokenAPI, authAPI } from './services/api';
+import { configAPI, sessionAPI, tokenAPI } from './services/api';
 import { ConfigImportRequest, StartSessionRequest } from './types';
 import { authStorage } from './utils/authStorage';
+import { refreshAccessToken } from './services/httpClient';
 import { writeMcpConfig } from './utils/mcpConfigHelper';
 import './i18n'; // 引入 i18n 配置
 import './styles/global.css'; // 引入全局样式
@@ -93,18 +94,12 @@ const AppContent: React.FC = () => {
 
       // ✅ 检查Token是否即将过期，主动刷新
       if (authStorage.isTokenExpiringSoon()) {
-        const refreshToken = authStorage.getRefreshToken();
-        if (refreshToken) {
+        if (authStorage.getRefreshToken()) {
           try {
             console.log('[App启动] Token即将过期，尝试刷新');
-            const response = await authAPI.refreshToken({ refreshToken });
-            if (response.data && response.data.code === 200 && response.data.data) {
-              authStorage.updateAccessToken(
-                response.data.data.accessToken,
-                response.data.data.expiresIn
-              );
-              console.log('[App启动] Token刷新成功');
-            }
+            // 与401自动刷新共用同一次请求，避免同一个Refresh Token被使用两次
+            await refreshAccessToken();
+            console.log('[App启动] Token刷新成功');
           } catch (error) {
             console.error('[App启动] Token刷新失败:', error);
             // 刷新失败不影响应用启动，后续请求会触发自动刷新
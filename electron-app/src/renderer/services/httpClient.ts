@@ -87,23 +87,39 @@ apiClient.interceptors.request.use(
   }
 );
 
-// 标志位：防止多个请求同时触发刷新
-let isRefreshing = false;
-let refreshSubscribers: ((token: string) => void)[] = [];
+// 进行中的刷新请求：同一时间只发起一次刷新，其余调用方共享结果
+// （Refresh Token 只能使用一次，并发刷新会被服务端视为重放）
+let refreshPromise: Promise<string> | null = null;
 
 /**
- * 将等待中的请求添加到队列
+ * 使用Refresh Token换取新的Access Token（单飞）
+ * 启动时的主动刷新和401自动刷新都必须通过此函数
+ *
+ * @returns 新的Access Token
  */
-function subscribeTokenRefresh(callback: (token: string) => void) {
-  refreshSubscribers.push(callback);
-}
-
-/**
- * 刷新成功后，通知所有等待的请求使用新Token重试
- */
-function onTokenRefreshed(newToken: string) {
-  refreshSubscribers.forEach(callback => callback(newToken));
-  refreshSubscribers = [];
+export function refreshAccessToken(): Promise<string> {
+  if (refreshPromise) {
+    return refreshPromise;
+  }
+  const refreshToken = authStorage.getRefreshToken();
+  if (!refreshToken) {
+    return Promise.reject(new Error('没有Refresh Token'));
+  }
+  refreshPromise = axios
+    .post(`${apiClient.defaults.baseURL}/auth/refresh`, { refreshToken })
+    .then((response) => {
+      if (response.data && response.data.code === 200 && response.data.data) {
+        const { accessToken, refreshToken: newRefreshToken, expiresIn } = response.data.data;
+        // 保存轮换后的Refresh Token，旧值已失效
+        authStorage.updateTokens(accessToken, newRefreshToken, expiresIn);
+        return accessToken as string;
+      }
+      throw new Error('刷新Token失败');
+    })
+    .finally(() => {
+      refreshPromise = null;
+    });
+  return refreshPromise;
 }
 
 // 响应拦截器 - 处理业务错误和401认证失败
@@ -154,8 +170,6 @@ apiClient.interceptors.response.use(
             console.log('[Token刷新失败] Refresh Token已失效，跳转登录页');
             errorMessage = '登录已过期，请重新登录';
             authStorage.clearAuth();
-            isRefreshing = false;
-            refreshSubscribers = [];
             if (!window.location.pathname.includes('/login')) {
               window.location.href = '/#/login';
             }
@@ -163,54 +177,19 @@ apiClient.interceptors.response.use(
             // Access Token过期，尝试使用Refresh Token刷新
             console.log('[Token过期] 尝试自动刷新Token');
 
-            // 如果正在刷新中，将请求加入队列
-            if (isRefreshing) {
-              console.log('[Token刷新中] 将请求加入等待队列');
-              return new Promise((resolve) => {
-                subscribeTokenRefresh((newToken: string) => {
-                  if (originalRequest && originalRequest.headers) {
-                    originalRequest.headers.Authorization = `Bearer ${newToken}`;
-                  }
-                  resolve(apiClient.request(originalRequest!));
-                });
-              });
-            }
-
-            // 开始刷新Token
-            isRefreshing = true;
-            const refreshToken = authStorage.getRefreshToken();
-
-            if (refreshToken) {
+            if (authStorage.getRefreshToken()) {
               try {
-                console.log('[Token刷新] 调用刷新接口');
-                const response = await axios.post(`${apiClient.defaults.baseURL}/auth/refresh`, {
-                  refreshToken: refreshToken
-                });
-
-                if (response.data && response.data.code === 200) {
-                  const { accessToken, expiresIn } = response.data.data;
-                  console.log('[Token刷新成功] 更新本地Token');
-
-                  // 更新本地存储
-                  authStorage.updateAccessToken(accessToken, expiresIn);
-
-                  // 通知所有等待的请求使用新Token重试
-                  onTokenRefreshed(accessToken);
-                  isRefreshing = false;
+                // 并发的401请求共享同一次刷新
+                const accessToken = await refreshAccessToken();
+                console.log('[Token刷新成功] 使用新Token重试请求');
 
-                  // 重试当前请求
-                  if (originalRequest && originalRequest.headers) {
-                    originalRequest.headers.Authorization = `Bearer ${accessToken}`;
-                  }
-                  return apiClient.request(originalRequest!);
-                } else {
-                  throw new Error('刷新Token失败');
+                if (originalRequest && originalRequest.headers) {
+                  originalRequest.headers.Authorization = `Bearer ${accessToken}`;
                 }
+                return apiClient.request(originalRequest!);
               } catch (refreshError) {
                 console.error('[Token刷新失败]', refreshError);
                 authStorage.clearAuth();
-                isRefreshing = false;
-                refreshSubscribers = [];
                 errorMessage = '登录已过期，请重新登录';
                 if (!window.location.pathname.includes('/login')) {
                   window.location.href = '/#/login';
@@ -221,7 +200,6 @@ apiClient.interceptors.response.use(
               console.log('[无Refresh Token] 跳转登录页');
               errorMessage = '登录已过期，请重新登录';
               authStorage.clearAuth();
-              isRefreshing = false;
               if (!window.location.pathname.includes('/login')) {
                 window.location.href = '/#/login';
               }
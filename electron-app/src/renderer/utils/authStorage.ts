@@ -156,15 +156,19 @@ export class AuthStorage {
     }
 
     /**
-     * 更新Access Token（刷新后）
+     * 更新Token（刷新后）
+     * Refresh Token 每次刷新都会轮换且只能使用一次，必须保存服务端返回的新值
      */
-    updateAccessToken(accessToken: string, expiresIn: number): void {
+    updateTokens(accessToken: string, refreshToken: string | undefined, expiresIn: number): void {
         try {
             const expiresAt = Date.now() + expiresIn * 1000;
             localStorage.setItem('accessToken', accessToken);
+            if (refreshToken) {
+                localStorage.setItem('refreshToken', refreshToken);
+            }
             localStorage.setItem('expiresAt', String(expiresAt));
 
-            console.log('[AuthStorage] Access Token已更新');
+            console.log('[AuthStorage] Token已更新');
         } catch (error) {
             console.error('[AuthStorage] 更新 Access Token 失败:', error);
         }
@@ -176,6 +176,8 @@ public class GlobalExceptionHandler {
                 return HttpStatus.NOT_FOUND;
             case 409:
                 return HttpStatus.CONFLICT;
+            case 429:
+                return HttpStatus.TOO_MANY_REQUESTS;
             case 500:
                 return HttpStatus.INTERNAL_SERVER_ERROR;
             default:
@@ -0,0 +1,32 @@
+package com.llmctl.config;
+
+import com.llmctl.utils.IdGenerator;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * ID生成器配置类
+ *
+ * 将 id.node-id 写入 {@link IdGenerator}；未配置（-1）时沿用按主机名和进程号派生的节点ID
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+@Slf4j
+@Configuration
+public class IdGeneratorConfig {
+
+    @Value("${id.node-id:-1}")
+    private int nodeId;
+
+    @PostConstruct
+    public void init() {
+        if (nodeId >= 0) {
+            IdGenerator.setNodeId(nodeId);
+        }
+        log.info("🆔 [ID生成器] 节点ID: {}", IdGenerator.getNodeId());
+    }
+}
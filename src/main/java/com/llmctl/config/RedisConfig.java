@@ -15,6 +15,7 @@ import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
@@ -106,6 +107,20 @@ public class RedisConfig {
         return template;
     }
 
+    /**
+     * 配置 Redis 发布/订阅监听容器
+     * 用于多实例间同步本地内存状态（如 Token 吊销列表）
+     *
+     * @param connectionFactory Redis连接工厂
+     * @return RedisMessageListenerContainer
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
     /**
      * 配置 RedisCacheManager（企业级缓存管理器）
      * 为不同的缓存空间设置不同的 TTL 策略
@@ -169,6 +184,11 @@ public class RedisConfig {
             defaultConfig.entryTtl(Duration.ofMinutes(15))
         );
 
+        // 6. 用户活跃 Provider 缓存：240分钟 TTL（配置导出、活跃配置查询时调用，切换时主动清除）
+        cacheConfigurations.put("user:active-provider",
+            defaultConfig.entryTtl(Duration.ofMinutes(240))
+        );
+
         // 构建 RedisCacheManager
         return RedisCacheManager.builder(connectionFactory)
             .cacheDefaults(defaultConfig)  // 默认配置
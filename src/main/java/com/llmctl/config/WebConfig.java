@@ -4,12 +4,14 @@ import com.llmctl.interceptor.JwtAuthInterceptor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.io.File;
+import java.time.Duration;
 
 /**
  * Web MVC配置类
@@ -82,8 +84,9 @@ public class WebConfig implements WebMvcConfigurer {
 
         String uploadDirPath = "file:" + uploadDirFile.getAbsolutePath() + File.separator;
 
+        // 头像文件名由内容哈希（旧文件为时间戳）决定，同名文件内容永不改变，可按不可变资源长期缓存
         registry.addResourceHandler("/uploads/**")
                 .addResourceLocations(uploadDirPath)
-                .setCachePeriod(3600);  // 缓存1小时
+                .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable());
     }
 }
\ No newline at end of file
@@ -2,16 +2,21 @@ package com.llmctl.controller;
 
 import com.llmctl.dto.*;
 import com.llmctl.service.IAuthService;
+import com.llmctl.service.ILoginThrottleService;
 import com.llmctl.service.IVerificationCodeService;
 import com.llmctl.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * 认证控制器
  *
@@ -28,8 +33,15 @@ public class AuthController {
 
     private final IAuthService authService;
     private final IVerificationCodeService verificationCodeService;
+    private final ILoginThrottleService loginThrottleService;
     private final JwtUtil jwtUtil;
 
+    /**
+     * 受信任的反向代理地址，只有来自这些地址的请求才读取 X-Forwarded-For
+     */
+    @Value("${auth.trusted-proxies:127.0.0.1,0:0:0:0:0:0:0:1}")
+    private List<String> trustedProxies;
+
     /**
      * 用户登录
      *
@@ -52,6 +64,9 @@ public class AuthController {
         String userAgent = httpRequest.getHeader("User-Agent");
         request.setUserAgent(userAgent);
 
+        // 登录限流在事务之外检查，已锁定的请求不占用数据库连接
+        loginThrottleService.checkAllowed(request.getUsername(), ipAddress);
+
         LoginResponse response = authService.login(request);
 
         return ResponseEntity.ok(ApiResponse.success(response, "登录成功"));
@@ -106,13 +121,13 @@ public class AuthController {
         log.info("用户登出请求");
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            // 从Token中提取用户ID
+            // 从Token中提取用户ID和登录会话ID
             String token = authHeader.substring(7); // 去掉"Bearer "
-            Long userId = jwtUtil.getUserIdFromToken(token);
-            authService.logout(userId);
+            Claims claims = jwtUtil.parseToken(token);
+            authService.logout(claims.get("userId", Long.class), claims.get("sid", String.class));
         } else {
             // 如果没有token，执行清理操作（比如清理所有会话）
-            authService.logout(null);
+            authService.logout(null, null);
         }
 
         return ResponseEntity.ok(ApiResponse.success(null, "登出成功"));
@@ -253,18 +268,25 @@ public class AuthController {
 
     /**
      * 获取客户端IP地址
+     * 登录限流按该地址计数，因此只有直连地址是受信任代理时才读取 X-Forwarded-For，
+     * 并从右向左取第一个非代理地址，客户端自行伪造的左侧条目不会被采用
      */
     private String getClientIP(HttpServletRequest request) {
-        String ip = request.getHeader("X-Forwarded-For");
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("Proxy-Client-IP");
+        String remoteAddr = request.getRemoteAddr();
+        if (!trustedProxies.contains(remoteAddr)) {
+            return remoteAddr;
         }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("WL-Proxy-Client-IP");
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (forwardedFor == null || forwardedFor.isBlank()) {
+            return remoteAddr;
         }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getRemoteAddr();
+        String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (!hop.isEmpty() && !"unknown".equalsIgnoreCase(hop) && !trustedProxies.contains(hop)) {
+                return hop;
+            }
         }
-        return ip;
+        return remoteAddr;
     }
 }
@@ -1,13 +1,21 @@
 package com.llmctl.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.llmctl.entity.McpServer;
+import com.llmctl.service.IMcpTemplateCatalog;
 import com.llmctl.service.McpServerService;
 import com.llmctl.context.UserContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,7 +33,14 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class McpServerController {
 
+    /**
+     * 模板目录的客户端缓存时长，与服务端模板指纹检查间隔同一量级
+     */
+    private static final Duration TEMPLATE_MAX_AGE = Duration.ofMinutes(5);
+
     private final McpServerService mcpServerService;
+    private final IMcpTemplateCatalog templateCatalog;
+    private final ObjectMapper objectMapper;
 
     /**
      * 获取当前用户的 MCP 服务器列表
@@ -47,33 +62,35 @@ public class McpServerController {
     /**
      * 获取所有模板
      *
+     * 模板目录常驻内存，响应体预先序列化，携带内容哈希 ETag
+     *
+     * @param webRequest 当前请求（用于 If-None-Match 校验）
      * @return 响应对象，包含模板列表
      */
     @GetMapping("/templates")
-    public ResponseEntity<Map<String, Object>> getAllTemplates() {
+    public ResponseEntity<byte[]> getAllTemplates(WebRequest webRequest) {
         try {
-            List<McpServer> templates = mcpServerService.getAllTemplates();
-            return ResponseEntity.ok(buildSuccessResponse("查询成功", templates));
+            return templateResponse(templateCatalog.getAllTemplatesResponse(), webRequest);
         } catch (Exception e) {
             log.error("查询 MCP 模板失败", e);
-            return ResponseEntity.ok(buildErrorResponse("查询失败: " + e.getMessage()));
+            return jsonResponse(buildErrorResponse("查询失败: " + e.getMessage()));
         }
     }
 
     /**
      * 根据分类获取模板
      *
-     * @param category 模板分类
+     * @param category   模板分类
+     * @param webRequest 当前请求（用于 If-None-Match 校验）
      * @return 响应对象，包含模板列表
      */
     @GetMapping("/templates/category/{category}")
-    public ResponseEntity<Map<String, Object>> getTemplatesByCategory(@PathVariable String category) {
+    public ResponseEntity<byte[]> getTemplatesByCategory(@PathVariable String category, WebRequest webRequest) {
         try {
-            List<McpServer> templates = mcpServerService.getTemplatesByCategory(category);
-            return ResponseEntity.ok(buildSuccessResponse("查询成功", templates));
+            return templateResponse(templateCatalog.getTemplatesByCategoryResponse(category), webRequest);
         } catch (Exception e) {
             log.error("查询 MCP 模板失败，分类: {}", category, e);
-            return ResponseEntity.ok(buildErrorResponse("查询失败: " + e.getMessage()));
+            return jsonResponse(buildErrorResponse("查询失败: " + e.getMessage()));
         }
     }
 
@@ -246,8 +263,8 @@ public class McpServerController {
                     .map(Number::longValue)
                     .toList();
 
-            mcpServerService.batchToggleEnabled(ids, enabled);
-            return ResponseEntity.ok(buildSuccessResponse("批量操作完成", null));
+            Map<Long, McpServerService.BatchOutcome> outcomes = mcpServerService.batchToggleEnabled(ids, enabled);
+            return ResponseEntity.ok(buildSuccessResponse(buildBatchMessage("批量操作完成", outcomes), outcomes));
         } catch (Exception e) {
             log.error("批量切换 MCP 服务器状态失败", e);
             return ResponseEntity.ok(buildErrorResponse("批量操作失败: " + e.getMessage()));
@@ -275,8 +292,8 @@ public class McpServerController {
                     .map(Number::longValue)
                     .toList();
 
-            mcpServerService.batchDeleteServers(ids);
-            return ResponseEntity.ok(buildSuccessResponse("批量删除完成", null));
+            Map<Long, McpServerService.BatchOutcome> outcomes = mcpServerService.batchDeleteServers(ids);
+            return ResponseEntity.ok(buildSuccessResponse(buildBatchMessage("批量删除完成", outcomes), outcomes));
         } catch (IllegalArgumentException e) {
             log.warn("批量删除 MCP 服务器失败: {}", e.getMessage());
             return ResponseEntity.ok(buildErrorResponse(e.getMessage()));
@@ -308,6 +325,62 @@ public class McpServerController {
         }
     }
 
+    /**
+     * 构建批量操作结果消息
+     *
+     * @param prefix   消息前缀
+     * @param outcomes 每个 ID 的处理结果
+     * @return 消息
+     */
+    private String buildBatchMessage(String prefix, Map<Long, McpServerService.BatchOutcome> outcomes) {
+        long succeeded = outcomes.values().stream()
+                .filter(outcome -> outcome == McpServerService.BatchOutcome.SUCCESS)
+                .count();
+        return prefix + "：成功 " + succeeded + " 个，跳过 " + (outcomes.size() - succeeded) + " 个";
+    }
+
+    /**
+     * 输出模板目录的预序列化响应；If-None-Match 命中时返回 304
+     *
+     * ETag 是内容哈希，客户端在 max-age 内直接使用本地副本，过期后必须携带 ETag 重新验证
+     *
+     * @param response   预序列化响应
+     * @param webRequest 当前请求
+     * @return 响应对象
+     */
+    private ResponseEntity<byte[]> templateResponse(IMcpTemplateCatalog.SerializedResponse response,
+                                                    WebRequest webRequest) {
+        CacheControl cacheControl = CacheControl.maxAge(TEMPLATE_MAX_AGE).mustRevalidate();
+        if (webRequest.checkNotModified(response.etag())) {
+            // 304 同样携带缓存头，刷新客户端副本的有效期
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(cacheControl)
+                    .eTag(response.etag())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(cacheControl)
+                .eTag(response.etag())
+                .body(response.body());
+    }
+
+    /**
+     * 将 Map 响应序列化为 JSON 字节（用于返回类型为 byte[] 的接口）
+     *
+     * @param body 响应 Map
+     * @return 响应对象
+     */
+    private ResponseEntity<byte[]> jsonResponse(Map<String, Object> body) {
+        try {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(objectMapper.writeValueAsBytes(body));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * 构建成功响应
      *
@@ -1,6 +1,8 @@
 package com.llmctl.controller;
 
 import com.llmctl.dto.*;
+import com.llmctl.context.UserContext;
+import com.llmctl.service.IConfigVersionService;
 import com.llmctl.service.ProviderService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
@@ -9,6 +11,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 
 import java.util.List;
@@ -28,20 +31,28 @@ import java.util.List;
 public class ProviderController {
 
     private final ProviderService providerService;
+    private final IConfigVersionService configVersionService;
 
     /**
      * 获取所有Provider列表
+     * 响应携带用户配置版本ETag，If-None-Match 命中时直接返回 304，不查询缓存也不序列化列表
      *
+     * @param webRequest 当前请求（用于 If-None-Match 校验）
      * @return Provider列表
      */
     @GetMapping
-    public ResponseEntity<ApiResponse<List<ProviderDTO>>> getAllProviders() {
+    public ResponseEntity<ApiResponse<List<ProviderDTO>>> getAllProviders(WebRequest webRequest) {
+        String etag = configVersionService.currentETag(UserContext.getUserId());
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            log.debug("Provider列表未变化，返回304: {}", etag);
+            return null;
+        }
         log.info("获取所有Provider列表");
 
         List<ProviderDTO> providers = providerService.getAllProviders();
         ApiResponse<List<ProviderDTO>> response = ApiResponse.success(providers);
 
-        return ResponseEntity.ok(response);
+        return etag != null ? ResponseEntity.ok().eTag(etag).body(response) : ResponseEntity.ok(response);
     }
 
     /**
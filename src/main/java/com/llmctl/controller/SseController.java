@@ -4,8 +4,10 @@ import com.llmctl.dto.NotificationRequest;
 import com.llmctl.dto.NotificationResponse;
 import com.llmctl.entity.Notification;
 import com.llmctl.service.NotificationService;
+import com.llmctl.service.ITokenRevocationService;
 import com.llmctl.service.SseConnectionManager;
 import com.llmctl.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -30,6 +32,7 @@ public class SseController {
     private final SseConnectionManager sseConnectionManager;
     private final JwtUtil jwtUtil;
     private final NotificationService notificationService;
+    private final ITokenRevocationService tokenRevocationService;
     private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor();
 
     /**
@@ -44,12 +47,12 @@ public class SseController {
         log.info("用户 {} 请求订阅通知推送", userId);
 
         try {
-            // 验证token
-            String username = jwtUtil.getUsernameFromToken(token);
-            Long tokenUserId = jwtUtil.getUserIdFromToken(token);
+            // 验证token（解析时已校验签名和过期时间）
+            Claims claims = jwtUtil.parseToken(token);
+            Long tokenUserId = claims.get("userId", Long.class);
 
-            // 验证token有效性和用户ID匹配
-            if (!jwtUtil.validateToken(token, username)) {
+            // 验证token类型、吊销状态和用户ID匹配
+            if (!"access".equals(claims.get("type", String.class)) || tokenRevocationService.isRevoked(claims)) {
                 log.warn("无效的Token: userId={}", userId);
                 throw new RuntimeException("无效的Token");
             }
@@ -1,6 +1,11 @@
 package com.llmctl.controller;
 
 import com.llmctl.dto.*;
+import com.llmctl.context.UserContext;
+import com.llmctl.service.IConfigVersionService;
+import com.llmctl.service.ITokenCircuitBreaker;
+import com.llmctl.service.ITokenLoadTracker;
+import com.llmctl.service.ITokenUsageMeter;
 import com.llmctl.service.TokenService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
@@ -10,6 +15,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -28,22 +34,35 @@ import java.util.List;
 public class TokenController {
 
     private final TokenService tokenService;
+    private final IConfigVersionService configVersionService;
+    private final ITokenUsageMeter tokenUsageMeter;
+    private final ITokenCircuitBreaker tokenCircuitBreaker;
+    private final ITokenLoadTracker tokenLoadTracker;
 
     /**
      * 获取指定Provider的所有Token列表
+     * 响应携带用户配置版本ETag（区分Provider），校验Provider归属后 If-None-Match 命中时直接返回 304
      *
      * @param providerId Provider ID
+     * @param webRequest 当前请求（用于 If-None-Match 校验）
      * @return Token列表
      */
     @GetMapping
     public ResponseEntity<ApiResponse<List<TokenDTO>>> getTokensByProviderId(
-            @PathVariable @NotBlank(message = "Provider ID不能为空") String providerId) {
+            @PathVariable @NotBlank(message = "Provider ID不能为空") String providerId,
+            WebRequest webRequest) {
+        tokenService.checkProviderAccess(providerId);
+        String etag = configVersionService.currentETag(UserContext.getUserId(), providerId);
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            log.debug("Provider的Token列表未变化，返回304: {} ({})", providerId, etag);
+            return null;
+        }
         log.info("获取Provider的Token列表: {}", providerId);
 
         List<TokenDTO> tokens = tokenService.getTokensByProviderId(providerId);
         ApiResponse<List<TokenDTO>> response = ApiResponse.success(tokens);
 
-        return ResponseEntity.ok(response);
+        return etag != null ? ResponseEntity.ok().eTag(etag).body(response) : ResponseEntity.ok(response);
     }
 
     /**
@@ -175,6 +194,39 @@ public class TokenController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * 上报Token用量
+     * 计数先在内存中聚合，由后台定时批量写入使用统计表；成功/失败次数与延迟同时驱动Token熔断器和负载感知选择
+     *
+     * @param providerId Provider ID
+     * @param tokenId Token ID
+     * @param request 用量上报请求
+     * @return 上报结果
+     */
+    @PostMapping("/{tokenId}/usage")
+    public ResponseEntity<ApiResponse<Object>> reportTokenUsage(
+            @PathVariable @NotBlank(message = "Provider ID不能为空") String providerId,
+            @PathVariable @NotBlank(message = "Token ID不能为空") String tokenId,
+            @Valid @RequestBody TokenUsageReportRequest request) {
+        log.debug("上报Token用量: {} (Provider: {})", tokenId, providerId);
+
+        // 走带缓存的Token列表校验归属，避免每次上报都查库
+        boolean owned = tokenService.getTokensByProviderId(providerId).stream()
+                .anyMatch(token -> tokenId.equals(token.getId()));
+        if (!owned) {
+            throw new IllegalArgumentException("Token不存在或不属于该Provider: " + tokenId);
+        }
+
+        tokenUsageMeter.record(providerId, tokenId,
+                request.getRequests(), request.getErrors(), request.getTokens());
+        long successes = request.getRequests() - request.getErrors();
+        tokenCircuitBreaker.recordOutcome(providerId, tokenId, successes, request.getErrors());
+        tokenLoadTracker.recordOutcome(tokenId, successes, request.getErrors(), request.getLatencyMs());
+        ApiResponse<Object> response = ApiResponse.success("Token用量上报成功");
+
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * 批量恢复指定Provider下所有不健康Token的健康状态
      *
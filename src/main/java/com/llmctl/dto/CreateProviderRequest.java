@@ -72,8 +72,8 @@ public class CreateProviderRequest {
     /**
      * Token轮询策略类型
      */
-    @Pattern(regexp = "^(round-robin|weighted|random|least-used)$",
-             message = "Token策略必须是：round-robin, weighted, random, least-used 之一")
+    @Pattern(regexp = "^(round-robin|weighted|random|least-used|adaptive)$",
+             message = "Token策略必须是：round-robin, weighted, random, least-used, adaptive 之一")
     private String tokenStrategyType;
 
     /**
@@ -81,6 +81,11 @@ public class CreateProviderRequest {
      */
     private Boolean tokenFallbackOnError;
 
+    /**
+     * 是否按工作目录粘滞Token
+     */
+    private Boolean tokenAffinityEnabled;
+
     // ========== Token 字段 ==========
 
     /**
@@ -0,0 +1,44 @@
+package com.llmctl.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 用户 MCP 配置快照
+ * 同时保存 Windows（npx/npm 等命令包装为 cmd /c）和 POSIX 两种变体的 mcpServers JSON，
+ * 以用户为粒度缓存，MCP 服务器变更时整体重建
+ *
+ * @author LLMctl Team
+ * @since v2.3.2
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class McpConfigSnapshot {
+
+    /**
+     * Windows 变体的 mcpServers JSON
+     */
+    private String windowsJson;
+
+    /**
+     * POSIX（macOS / Linux）变体的 mcpServers JSON
+     */
+    private String posixJson;
+
+    /**
+     * 启用的服务器数量
+     */
+    private int serverCount;
+
+    /**
+     * 按客户端系统选取对应变体
+     *
+     * @param windows 是否为 Windows 客户端
+     * @return mcpServers JSON
+     */
+    public String variant(boolean windows) {
+        return windows ? windowsJson : posixJson;
+    }
+}
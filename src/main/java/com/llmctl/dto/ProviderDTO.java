@@ -117,5 +117,10 @@ public class ProviderDTO {
          * 错误时是否故障切换
          */
         private Boolean fallbackOnError;
+
+        /**
+         * 是否按工作目录粘滞Token
+         */
+        private Boolean affinityEnabled;
     }
 }
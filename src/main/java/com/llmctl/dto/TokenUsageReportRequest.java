@@ -0,0 +1,54 @@
+package com.llmctl.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+/**
+ * Token用量上报请求DTO
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+@Data
+public class TokenUsageReportRequest {
+
+    /**
+     * 请求次数 (默认1)
+     */
+    @Min(value = 0, message = "请求次数不能为负数")
+    @Max(value = 100000, message = "单次上报的请求次数不能超过100000")
+    private Long requests = 1L;
+
+    /**
+     * 其中失败的次数 (默认0)
+     */
+    @Min(value = 0, message = "失败次数不能为负数")
+    @Max(value = 100000, message = "单次上报的失败次数不能超过100000")
+    private Long errors = 0L;
+
+    /**
+     * 消耗的Token总量 (默认0)
+     */
+    @Min(value = 0, message = "Token用量不能为负数")
+    @Max(value = 100000000, message = "单次上报的Token用量不能超过100000000")
+    private Long tokens = 0L;
+
+    /**
+     * 平均响应延迟，单位毫秒 (可选)
+     */
+    @Min(value = 0, message = "响应延迟不能为负数")
+    private Long latencyMs;
+
+    /**
+     * 失败次数不能超过请求次数
+     */
+    @JsonIgnore
+    @AssertTrue(message = "失败次数不能超过请求次数")
+    public boolean isErrorsWithinRequests() {
+        return requests == null || errors == null || errors <= requests;
+    }
+}
@@ -70,8 +70,8 @@ public class UpdateProviderRequest {
     /**
      * Token轮询策略类型
      */
-    @Pattern(regexp = "^(round-robin|weighted|random|least-used)$",
-             message = "Token策略必须是：round-robin, weighted, random, least-used 之一")
+    @Pattern(regexp = "^(round-robin|weighted|random|least-used|adaptive)$",
+             message = "Token策略必须是：round-robin, weighted, random, least-used, adaptive 之一")
     private String tokenStrategyType;
 
     /**
@@ -79,6 +79,11 @@ public class UpdateProviderRequest {
      */
     private Boolean tokenFallbackOnError;
 
+    /**
+     * 是否按工作目录粘滞Token
+     */
+    private Boolean tokenAffinityEnabled;
+
     /**
      * 是否启用
      */
@@ -19,8 +19,8 @@ public class UpdateTokenStrategyRequest {
      * Token轮询策略类型
      */
     @NotBlank(message = "Token策略类型不能为空")
-    @Pattern(regexp = "^(round-robin|weighted|random|least-used)$",
-             message = "Token策略必须是：round-robin, weighted, random, least-used 之一")
+    @Pattern(regexp = "^(round-robin|weighted|random|least-used|adaptive)$",
+             message = "Token策略必须是：round-robin, weighted, random, least-used, adaptive 之一")
     private String type;
 
     /**
@@ -28,4 +28,9 @@ public class UpdateTokenStrategyRequest {
      */
     @NotNull(message = "故障切换标志不能为空")
     private Boolean fallbackOnError;
+
+    /**
+     * 是否按工作目录粘滞Token (可选，不提供则保持原值)
+     */
+    private Boolean affinityEnabled;
 }
\ No newline at end of file
@@ -58,6 +58,11 @@ public class Provider {
      */
     private Boolean tokenFallbackOnError;
 
+    /**
+     * 是否按工作目录粘滞Token（同一项目尽量复用同一个Token，提高上游提示词缓存命中率）
+     */
+    private Boolean tokenAffinityEnabled;
+
     /**
      * 是否启用
      */
@@ -105,7 +110,12 @@ public class Provider {
         /**
          * 最少使用策略
          */
-        LEAST_USED("least-used");
+        LEAST_USED("least-used"),
+
+        /**
+         * 负载感知策略（两次随机选择，比较活跃会话数与错误率/延迟）
+         */
+        ADAPTIVE("adaptive");
 
         private final String value;
 
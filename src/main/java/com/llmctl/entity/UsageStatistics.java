@@ -0,0 +1,67 @@
+package com.llmctl.entity;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Token 使用统计实体类（按 Token + 日期聚合）
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+@Data
+public class UsageStatistics {
+
+    /**
+     * 主键ID
+     */
+    private Long id;
+
+    /**
+     * Provider ID
+     */
+    private String providerId;
+
+    /**
+     * Token ID
+     */
+    private String tokenId;
+
+    /**
+     * 请求次数
+     */
+    private Integer requestCount;
+
+    /**
+     * 成功次数
+     */
+    private Integer successCount;
+
+    /**
+     * 失败次数
+     */
+    private Integer errorCount;
+
+    /**
+     * 消耗的 Token 总量
+     */
+    private Integer totalTokens;
+
+    /**
+     * 统计日期
+     */
+    private LocalDate date;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdAt;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updatedAt;
+}
@@ -1,7 +1,9 @@
 package com.llmctl.interceptor;
 
 import com.llmctl.context.UserContext;
+import com.llmctl.service.ITokenRevocationService;
 import com.llmctl.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -22,6 +24,7 @@ import org.springframework.web.servlet.HandlerInterceptor;
 public class JwtAuthInterceptor implements HandlerInterceptor {
 
     private final JwtUtil jwtUtil;
+    private final ITokenRevocationService tokenRevocationService;
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
@@ -47,12 +50,13 @@ public class JwtAuthInterceptor implements HandlerInterceptor {
         String token = authHeader.substring(7);  // 去掉"Bearer "前缀
 
         try {
-            // 2. 验证Token并提取用户信息
-            Long userId = jwtUtil.getUserIdFromToken(token);
-            String username = jwtUtil.getUsernameFromToken(token);
+            // 2. 解析Token（一次解析同时校验签名和过期时间）并提取用户信息
+            Claims claims = jwtUtil.parseToken(token);
+            Long userId = claims.get("userId", Long.class);
+            String username = claims.getSubject();
 
-            // 3. 验证Token是否有效
-            if (!jwtUtil.validateToken(token, username)) {
+            // 3. 只接受Access Token，且所属登录会话或用户未被吊销
+            if (!"access".equals(claims.get("type", String.class)) || tokenRevocationService.isRevoked(claims)) {
                 log.warn("无效的Token: username={}", username);
                 response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                 response.setContentType("application/json;charset=UTF-8");
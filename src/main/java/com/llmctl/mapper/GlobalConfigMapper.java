@@ -124,21 +124,6 @@ public interface GlobalConfigMapper {
      */
     long count();
 
-    /**
-     * 获取当前活跃的Provider ID
-     *
-     * @return 活跃的Provider ID，如果未设置则返回null
-     */
-    String getActiveProviderId();
-
-    /**
-     * 设置当前活跃的Provider ID
-     *
-     * @param providerId Provider ID
-     * @return 影响的行数
-     */
-    int setActiveProviderId(@Param("providerId") String providerId);
-
     /**
      * 获取应用版本号
      *
@@ -24,6 +24,14 @@ public interface LoginLogMapper {
      */
     int insert(LoginLog loginLog);
 
+    /**
+     * 批量插入登录日志
+     *
+     * @param logs 登录日志列表（created_at 使用对象中的时间）
+     * @return 影响的行数
+     */
+    int batchInsert(@Param("logs") List<LoginLog> logs);
+
     /**
      * 根据用户ID查询登录日志
      *
@@ -4,6 +4,7 @@ import com.llmctl.entity.McpServer;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -55,12 +56,30 @@ public interface McpServerMapper {
     List<McpServer> findTemplatesByCategory(@Param("category") String category);
 
     /**
-     * 根据关键词搜索 MCP 服务器
+     * 全文检索 MCP 服务器（名称、描述），按相关度降序
+     * 范围：全部模板 + 指定用户的服务器
      *
      * @param keyword 搜索关键词
+     * @param userId  用户 ID（为 null 时只检索模板）
+     * @param limit   最大返回数量
      * @return MCP 服务器列表
      */
-    List<McpServer> searchByKeyword(@Param("keyword") String keyword);
+    List<McpServer> searchByFulltext(@Param("keyword") String keyword,
+                                     @Param("userId") Long userId,
+                                     @Param("limit") int limit);
+
+    /**
+     * 按名称前缀查询 MCP 服务器（可使用 idx_name）
+     * 范围：全部模板 + 指定用户的服务器
+     *
+     * @param prefix 名称前缀（已转义 LIKE 通配符）
+     * @param userId 用户 ID（为 null 时只检索模板）
+     * @param limit  最大返回数量
+     * @return MCP 服务器列表
+     */
+    List<McpServer> searchByNamePrefix(@Param("prefix") String prefix,
+                                       @Param("userId") Long userId,
+                                       @Param("limit") int limit);
 
     /**
      * 根据名称查询 MCP 服务器
@@ -111,4 +130,40 @@ public interface McpServerMapper {
      * @return 影响的行数
      */
     int updateEnabled(@Param("id") Long id, @Param("enabled") Boolean enabled);
+
+    /**
+     * 根据 ID 列表查询 MCP 服务器的归属信息（仅 id、user_id、is_template）
+     *
+     * @param ids MCP 服务器 ID 列表
+     * @return MCP 服务器列表
+     */
+    List<McpServer> findOwnershipByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 批量更新启用状态（仅更新属于该用户的非模板服务器）
+     *
+     * @param ids     MCP 服务器 ID 列表
+     * @param userId  用户 ID
+     * @param enabled 是否启用
+     * @return 影响的行数
+     */
+    int batchUpdateEnabled(@Param("ids") Collection<Long> ids,
+                           @Param("userId") Long userId,
+                           @Param("enabled") Boolean enabled);
+
+    /**
+     * 批量删除 MCP 服务器（仅删除属于该用户的非模板服务器）
+     *
+     * @param ids    MCP 服务器 ID 列表
+     * @param userId 用户 ID
+     * @return 影响的行数
+     */
+    int batchDeleteByIds(@Param("ids") Collection<Long> ids, @Param("userId") Long userId);
+
+    /**
+     * 查询模板数据指纹（数量 + 最后更新时间），用于判断模板目录是否需要重新加载
+     *
+     * @return 模板指纹
+     */
+    String findTemplateFingerprint();
 }
@@ -4,6 +4,7 @@ import com.llmctl.entity.ProviderConfig;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -83,4 +84,22 @@ public interface ProviderConfigMapper {
      * @return 配置数量
      */
     long countByProviderId(@Param("providerId") String providerId);
+
+    /**
+     * 批量插入或更新配置（基于 uk_provider_cli 唯一键 INSERT ... ON DUPLICATE KEY UPDATE）
+     *
+     * @param configs ProviderConfig列表
+     * @return 影响的行数
+     */
+    int batchUpsert(@Param("configs") List<ProviderConfig> configs);
+
+    /**
+     * 删除指定Provider中不在保留列表内的配置
+     *
+     * @param providerIds Provider ID集合
+     * @param keepConfigs 需要保留的配置（按 providerId + cliType 匹配），为空时删除全部
+     * @return 影响的行数
+     */
+    int deleteByProviderIdsExcept(@Param("providerIds") Collection<String> providerIds,
+                                  @Param("keepConfigs") List<ProviderConfig> keepConfigs);
 }
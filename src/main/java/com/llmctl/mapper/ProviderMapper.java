@@ -4,6 +4,7 @@ import com.llmctl.entity.Provider;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -34,7 +35,7 @@ public interface ProviderMapper {
     List<Provider> findAll(@Param("userId") Long userId);
 
     /**
-     * 根据类型和用户ID查询Provider列表
+     * 根据类型和用户ID查询Provider列表（基于 provider_types 索引表）
      *
      * @param type Provider类型
      * @param userId 用户ID
@@ -104,7 +105,7 @@ public interface ProviderMapper {
     long count(@Param("userId") Long userId);
 
     /**
-     * 根据类型统计指定用户的Provider数量
+     * 根据类型统计指定用户的Provider数量（基于 provider_types 索引表）
      *
      * @param type Provider类型
      * @param userId 用户ID
@@ -128,4 +129,50 @@ public interface ProviderMapper {
      * @return Provider列表（每个Provider包含configs）
      */
     List<Provider> findAllWithConfigs(@Param("userId") Long userId);
-}
\ No newline at end of file
+
+    /**
+     * 根据类型查询指定用户的Provider（带配置，基于 provider_types 索引表）
+     *
+     * @param type CLI类型
+     * @param userId 用户ID
+     * @return Provider列表（每个Provider包含configs）
+     */
+    List<Provider> findByTypeWithConfigs(@Param("type") String type, @Param("userId") Long userId);
+
+    /**
+     * 批量写入Provider的类型索引（provider_types，已存在的记录忽略）
+     *
+     * @param providers Provider列表（使用 id、userId、types）
+     * @return 影响的行数
+     */
+    int batchInsertTypes(@Param("providers") List<Provider> providers);
+
+    /**
+     * 删除Provider的类型索引
+     *
+     * @param providerIds Provider ID集合
+     * @return 影响的行数
+     */
+    int deleteTypesByProviderIds(@Param("providerIds") Collection<String> providerIds);
+
+    /**
+     * 按ID或名称批量查询指定用户的Provider（用于批量导入时一次性比对已有数据）
+     *
+     * @param userId 用户ID
+     * @param ids Provider ID集合
+     * @param names Provider名称集合
+     * @return 命中ID或名称的Provider列表
+     */
+    List<Provider> findByIdsOrNames(@Param("userId") Long userId,
+                                    @Param("ids") Collection<String> ids,
+                                    @Param("names") Collection<String> names);
+
+    /**
+     * 批量插入或更新Provider（基于主键 INSERT ... ON DUPLICATE KEY UPDATE）
+     * 注意：调用方必须保证已存在的ID属于同一用户
+     *
+     * @param providers Provider列表
+     * @return 影响的行数
+     */
+    int batchUpsert(@Param("providers") List<Provider> providers);
+}
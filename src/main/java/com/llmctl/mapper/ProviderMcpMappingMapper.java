@@ -4,6 +4,7 @@ import com.llmctl.entity.ProviderMcpMapping;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -82,4 +83,32 @@ public interface ProviderMcpMappingMapper {
      * @return 影响的行数
      */
     int updatePriority(@Param("id") Long id, @Param("priority") Integer priority);
+
+    /**
+     * 批量插入或更新映射（按 uk_provider_mcp_cli 判重，已存在时更新 enabled、priority、custom_config）
+     *
+     * @param mappings 映射列表
+     * @return 影响的行数
+     */
+    int batchUpsert(@Param("mappings") List<ProviderMcpMapping> mappings);
+
+    /**
+     * 批量更新优先级（单条 UPDATE ... CASE id）
+     *
+     * @param mappings 包含 ID 和优先级的映射列表
+     * @return 影响的行数
+     */
+    int batchUpdatePriority(@Param("mappings") List<ProviderMcpMapping> mappings);
+
+    /**
+     * 删除 Provider 某个 CLI 类型下指定 ID 的映射
+     *
+     * @param providerId Provider ID
+     * @param cliType    CLI 类型
+     * @param ids        映射 ID 列表
+     * @return 影响的行数
+     */
+    int deleteByProviderAndCliAndIds(@Param("providerId") String providerId,
+                                     @Param("cliType") String cliType,
+                                     @Param("ids") Collection<Long> ids);
 }
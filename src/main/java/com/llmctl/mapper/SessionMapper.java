@@ -5,7 +5,9 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Session数据访问接口
@@ -138,6 +140,19 @@ public interface SessionMapper {
      */
     int reactivate(@Param("id") String id);
 
+    /**
+     * 按当前状态条件更新会话状态
+     * 切换为 active 时清空 end_time（保留原 start_time）；离开 active 时记录 end_time
+     *
+     * @param id Session ID
+     * @param fromStatus 期望的当前状态
+     * @param toStatus 目标状态
+     * @return 影响的行数（0 表示状态已被并发修改）
+     */
+    int transitionStatus(@Param("id") String id,
+                         @Param("fromStatus") String fromStatus,
+                         @Param("toStatus") String toStatus);
+
     /**
      * 根据ID删除Session
      *
@@ -186,21 +201,28 @@ public interface SessionMapper {
     long countByProviderId(@Param("providerId") String providerId);
 
     /**
-     * 应用启动时，将所有活跃会话设置为非活跃状态
-     * 原因：桌面应用重启后，Electron终端进程已全部终止
+     * 按Token统计活跃Session数量
      *
-     * @return 影响的行数
+     * @return 每行包含 tokenId 和 activeCount
      */
-    int deactivateAllActiveSessions();
+    List<Map<String, Object>> countActiveGroupByToken();
 
     /**
-     * 将指定用户的所有活跃会话设置为非活跃状态
-     * 用于用户登出场景
+     * 锁定活跃会话（SELECT ... FOR UPDATE），批量停用前调用
+     * 持锁期间其他按状态条件的更新会等待，提交后不再匹配，保证结束统计只计一次
      *
-     * @param userId 用户ID
+     * @param userId 用户ID（为空表示所有用户）
+     * @return 会话ID列表
+     */
+    List<String> lockActiveSessionIds(@Param("userId") Long userId);
+
+    /**
+     * 将指定的活跃会话设置为非活跃状态
+     *
+     * @param ids 会话ID列表
      * @return 影响的行数
      */
-    int deactivateUserActiveSessions(@Param("userId") Long userId);
+    int deactivateByIds(@Param("ids") Collection<String> ids);
 
     /**
      * 批量删除指定用户的所有非活跃会话（一键清除功能）
@@ -5,6 +5,7 @@ import com.llmctl.dto.SessionDurationTrendDTO;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -31,4 +32,28 @@ public interface StatisticsMapper {
      * @return Provider使用统计列表
      */
     List<ProviderUsageStatDTO> getProviderUsageStats(@Param("userId") Long userId, @Param("days") Integer days);
+
+    /**
+     * 汇总会话启动（会话需已处于 active 状态）
+     *
+     * @param sessionId 会话ID
+     * @return 影响的行数
+     */
+    int rollupSessionStart(@Param("sessionId") String sessionId);
+
+    /**
+     * 汇总一批会话结束（需在会话已被锁定、状态更新之前调用）
+     *
+     * @param sessionIds 会话ID列表
+     * @return 影响的行数
+     */
+    int rollupSessionsEnded(@Param("sessionIds") Collection<String> sessionIds);
+
+    /**
+     * 汇总单个会话结束（需在会话已由 active 条件更新为其他状态之后调用）
+     *
+     * @param sessionId 会话ID
+     * @return 影响的行数
+     */
+    int rollupSessionEnded(@Param("sessionId") String sessionId);
 }
@@ -4,6 +4,8 @@ import com.llmctl.entity.Token;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -32,6 +34,14 @@ public interface TokenMapper {
      */
     List<Token> findByProviderId(@Param("providerId") String providerId);
 
+    /**
+     * 根据多个Provider ID批量查询Token列表（用于Provider列表转换，避免逐个查询）
+     *
+     * @param providerIds Provider ID集合
+     * @return Token列表
+     */
+    List<Token> findByProviderIds(@Param("providerIds") Collection<String> providerIds);
+
     /**
      * 根据Provider ID查询Token列表（优化版本：同时验证Provider权限）
      * 使用JOIN避免额外的Provider权限查询
@@ -74,7 +84,7 @@ public interface TokenMapper {
     int update(Token token);
 
     /**
-     * 更新Token健康状态
+     * 更新Token健康状态（手动设置，同时清除熔断器租约，不会被自动恢复）
      *
      * @param id Token ID
      * @param healthy 健康状态
@@ -160,6 +170,47 @@ public interface TokenMapper {
      */
     int recoverAllUnhealthyTokens(@Param("providerId") String providerId);
 
+    /**
+     * 熔断器打开：标记为不健康并写入熔断器租约
+     *
+     * @param id Token ID
+     * @return 影响的行数
+     */
+    int markUnhealthyByBreaker(@Param("id") String id);
+
+    /**
+     * 熔断器关闭：仅当仍由熔断器标记为不健康时恢复健康，不覆盖期间的手动设置
+     *
+     * @param id Token ID
+     * @return 影响的行数
+     */
+    int markHealthyByBreaker(@Param("id") String id);
+
+    /**
+     * 续期熔断器租约（持有打开/半开熔断器的实例定期调用）
+     *
+     * @param ids Token ID列表
+     * @return 影响的行数
+     */
+    int renewBreakerLease(@Param("ids") Collection<String> ids);
+
+    /**
+     * 查询熔断器租约已过期的不健康Token（仅返回 id、user_id、provider_id）
+     *
+     * @param before 租约过期时间点
+     * @return Token列表
+     */
+    List<Token> findExpiredBreakerLeases(@Param("before") LocalDateTime before);
+
+    /**
+     * 恢复熔断器租约已过期的Token：仅当仍由熔断器标记且租约未被续期时生效
+     *
+     * @param id Token ID
+     * @param before 租约过期时间点
+     * @return 影响的行数
+     */
+    int recoverExpiredBreakerLease(@Param("id") String id, @Param("before") LocalDateTime before);
+
     /**
      * 检查指定用户下是否存在相同的Token值（基于Hash）
      *
@@ -197,4 +248,30 @@ public interface TokenMapper {
      * @return 影响的行数
      */
     int updateTokenHash(@Param("id") String id, @Param("tokenHash") String tokenHash);
-}
\ No newline at end of file
+
+    /**
+     * 批量插入Token（多行 INSERT）
+     *
+     * @param tokens Token列表
+     * @return 影响的行数
+     */
+    int batchInsert(@Param("tokens") List<Token> tokens);
+
+    /**
+     * 查询指定用户下已存在的Token Hash（用于批量导入时去重）
+     *
+     * @param userId 用户ID
+     * @param valueHashes 待检查的Token Hash集合
+     * @return 已存在的Hash列表
+     */
+    List<String> findExistingValueHashes(@Param("userId") Long userId,
+                                         @Param("valueHashes") Collection<String> valueHashes);
+
+    /**
+     * 查询指定Provider下已有Token的别名（仅 provider_id、alias，用于批量导入时生成默认别名）
+     *
+     * @param providerIds Provider ID集合
+     * @return Token列表
+     */
+    List<Token> findAliasesByProviderIds(@Param("providerIds") Collection<String> providerIds);
+}
@@ -0,0 +1,26 @@
+package com.llmctl.mapper;
+
+import com.llmctl.entity.UsageStatistics;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * Token 使用统计数据访问层
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+@Mapper
+public interface UsageStatisticsMapper {
+
+    /**
+     * 批量累加使用统计（按 uk_token_date 判重，已存在时在原值上累加）
+     *
+     * @param stats 增量统计列表
+     * @return 影响的行数
+     */
+    int batchIncrement(@Param("stats") List<UsageStatistics> stats);
+}
@@ -0,0 +1,32 @@
+package com.llmctl.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 用户活跃Provider数据访问层
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+@Mapper
+public interface UserActiveProviderMapper {
+
+    /**
+     * 查询用户当前的活跃Provider ID
+     *
+     * @param userId 用户ID
+     * @return Provider ID，未设置时返回null
+     */
+    String findProviderIdByUserId(@Param("userId") Long userId);
+
+    /**
+     * 设置用户的活跃Provider（按主键 user_id 插入或更新）
+     *
+     * @param userId 用户ID
+     * @param providerId Provider ID
+     * @return 影响的行数
+     */
+    int upsert(@Param("userId") Long userId, @Param("providerId") String providerId);
+}
@@ -56,22 +56,6 @@ public interface UserMapper {
      */
     int update(User user);
 
-    /**
-     * 增加失败登录次数
-     *
-     * @param userId 用户ID
-     * @return 影响的行数
-     */
-    int incrementFailedAttempts(@Param("userId") Long userId);
-
-    /**
-     * 重置失败登录次数
-     *
-     * @param userId 用户ID
-     * @return 影响的行数
-     */
-    int resetFailedAttempts(@Param("userId") Long userId);
-
     /**
      * 锁定用户
      *
@@ -90,33 +74,27 @@ public interface UserMapper {
     int unlockUser(@Param("userId") Long userId);
 
     /**
-     * 更新最后登录时间和IP
+     * 登录成功：一条语句内重置失败次数与锁定、更新最后登录信息
+     * Refresh Token 改为无状态轮换后不再落库，同时清除升级前保存的哈希
      *
      * @param userId 用户ID
      * @param ipAddress IP地址
      * @return 影响的行数
      */
-    int updateLastLogin(@Param("userId") Long userId, @Param("ipAddress") String ipAddress);
+    int recordLoginSuccess(@Param("userId") Long userId,
+                           @Param("ipAddress") String ipAddress);
 
     /**
-     * 更新Refresh Token
+     * 登录失败：原子地增加失败次数，达到上限时同时锁定账户
      *
      * @param userId 用户ID
-     * @param refreshTokenHash Refresh Token哈希
-     * @param expiresAt 过期时间
+     * @param maxAttempts 触发锁定的失败次数
+     * @param lockedUntil 锁定到期时间（仅在达到上限时写入）
      * @return 影响的行数
      */
-    int updateRefreshToken(@Param("userId") Long userId,
-                           @Param("refreshTokenHash") String refreshTokenHash,
-                           @Param("expiresAt") LocalDateTime expiresAt);
-
-    /**
-     * 清除Refresh Token
-     *
-     * @param userId 用户ID
-     * @return 影响的行数
-     */
-    int clearRefreshToken(@Param("userId") Long userId);
+    int recordLoginFailure(@Param("userId") Long userId,
+                           @Param("maxAttempts") int maxAttempts,
+                           @Param("lockedUntil") LocalDateTime lockedUntil);
 
     /**
      * 查询所有用户
@@ -134,6 +112,18 @@ public interface UserMapper {
      */
     int updatePassword(@Param("userId") Long userId, @Param("passwordHash") String passwordHash);
 
+    /**
+     * 仅当密码哈希仍为期望值时更新（后台升级哈希强度时使用，避免覆盖并发修改的新密码）
+     *
+     * @param userId 用户ID
+     * @param expectedHash 期望的当前密码哈希
+     * @param passwordHash 新密码哈希
+     * @return 影响的行数
+     */
+    int updatePasswordIfMatch(@Param("userId") Long userId,
+                              @Param("expectedHash") String expectedHash,
+                              @Param("passwordHash") String passwordHash);
+
     /**
      * 更新头像URL
      *
@@ -142,4 +132,16 @@ public interface UserMapper {
      * @return 影响的行数
      */
     int updateAvatarUrl(@Param("userId") Long userId, @Param("avatarUrl") String avatarUrl);
+
+    /**
+     * 仅当头像URL仍为期望值时更新（避免后台缩放结果覆盖用户之后的新上传）
+     *
+     * @param userId 用户ID
+     * @param expectedUrl 期望的当前头像URL
+     * @param avatarUrl 新头像URL
+     * @return 影响的行数
+     */
+    int updateAvatarUrlIfMatch(@Param("userId") Long userId,
+                               @Param("expectedUrl") String expectedUrl,
+                               @Param("avatarUrl") String avatarUrl);
 }
@@ -0,0 +1,30 @@
+package com.llmctl.service;
+
+/**
+ * 用户活跃Provider服务接口
+ *
+ * 每个用户独立保存自己的活跃Provider（user_active_providers 表，按 user_id 缓存），
+ * 不同用户的切换操作互不争用同一行
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+public interface IActiveProviderService {
+
+    /**
+     * 获取用户的活跃Provider ID
+     *
+     * @param userId 用户ID
+     * @return Provider ID，未设置时返回null
+     */
+    String getActiveProviderId(Long userId);
+
+    /**
+     * 设置用户的活跃Provider ID（调用方负责校验Provider归属）
+     *
+     * @param userId 用户ID
+     * @param providerId Provider ID
+     */
+    void setActiveProviderId(Long userId, String providerId);
+}
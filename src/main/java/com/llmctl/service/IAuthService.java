@@ -36,11 +36,12 @@ public interface IAuthService {
     LoginResponse refreshToken(String refreshToken);
 
     /**
-     * 用户登出
+     * 用户登出，吊销当前登录会话
      *
      * @param userId 用户ID
+     * @param sessionId 登录会话ID（Token中的sid）
      */
-    void logout(Long userId);
+    void logout(Long userId, String sessionId);
 
     /**
      * 更新个人信息
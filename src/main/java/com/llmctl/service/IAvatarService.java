@@ -0,0 +1,30 @@
+package com.llmctl.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+/**
+ * 头像存储服务接口
+ *
+ * 文件名由内容的 SHA-256 决定，同一文件只存一份，且内容永不改变，可以长期缓存
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+public interface IAvatarService {
+
+    /**
+     * 保存上传的头像并提交后台缩放任务
+     *
+     * 原图以流方式写入磁盘，用户头像保存为 256 尺寸缩略图URL {hash}_256.{ext}，
+     * 同目录下还有 {hash}_64.{ext} 和 {hash}_128.{ext}；格式无法解码或缩放失败时为原图URL
+     *
+     * @param userId 用户ID
+     * @param file 头像文件
+     * @return 头像访问URL（缩略图或原图）
+     * @throws IOException 文件IO异常
+     */
+    String store(Long userId, MultipartFile file) throws IOException;
+}
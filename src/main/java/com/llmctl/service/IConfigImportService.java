@@ -0,0 +1,31 @@
+package com.llmctl.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 配置批量导入服务接口
+ *
+ * 导入流程：整体校验 → 一次查询比对已有Provider → 单事务内多行写入
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+public interface IConfigImportService {
+
+    /**
+     * 批量导入Provider（含CLI配置和Token）
+     *
+     * 文档中任一Provider校验失败时不写入任何数据；
+     * 新建的Provider会分配新ID，已存在的Provider在 overwrite=true 时被覆盖，否则跳过
+     *
+     * @param providers 导出JSON中的 providers 数组
+     * @param overwrite 是否覆盖已存在的Provider
+     * @param result 导入结果（累加计数、错误和警告）
+     * @return 导入文档中的Provider ID 到实际Provider ID的映射
+     */
+    Map<String, String> importProviders(List<Map<String, Object>> providers,
+                                        boolean overwrite,
+                                        IConfigService.ConfigImportResult result);
+}
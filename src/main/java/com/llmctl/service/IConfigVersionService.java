@@ -0,0 +1,40 @@
+package com.llmctl.service;
+
+/**
+ * 用户配置版本服务接口
+ *
+ * 每个用户维护一个单调递增的配置版本号，Provider / Token / MCP 配置发生变更时递增，
+ * 列表接口据此生成强 ETag，客户端携带 If-None-Match 命中时直接返回 304
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+public interface IConfigVersionService {
+
+    /**
+     * 递增用户配置版本号
+     * 存在活动事务时在事务提交且所有 afterCommit 回调（缓存清除）完成后递增，
+     * 避免客户端以新版本号缓存到未提交前的数据或尚未清除的旧缓存
+     *
+     * @param userId 用户ID
+     */
+    void bumpVersion(Long userId);
+
+    /**
+     * 生成用户当前配置版本对应的强 ETag
+     *
+     * @param userId 用户ID
+     * @return ETag（含双引号），版本号不可用时返回 null
+     */
+    String currentETag(Long userId);
+
+    /**
+     * 生成用户当前配置版本对应的强 ETag，并区分同一用户下的不同资源
+     *
+     * @param userId 用户ID
+     * @param scope 资源标识（如 Provider ID），为 null 时等同于 {@link #currentETag(Long)}
+     * @return ETag（含双引号），版本号不可用时返回 null
+     */
+    String currentETag(Long userId, String scope);
+}
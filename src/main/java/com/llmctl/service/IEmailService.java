@@ -10,6 +10,7 @@ package com.llmctl.service;
 public interface IEmailService {
     /**
      * 发送验证码邮件
+     * 邮件加入发件箱后立即返回，由后台线程异步投递并在失败时重试
      *
      * @param email 邮箱地址
      * @param code 验证码
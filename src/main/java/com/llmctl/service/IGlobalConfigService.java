@@ -86,20 +86,6 @@ public interface IGlobalConfigService {
      */
     boolean configExists(String configKey);
 
-    /**
-     * 获取活跃Provider ID
-     *
-     * @return 活跃Provider ID
-     */
-    String getActiveProviderId();
-
-    /**
-     * 设置活跃Provider ID
-     *
-     * @param providerId Provider ID
-     */
-    void setActiveProviderId(String providerId);
-
     /**
      * 获取应用版本
      *
@@ -0,0 +1,23 @@
+package com.llmctl.service;
+
+import com.llmctl.entity.LoginLog;
+
+/**
+ * 登录审计日志写入接口
+ *
+ * 登录日志进入有界队列后立即返回，由后台线程合并为多行 INSERT 写入 login_logs，
+ * 不占用登录事务和请求线程
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+public interface ILoginAuditWriter {
+
+    /**
+     * 提交一条登录日志（队列已满时丢弃并记录警告，不阻塞登录）
+     *
+     * @param loginLog 登录日志
+     */
+    void submit(LoginLog loginLog);
+}
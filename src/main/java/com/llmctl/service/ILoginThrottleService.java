@@ -0,0 +1,50 @@
+package com.llmctl.service;
+
+/**
+ * 登录限流与锁定服务接口
+ *
+ * 失败次数按用户名和 IP 分别记录在 Redis 滑动窗口中，锁定状态也保存在 Redis，
+ * 被锁定的请求在查询数据库和校验密码之前就被拒绝
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+public interface ILoginThrottleService {
+
+    /**
+     * 检查用户名和 IP 是否允许登录
+     *
+     * @param username 登录名（用户名或邮箱）
+     * @param ipAddress 客户端 IP，可为 null
+     * @throws com.llmctl.exception.AuthenticationException 用户名已被锁定
+     * @throws com.llmctl.exception.BusinessException IP 失败次数过多（429）
+     */
+    void checkAllowed(String username, String ipAddress);
+
+    /**
+     * 记录一次登录失败
+     *
+     * @param username 登录名（用户名或邮箱）
+     * @param ipAddress 客户端 IP，可为 null
+     * @return 失败结果；Redis 不可用时返回 null，调用方需自行降级
+     */
+    FailureResult recordFailure(String username, String ipAddress);
+
+    /**
+     * 登录成功后清除该用户名的失败记录与锁定
+     *
+     * @param username 登录名（用户名或邮箱）
+     */
+    void recordSuccess(String username);
+
+    /**
+     * 登录失败记录结果
+     *
+     * @param failures 窗口内该用户名的失败次数
+     * @param lockStarted 本次失败是否触发了用户名锁定（只有首次触发时为 true）
+     * @param lockMinutes 锁定时长（分钟）
+     */
+    record FailureResult(long failures, boolean lockStarted, long lockMinutes) {
+    }
+}
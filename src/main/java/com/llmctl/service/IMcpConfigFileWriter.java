@@ -0,0 +1,24 @@
+package com.llmctl.service;
+
+/**
+ * MCP 配置文件写入服务接口
+ *
+ * 负责将 mcpServers 配置写入工作目录下的 .mcp.json：
+ * 在独立的 I/O 线程池中执行，内容未变化时跳过写入，通过临时文件 + 原子重命名落盘，
+ * 同一工作目录的连续刷新只写入最后一次的内容
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+public interface IMcpConfigFileWriter {
+
+    /**
+     * 提交 .mcp.json 写入任务（立即返回，不等待落盘）
+     * 文件中 mcpServers 以外的键保持不变
+     *
+     * @param workingDir 工作目录
+     * @param mcpServersJson 预序列化的 mcpServers JSON
+     */
+    void submit(String workingDir, String mcpServersJson);
+}
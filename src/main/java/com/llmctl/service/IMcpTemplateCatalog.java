@@ -0,0 +1,76 @@
+package com.llmctl.service;
+
+import com.llmctl.entity.McpServer;
+
+import java.util.List;
+
+/**
+ * MCP 模板目录接口
+ *
+ * 内置模板（is_template = 1）极少变化，启动时整体加载为不可变的内存目录，按分类建立索引，
+ * 并预先序列化模板列表接口的响应体；模板变化时通过指纹检查或管理任务整体替换
+ *
+ * @author LLMctl Team
+ * @since v2.3.2
+ */
+public interface IMcpTemplateCatalog {
+
+    /**
+     * 获取所有模板
+     *
+     * @return 模板列表（不可修改）
+     */
+    List<McpServer> getAllTemplates();
+
+    /**
+     * 根据分类获取模板
+     *
+     * @param category 模板分类
+     * @return 模板列表（不可修改），分类不存在时返回空列表
+     */
+    List<McpServer> getTemplatesByCategory(String category);
+
+    /**
+     * 根据 ID 获取模板
+     *
+     * @param id 模板 ID
+     * @return 模板，不存在时返回 null
+     */
+    McpServer getTemplate(Long id);
+
+    /**
+     * 获取所有模板列表接口的预序列化响应
+     *
+     * @return 预序列化响应
+     */
+    SerializedResponse getAllTemplatesResponse();
+
+    /**
+     * 获取指定分类模板列表接口的预序列化响应
+     *
+     * @param category 模板分类
+     * @return 预序列化响应
+     */
+    SerializedResponse getTemplatesByCategoryResponse(String category);
+
+    /**
+     * 立即从数据库重新加载模板目录
+     */
+    void refresh();
+
+    /**
+     * 模板数据指纹变化时重新加载模板目录
+     *
+     * @return 是否发生了重新加载
+     */
+    boolean refreshIfChanged();
+
+    /**
+     * 预序列化的响应体及其强 ETag（由内容哈希生成，内容不变则 ETag 不变）
+     *
+     * @param body JSON 响应体
+     * @param etag ETag（含双引号）
+     */
+    record SerializedResponse(byte[] body, String etag) {
+    }
+}
@@ -0,0 +1,49 @@
+package com.llmctl.service;
+
+/**
+ * 密码哈希服务接口
+ *
+ * BCrypt 计算在独立的有界线程池中执行，排队已满时直接拒绝（返回 429），
+ * 避免登录高峰时所有 Tomcat 请求线程都被 BCrypt 占满
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+public interface IPasswordHashingService {
+
+    /**
+     * 计算密码哈希
+     *
+     * @param rawPassword 明文密码
+     * @return BCrypt 哈希
+     */
+    String encode(String rawPassword);
+
+    /**
+     * 校验密码
+     *
+     * @param rawPassword 明文密码
+     * @param passwordHash BCrypt 哈希
+     * @return 是否匹配
+     */
+    boolean matches(String rawPassword, String passwordHash);
+
+    /**
+     * 哈希是否低于当前配置的强度，需要在下次登录成功时重新计算
+     *
+     * @param passwordHash BCrypt 哈希
+     * @return 是否需要升级
+     */
+    boolean needsRehash(String passwordHash);
+
+    /**
+     * 在后台重新计算密码哈希并写回（线程池繁忙时跳过，下次登录再试）
+     * 仅当数据库中的哈希仍为 oldHash 时写回，不会覆盖期间修改过的密码
+     *
+     * @param userId 用户ID
+     * @param rawPassword 明文密码
+     * @param oldHash 校验通过的旧哈希
+     */
+    void rehashInBackground(Long userId, String rawPassword, String oldHash);
+}
@@ -0,0 +1,29 @@
+package com.llmctl.service;
+
+import com.llmctl.entity.Token;
+
+import java.util.List;
+
+/**
+ * Token 亲和路由接口
+ *
+ * 把 (用户, Provider, 工作目录) 映射到固定的 Token，使同一项目的会话复用同一个 Token，
+ * 提高上游 LLM 的提示词缓存命中率；Token 增减或下线时只有少量目录需要迁移
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+public interface ITokenAffinityRouter {
+
+    /**
+     * 为工作目录选择 Token
+     *
+     * @param userId 用户ID
+     * @param providerId Provider ID
+     * @param workingDirectory 工作目录
+     * @param tokens 当前可用的 Token 列表（非空）
+     * @return 选中的 Token
+     */
+    Token route(Long userId, String providerId, String workingDirectory, List<Token> tokens);
+}
@@ -0,0 +1,78 @@
+package com.llmctl.service;
+
+import com.llmctl.entity.Token;
+
+import java.util.List;
+
+/**
+ * Token 熔断器接口
+ *
+ * 每个 Token 一个熔断器（关闭 / 打开 / 半开），按滑动窗口内的失败率判定是否熔断：
+ * 窗口内失败次数达到 token_error_threshold 且失败率过半时打开，
+ * 经过 token_cooldown_period 秒后进入半开放行探测请求，探测成功即关闭。
+ * 打开期间 tokens.healthy 为 0，只有关闭后才恢复为 1
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+public interface ITokenCircuitBreaker {
+
+    /**
+     * 熔断器状态
+     */
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * 记录请求结果
+     *
+     * @param providerId Provider ID
+     * @param tokenId Token ID
+     * @param successes 成功次数
+     * @param failures 失败次数
+     */
+    void recordOutcome(String providerId, String tokenId, long successes, long failures);
+
+    /**
+     * 立即打开熔断器（客户端明确报告 Token 不可用时调用），冷却期满后同样进入半开探测
+     *
+     * @param providerId Provider ID
+     * @param tokenId Token ID
+     */
+    void forceOpen(String providerId, String tokenId);
+
+    /**
+     * 过滤掉熔断中的 Token，并补回本实例到达探测间隔的半开 Token
+     *
+     * @param providerId Provider ID
+     * @param tokens 候选 Token 列表
+     * @return 可以接收流量的 Token 列表
+     */
+    List<Token> filterAllowed(String providerId, List<Token> tokens);
+
+    /**
+     * 强制关闭熔断器（手动恢复健康时调用）
+     *
+     * @param tokenId Token ID
+     */
+    void reset(String tokenId);
+
+    /**
+     * 强制关闭指定 Provider 下所有 Token 的熔断器
+     *
+     * @param providerId Provider ID
+     */
+    void resetProvider(String providerId);
+
+    /**
+     * 获取 Token 当前熔断状态
+     *
+     * @param tokenId Token ID
+     * @return 熔断状态，从未记录过请求结果时为 CLOSED
+     */
+    State getState(String tokenId);
+}
@@ -1,5 +1,7 @@
 package com.llmctl.service;
 
+import java.util.List;
+
 /**
  * Token加密服务接口
  *
@@ -20,6 +22,17 @@ public interface ITokenEncryptionService {
      */
     String encrypt(String plaintext);
 
+    /**
+     * 批量加密Token值
+     *
+     * 数量较多时并行加密，用于配置导入等批量场景
+     *
+     * @param plaintexts 明文Token列表
+     * @return 加密后的Token列表，顺序与输入一致
+     * @throws RuntimeException 任一Token加密失败时抛出
+     */
+    List<String> encryptAll(List<String> plaintexts);
+
     /**
      * 解密Token值
      *
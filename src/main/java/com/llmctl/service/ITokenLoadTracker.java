@@ -0,0 +1,51 @@
+package com.llmctl.service;
+
+import com.llmctl.entity.Token;
+
+import java.util.List;
+
+/**
+ * Token 负载跟踪接口
+ *
+ * 为 adaptive 策略提供每个 Token 的实时负载：活跃会话数 + 错误率/延迟的指数滑动平均（EWMA），
+ * 选择时采用 power-of-two-choices：随机取两个候选，选负载分更低的一个
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+public interface ITokenLoadTracker {
+
+    /**
+     * 记录一个新会话占用了该 Token
+     *
+     * @param tokenId Token ID
+     */
+    void sessionStarted(String tokenId);
+
+    /**
+     * 记录请求结果
+     *
+     * @param tokenId Token ID
+     * @param successes 成功次数
+     * @param failures 失败次数
+     * @param latencyMillis 平均响应延迟（毫秒），未知时为 null
+     */
+    void recordOutcome(String tokenId, long successes, long failures, Long latencyMillis);
+
+    /**
+     * 获取 Token 当前的活跃会话数（最近一次汇总值 + 本节点此后新开的会话）
+     *
+     * @param tokenId Token ID
+     * @return 活跃会话数
+     */
+    int activeSessions(String tokenId);
+
+    /**
+     * 按负载选择 Token
+     *
+     * @param tokens 候选 Token 列表（非空）
+     * @return 选中的 Token
+     */
+    Token select(List<Token> tokens);
+}
@@ -0,0 +1,65 @@
+package com.llmctl.service;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * JWT 吊销服务接口
+ *
+ * 吊销记录保存在 Redis，每个实例在内存中维护吊销 ID 的布隆过滤器并通过 pub/sub 同步；
+ * 校验 Access Token 时布隆过滤器未命中即可放行，只有命中时才查询 Redis 确认
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+public interface ITokenRevocationService {
+
+    /**
+     * Refresh Token 轮换结果
+     */
+    enum RotationResult {
+        /**
+         * 首次使用，允许轮换
+         */
+        OK,
+        /**
+         * 已被使用过（疑似泄露），整个登录会话已被吊销
+         */
+        REUSED,
+        /**
+         * 登录会话或用户已被吊销
+         */
+        REVOKED
+    }
+
+    /**
+     * 检查 Token 是否已被吊销（所属登录会话被吊销，或签发时间早于用户级吊销时间）
+     *
+     * @param claims 已通过签名校验的 Claims
+     * @return 是否已吊销
+     */
+    boolean isRevoked(Claims claims);
+
+    /**
+     * 消费 Refresh Token：每个 jti 只能使用一次，重复使用时吊销整个登录会话
+     * 整个过程只有一次 Redis 调用
+     *
+     * @param claims 已通过签名校验的 Refresh Token Claims
+     * @return 轮换结果
+     */
+    RotationResult consumeRefreshToken(Claims claims);
+
+    /**
+     * 吊销登录会话（登出）
+     *
+     * @param sessionId 登录会话ID
+     */
+    void revokeSession(String sessionId);
+
+    /**
+     * 吊销用户此前签发的所有Token（修改/重置密码）
+     *
+     * @param userId 用户ID
+     */
+    void revokeUser(Long userId);
+}
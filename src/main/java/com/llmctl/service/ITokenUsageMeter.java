@@ -0,0 +1,32 @@
+package com.llmctl.service;
+
+/**
+ * Token 用量计量服务接口
+ *
+ * 请求热路径只做内存累加，由后台定时批量 upsert 到 usage_statistics，
+ * 不在每次请求时写库
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+public interface ITokenUsageMeter {
+
+    /**
+     * 记录一次 Token 用量（调用方已确认 Token 归属）
+     *
+     * @param providerId Provider ID
+     * @param tokenId Token ID
+     * @param requests 请求次数
+     * @param errors 其中失败的次数
+     * @param tokens 消耗的 Token 总量
+     */
+    void record(String providerId, String tokenId, long requests, long errors, long tokens);
+
+    /**
+     * 立即把内存中的计数刷入数据库
+     *
+     * @return 本次写入的 (Token, 日期) 行数
+     */
+    int flush();
+}
@@ -1,5 +1,6 @@
 package com.llmctl.service;
 
+import com.llmctl.dto.McpConfigSnapshot;
 import com.llmctl.entity.McpServer;
 
 import java.util.List;
@@ -45,7 +46,8 @@ public interface McpServerService {
     List<McpServer> getTemplatesByCategory(String category);
 
     /**
-     * 搜索 MCP 服务器
+     * 搜索 MCP 服务器（全部模板 + 当前用户的服务器）
+     * 排序：名称完全匹配 → 名称前缀匹配 → 全文检索相关度
      *
      * @param keyword 搜索关键词
      * @return MCP 服务器列表
@@ -110,19 +112,21 @@ public interface McpServerService {
     void toggleEnabled(Long id, Boolean enabled);
 
     /**
-     * 批量切换启用状态
+     * 批量切换启用状态（仅作用于当前用户的非模板服务器）
      *
      * @param ids     MCP 服务器 ID 列表
      * @param enabled 是否启用
+     * @return 每个 ID 的处理结果
      */
-    void batchToggleEnabled(List<Long> ids, Boolean enabled);
+    Map<Long, BatchOutcome> batchToggleEnabled(List<Long> ids, Boolean enabled);
 
     /**
-     * 批量删除 MCP 服务器
+     * 批量删除 MCP 服务器（仅作用于当前用户的非模板服务器）
      *
      * @param ids MCP 服务器 ID 列表
+     * @return 每个 ID 的处理结果
      */
-    void batchDeleteServers(List<Long> ids);
+    Map<Long, BatchOutcome> batchDeleteServers(List<Long> ids);
 
     /**
      * 生成 MCP 配置
@@ -134,4 +138,33 @@ public interface McpServerService {
      * @return MCP 配置 Map
      */
     Map<String, Object> generateMcpConfig(String providerId, String cliType, String clientOs);
+
+    /**
+     * 获取用户的 MCP 配置快照（按用户缓存，包含 Windows / POSIX 两种预序列化变体）
+     *
+     * @param userId 用户 ID
+     * @return MCP 配置快照
+     */
+    McpConfigSnapshot getMcpConfigSnapshot(Long userId);
+
+    /**
+     * 获取用户指定客户端系统的预序列化 mcpServers JSON
+     *
+     * @param userId   用户 ID
+     * @param clientOs 客户端操作系统（可选）：windows, mac, linux，默认为当前服务器系统
+     * @return mcpServers JSON
+     */
+    String getMcpServersJson(Long userId, String clientOs);
+
+    /**
+     * 批量操作中单个 MCP 服务器的处理结果
+     */
+    enum BatchOutcome {
+        /** 已处理 */
+        SUCCESS,
+        /** 不存在或不属于当前用户 */
+        NOT_FOUND,
+        /** 内置模板，不允许批量操作 */
+        TEMPLATE
+    }
 }
@@ -3,6 +3,7 @@ package com.llmctl.service;
 import com.llmctl.dto.ProviderUsageStatDTO;
 import com.llmctl.dto.SessionDurationTrendDTO;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -27,4 +28,25 @@ public interface StatisticsService {
      * @return Provider使用统计列表
      */
     List<ProviderUsageStatDTO> getProviderUsageStats(Long userId, Integer days);
+
+    /**
+     * 记录会话启动（会话写入或重新激活之后调用）
+     *
+     * @param sessionId 会话ID
+     */
+    void recordSessionStarted(String sessionId);
+
+    /**
+     * 记录一批会话结束（会话已被锁定、批量停用之前调用，只统计仍活跃的会话）
+     *
+     * @param sessionIds 会话ID列表
+     */
+    void recordSessionsEnded(Collection<String> sessionIds);
+
+    /**
+     * 记录单个会话结束（会话状态已由 active 条件更新成功之后调用，保证并发下只统计一次）
+     *
+     * @param sessionId 会话ID
+     */
+    void recordSessionEnded(String sessionId);
 }
@@ -24,6 +24,14 @@ public interface TokenService {
      */
     List<TokenDTO> getTokensByProviderId(String providerId);
 
+    /**
+     * 校验Provider存在且属于当前用户
+     *
+     * @param providerId Provider ID
+     * @throws IllegalArgumentException 如果Provider不存在或无权访问
+     */
+    void checkProviderAccess(String providerId);
+
     /**
      * 根据Provider ID获取可用的Token列表
      *
@@ -79,8 +87,19 @@ public interface TokenService {
      */
     Token selectToken(String providerId);
 
+    /**
+     * 为指定工作目录选择Token
+     * Provider开启Token亲和时同一工作目录优先复用同一个Token，否则按轮询策略选择
+     *
+     * @param providerId Provider ID
+     * @param workingDirectory 工作目录，为空时等同于 {@link #selectToken(String)}
+     * @return 选中的Token，如果没有可用Token则返回null
+     */
+    Token selectToken(String providerId, String workingDirectory);
+
     /**
      * 更新Token健康状态
+     * 标记为不健康时只记录一次失败，由熔断器按失败率决定是否下线；标记为健康时立即恢复
      *
      * @param tokenId Token ID
      * @param healthy 健康状态
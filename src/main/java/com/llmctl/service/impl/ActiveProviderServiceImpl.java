@@ -0,0 +1,40 @@
+package com.llmctl.service.impl;
+
+import com.llmctl.mapper.UserActiveProviderMapper;
+import com.llmctl.service.IActiveProviderService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 用户活跃Provider服务实现类
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ActiveProviderServiceImpl implements IActiveProviderService {
+
+    private final UserActiveProviderMapper userActiveProviderMapper;
+
+    @Override
+    @Cacheable(value = "user:active-provider", key = "#userId", unless = "#result == null")
+    public String getActiveProviderId(Long userId) {
+        log.debug("查询用户活跃Provider: userId={}", userId);
+        return userActiveProviderMapper.findProviderIdByUserId(userId);
+    }
+
+    @Override
+    @Transactional
+    @CacheEvict(value = "user:active-provider", key = "#userId")
+    public void setActiveProviderId(Long userId, String providerId) {
+        log.info("设置用户活跃Provider: userId={}, providerId={}", userId, providerId);
+        userActiveProviderMapper.upsert(userId, providerId);
+    }
+}
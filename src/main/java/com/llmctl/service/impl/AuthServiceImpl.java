@@ -5,28 +5,24 @@ import com.llmctl.entity.LoginLog;
 import com.llmctl.entity.User;
 import com.llmctl.exception.AuthenticationException;
 import com.llmctl.exception.BusinessException;
-import com.llmctl.mapper.LoginLogMapper;
 import com.llmctl.mapper.UserMapper;
 import com.llmctl.service.IAuthService;
+import com.llmctl.service.IAvatarService;
+import com.llmctl.service.ILoginAuditWriter;
+import com.llmctl.service.ILoginThrottleService;
+import com.llmctl.service.IPasswordHashingService;
+import com.llmctl.service.ITokenRevocationService;
 import com.llmctl.service.IVerificationCodeService;
 import com.llmctl.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.List;
 
 /**
  * 认证服务实现
@@ -41,24 +37,23 @@ import java.util.List;
 public class AuthServiceImpl implements IAuthService {
 
     private final UserMapper userMapper;
-    private final LoginLogMapper loginLogMapper;
+    private final ILoginAuditWriter loginAuditWriter;
+    private final ILoginThrottleService loginThrottleService;
     private final JwtUtil jwtUtil;
     private final IVerificationCodeService verificationCodeService;
-    private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
-
-    @Value("${avatar.upload.path:/downloads/llmctl/images/avatar/}")
-    private String avatarUploadPath;
-
-    @Value("${avatar.base.url:http://117.72.200.2/downloads/llmctl/images/avatar/}")
-    private String avatarBaseUrl;
+    private final IPasswordHashingService passwordHashingService;
+    private final ITokenRevocationService tokenRevocationService;
+    private final IAvatarService avatarService;
 
     private static final int MAX_FAILED_ATTEMPTS = 5;
     private static final long LOCK_DURATION_MINUTES = 30;
-    private static final List<String> ALLOWED_IMAGE_EXTENSIONS = Arrays.asList("jpg", "jpeg", "png", "gif", "webp");
-    private static final long MAX_FILE_SIZE = 10 * 1024 * 1024; // 10MB
 
+    /**
+     * 不在事务中执行：查询用户与 BCrypt 校验（可能在哈希线程池排队数秒）期间不占用数据库连接。
+     * 成功 / 失败 / 解锁的写入各自只有一条 UPDATE，自动提交即为独立事务，失败次数与锁定状态随之持久化。
+     * 登录限流检查（ILoginThrottleService#checkAllowed）由调用方在此之前完成
+     */
     @Override
-    @Transactional
     public LoginResponse login(LoginRequest request) {
         String usernameOrEmail = request.getUsername();
         String password = request.getPassword();
@@ -68,6 +63,8 @@ public class AuthServiceImpl implements IAuthService {
         // 1. 查询用户（支持用户名或邮箱登录）
         User user = findUserByUsernameOrEmail(usernameOrEmail);
         if (user == null) {
+            // 不存在的用户名同样计入失败窗口，抵御撞库
+            loginThrottleService.recordFailure(usernameOrEmail, request.getIpAddress());
             recordLoginFailure(null, usernameOrEmail, "用户不存在", request.getIpAddress());
             throw new AuthenticationException("用户名或密码错误");
         }
@@ -78,7 +75,7 @@ public class AuthServiceImpl implements IAuthService {
             throw new AuthenticationException("账户未激活");
         }
 
-        // 3. 检查账户是否被锁定
+        // 3. 检查账户是否被锁定（数据库中的锁定记录，Redis数据丢失时仍然生效）
         if (user.getIsLocked()) {
             if (user.getLockedUntil() != null && user.getLockedUntil().isAfter(LocalDateTime.now())) {
                 long remainingMinutes = java.time.Duration.between(LocalDateTime.now(), user.getLockedUntil()).toMinutes();
@@ -87,26 +84,28 @@ public class AuthServiceImpl implements IAuthService {
             } else {
                 // 锁定时间已过，解锁账户
                 userMapper.unlockUser(user.getId());
+                user.setFailedLoginAttempts(0);
             }
         }
 
         // 4. 验证密码
-        if (!passwordEncoder.matches(password, user.getPasswordHash())) {
+        if (!passwordHashingService.matches(password, user.getPasswordHash())) {
             handleLoginFailure(user, usernameOrEmail, request.getIpAddress());
             throw new AuthenticationException("用户名或密码错误");
         }
+        if (passwordHashingService.needsRehash(user.getPasswordHash())) {
+            // BCrypt强度提升后，借助本次登录的明文密码在后台重新计算哈希
+            passwordHashingService.rehashInBackground(user.getId(), password, user.getPasswordHash());
+        }
 
-        // 5. 登录成功
-        handleLoginSuccess(user, request.getIpAddress());
-
-        // 6. 生成Token
-        String accessToken = jwtUtil.generateAccessToken(user.getId(), user.getUsername());
-        String refreshToken = jwtUtil.generateRefreshToken(user.getId(), user.getUsername());
+        // 5. 生成Token：同一次登录签发的所有Token共享登录会话ID，用于登出和重放检测
+        String sessionId = jwtUtil.newSessionId();
+        String accessToken = jwtUtil.generateAccessToken(user.getId(), user.getUsername(), sessionId);
+        String refreshToken = jwtUtil.generateRefreshToken(user.getId(), user.getUsername(), sessionId,
+                System.currentTimeMillis());
 
-        // 7. 保存Refresh Token哈希
-        String refreshTokenHash = passwordEncoder.encode(refreshToken);
-        userMapper.updateRefreshToken(user.getId(), refreshTokenHash,
-                LocalDateTime.now().plusDays(7)); // 7天
+        // 6. 登录成功：重置失败次数与更新最后登录合并为一条UPDATE
+        handleLoginSuccess(user, usernameOrEmail, request.getIpAddress());
 
         log.info("用户登录成功: userId={}, username={}", user.getId(), user.getUsername());
 
@@ -149,7 +148,7 @@ public class AuthServiceImpl implements IAuthService {
         // 4. 创建用户
         User user = new User();
         user.setUsername(username);
-        user.setPasswordHash(passwordEncoder.encode(password));
+        user.setPasswordHash(passwordHashingService.encode(password));
         user.setDisplayName(request.getDisplayName() != null ? request.getDisplayName() : username);
         user.setEmail(request.getEmail());
         user.setIsActive(true);
@@ -161,60 +160,70 @@ public class AuthServiceImpl implements IAuthService {
         log.info("用户注册成功: userId={}, username={}", user.getId(), username);
     }
 
+    /**
+     * Refresh Token 一次性使用轮换：首次使用后的短暂宽限期内允许重用（并发刷新），
+     * 超过宽限期再次出现视为被盗用，整个登录会话随之吊销。
+     * 新 Token 的过期时间不超过首次登录时间 + refresh-expiration；刷新时校验账户仍为激活且未锁定
+     */
     @Override
-    @Transactional
     public LoginResponse refreshToken(String refreshToken) {
+        Claims claims;
         try {
-            // 1. 验证Refresh Token格式
-            Long userId = jwtUtil.getUserIdFromToken(refreshToken);
-            String username = jwtUtil.getUsernameFromToken(refreshToken);
-
-            // 2. 查询用户
-            User user = userMapper.selectById(userId);
-            if (user == null || !user.getIsActive()) {
-                throw new AuthenticationException("无效的Refresh Token");
-            }
+            claims = jwtUtil.parseToken(refreshToken);
+        } catch (Exception e) {
+            log.warn("Refresh Token解析失败: {}", e.getMessage());
+            throw new AuthenticationException("无效的Refresh Token");
+        }
+        if (!"refresh".equals(claims.get("type", String.class))) {
+            throw new AuthenticationException("无效的Refresh Token");
+        }
 
-            // 3. 检查Refresh Token是否过期
-            if (user.getRefreshTokenExpiresAt() != null &&
-                user.getRefreshTokenExpiresAt().isBefore(LocalDateTime.now())) {
-                throw new AuthenticationException("Refresh Token已过期");
-            }
+        Long userId = claims.get("userId", Long.class);
+        String username = claims.getSubject();
+        String sessionId = claims.get("sid", String.class);
 
-            // 4. 生成新的Access Token
-            String newAccessToken = jwtUtil.generateAccessToken(userId, username);
+        User user = userMapper.selectById(userId);
+        if (user == null || !Boolean.TRUE.equals(user.getIsActive())) {
+            throw new AuthenticationException("账户不存在或未激活，请重新登录");
+        }
+        if (Boolean.TRUE.equals(user.getIsLocked())
+                && user.getLockedUntil() != null && user.getLockedUntil().isAfter(LocalDateTime.now())) {
+            throw new AuthenticationException("账户已锁定，请重新登录");
+        }
+
+        ITokenRevocationService.RotationResult result = tokenRevocationService.consumeRefreshToken(claims);
+        if (result == ITokenRevocationService.RotationResult.REUSED) {
+            log.warn("检测到Refresh Token重放，登录会话已吊销: userId={}, sid={}", userId, sessionId);
+            throw new AuthenticationException("Refresh Token已失效，请重新登录");
+        }
+        if (result != ITokenRevocationService.RotationResult.OK) {
+            throw new AuthenticationException("Refresh Token已失效，请重新登录");
+        }
 
-            log.info("Token刷新成功: userId={}, username={}", userId, username);
+        String newAccessToken = jwtUtil.generateAccessToken(userId, username, sessionId);
+        String newRefreshToken = jwtUtil.generateRefreshToken(userId, username, sessionId,
+                jwtUtil.getAuthTimeMillis(claims));
 
-            return LoginResponse.builder()
-                    .accessToken(newAccessToken)
-                    .refreshToken(refreshToken) // Refresh Token保持不变
-                    .tokenType("Bearer")
-                    .expiresIn(jwtUtil.getAccessTokenExpiration())
-                    .userId(userId)
-                    .username(username)
-                    .displayName(user.getDisplayName())
-                    .email(user.getEmail())
-                    .avatarUrl(user.getAvatarUrl())
-                    .build();
+        log.info("Token刷新成功: userId={}, username={}", userId, username);
 
-        } catch (Exception e) {
-            log.error("Token刷新失败", e);
-            throw new AuthenticationException("Token刷新失败");
-        }
+        return LoginResponse.builder()
+                .accessToken(newAccessToken)
+                .refreshToken(newRefreshToken)
+                .tokenType("Bearer")
+                .expiresIn(jwtUtil.getAccessTokenExpiration())
+                .userId(userId)
+                .username(username)
+                .build();
     }
 
     @Override
-    @Transactional
-    public void logout(Long userId) {
-        if (userId != null) {
-            // 清除指定用户的Refresh Token
-            userMapper.clearRefreshToken(userId);
-            log.info("用户登出: userId={}", userId);
+    public void logout(Long userId, String sessionId) {
+        if (sessionId != null) {
+            // 吊销当前登录会话，已签发的Access Token和Refresh Token随之失效
+            tokenRevocationService.revokeSession(sessionId);
+            log.info("用户登出: userId={}, sid={}", userId, sessionId);
         } else {
-            // 如果没有用户ID，执行全局清理操作
             log.info("执行全局登出清理操作");
-            // 这里可以添加其他全局清理逻辑，比如清理过期token等
         }
     }
 
@@ -222,13 +231,26 @@ public class AuthServiceImpl implements IAuthService {
      * 处理登录失败
      */
     private void handleLoginFailure(User user, String username, String ipAddress) {
-        int failedAttempts = user.getFailedLoginAttempts() + 1;
-        userMapper.incrementFailedAttempts(user.getId());
-
-        if (failedAttempts >= MAX_FAILED_ATTEMPTS) {
-            // 锁定账户
+        boolean locked;
+        ILoginThrottleService.FailureResult result = loginThrottleService.recordFailure(username, ipAddress);
+        if (result != null) {
+            // 失败计数在Redis中完成，只有真正开始锁定时才写一次users表
+            locked = result.lockStarted();
+            if (locked) {
+                userMapper.lockUser(user.getId(), LocalDateTime.now().plusMinutes(result.lockMinutes()));
+                revokeUserQuietly(user.getId());
+            }
+        } else {
+            // Redis不可用时退回数据库计数：自增失败次数与达到上限时的锁定在同一条UPDATE中完成
             LocalDateTime lockUntil = LocalDateTime.now().plusMinutes(LOCK_DURATION_MINUTES);
-            userMapper.lockUser(user.getId(), lockUntil);
+            userMapper.recordLoginFailure(user.getId(), MAX_FAILED_ATTEMPTS, lockUntil);
+            locked = user.getFailedLoginAttempts() + 1 >= MAX_FAILED_ATTEMPTS;
+            if (locked) {
+                revokeUserQuietly(user.getId());
+            }
+        }
+
+        if (locked) {
             recordLoginFailure(user.getId(), username, "密码错误，账户已锁定", ipAddress);
             log.warn("用户账户已锁定: userId={}, username={}", user.getId(), username);
         } else {
@@ -237,16 +259,24 @@ public class AuthServiceImpl implements IAuthService {
     }
 
     /**
-     * 处理登录成功
+     * 吊销用户已签发的Token；Redis不可用时刷新接口仍会根据数据库中的锁定状态拒绝
      */
-    private void handleLoginSuccess(User user, String ipAddress) {
-        // 重置失败次数
-        userMapper.resetFailedAttempts(user.getId());
+    private void revokeUserQuietly(Long userId) {
+        try {
+            tokenRevocationService.revokeUser(userId);
+        } catch (Exception e) {
+            log.warn("吊销用户Token失败: userId={}, 错误: {}", userId, e.getMessage());
+        }
+    }
 
-        // 更新最后登录时间和IP
-        userMapper.updateLastLogin(user.getId(), ipAddress);
+    /**
+     * 处理登录成功
+     */
+    private void handleLoginSuccess(User user, String username, String ipAddress) {
+        loginThrottleService.recordSuccess(username);
+        userMapper.recordLoginSuccess(user.getId(), ipAddress);
 
-        // 记录登录日志
+        // 记录登录日志（异步批量写入）
         recordLoginSuccess(user.getId(), user.getUsername(), ipAddress);
     }
 
@@ -259,7 +289,7 @@ public class AuthServiceImpl implements IAuthService {
         log.setUsername(username);
         log.setLoginResult(LoginLog.LoginResult.SUCCESS);
         log.setIpAddress(ipAddress);
-        loginLogMapper.insert(log);
+        loginAuditWriter.submit(log);
     }
 
     /**
@@ -272,7 +302,7 @@ public class AuthServiceImpl implements IAuthService {
         log.setLoginResult(LoginLog.LoginResult.FAILED);
         log.setFailureReason(reason);
         log.setIpAddress(ipAddress);
-        loginLogMapper.insert(log);
+        loginAuditWriter.submit(log);
     }
 
     /**
@@ -378,11 +408,11 @@ public class AuthServiceImpl implements IAuthService {
         }
 
         // 5. 更新密码
-        String newPasswordHash = passwordEncoder.encode(request.getNewPassword());
+        String newPasswordHash = passwordHashingService.encode(request.getNewPassword());
         userMapper.updatePassword(userId, newPasswordHash);
 
-        // 6. 清除所有Refresh Token（强制重新登录）
-        userMapper.clearRefreshToken(userId);
+        // 6. 吊销该用户此前签发的所有Token（强制重新登录）
+        tokenRevocationService.revokeUser(userId);
 
         log.info("密码修改成功: userId={}", userId);
     }
@@ -409,73 +439,20 @@ public class AuthServiceImpl implements IAuthService {
         }
 
         // 3. 更新密码
-        String newPasswordHash = passwordEncoder.encode(request.getNewPassword());
+        String newPasswordHash = passwordHashingService.encode(request.getNewPassword());
         userMapper.updatePassword(user.getId(), newPasswordHash);
 
-        // 4. 清除所有Refresh Token（强制重新登录）
-        userMapper.clearRefreshToken(user.getId());
+        // 4. 吊销该用户此前签发的所有Token（强制重新登录）
+        tokenRevocationService.revokeUser(user.getId());
 
         log.info("密码重置成功: userId={}, email={}", user.getId(), request.getEmail());
     }
 
     @Override
-    @Transactional
     public String uploadAvatar(Long userId, MultipartFile file) throws IOException {
         log.info("上传头像: userId={}, filename={}, size={}", userId, file.getOriginalFilename(), file.getSize());
 
-        // 1. 验证文件是否为空
-        if (file.isEmpty()) {
-            throw new BusinessException("上传文件不能为空");
-        }
-
-        // 2. 验证文件大小
-        if (file.getSize() > MAX_FILE_SIZE) {
-            throw new BusinessException("文件大小不能超过10MB");
-        }
-
-        // 3. 验证文件类型
-        String originalFilename = file.getOriginalFilename();
-        if (originalFilename == null || !originalFilename.contains(".")) {
-            throw new BusinessException("无效的文件名");
-        }
-
-        String extension = originalFilename.substring(originalFilename.lastIndexOf(".") + 1).toLowerCase();
-        if (!ALLOWED_IMAGE_EXTENSIONS.contains(extension)) {
-            throw new BusinessException("只支持图片格式：jpg, jpeg, png, gif, webp");
-        }
-
-        // 4. 生成唯一文件名：{timestamp}_{userId}.{extension}
-        long timestamp = System.currentTimeMillis();
-        String filename = timestamp + "_" + userId + "." + extension;
-
-        // 5. 确保上传目录存在（使用绝对路径）
-        // 如果是相对路径，转换为绝对路径
-        File uploadDirFile = new File(avatarUploadPath);
-        if (!uploadDirFile.isAbsolute()) {
-            // 如果是相对路径，转换为项目根目录下的绝对路径
-            uploadDirFile = new File(System.getProperty("user.dir"), avatarUploadPath);
-        }
-
-        if (!uploadDirFile.exists()) {
-            boolean created = uploadDirFile.mkdirs();
-            if (!created) {
-                throw new BusinessException("无法创建上传目录: " + uploadDirFile.getAbsolutePath());
-            }
-            log.info("创建头像上传目录: {}", uploadDirFile.getAbsolutePath());
-        }
-
-        // 6. 保存文件（使用输入流方式，兼容性更好）
-        File targetFile = new File(uploadDirFile, filename);
-        try (var inputStream = file.getInputStream()) {
-            Files.copy(inputStream, targetFile.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-        }
-        log.info("头像文件已保存: {}", targetFile.getAbsolutePath());
-
-        // 7. 生成访问URL
-        String avatarUrl = avatarBaseUrl + filename;
-
-        // 8. 更新数据库
-        userMapper.updateAvatarUrl(userId, avatarUrl);
+        String avatarUrl = avatarService.store(userId, file);
 
         log.info("头像上传成功: userId={}, url={}", userId, avatarUrl);
         return avatarUrl;
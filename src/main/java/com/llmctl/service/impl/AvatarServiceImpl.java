@@ -0,0 +1,300 @@
+package com.llmctl.service.impl;
+
+import com.llmctl.exception.BusinessException;
+import com.llmctl.mapper.UserMapper;
+import com.llmctl.service.IAvatarService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 头像存储服务实现类
+ *
+ * 上传流程：
+ * 1. 上传内容边写临时文件边计算 SHA-256，不在内存中缓冲整个文件
+ * 2. 临时文件重命名为 {hash}.{ext}，内容相同的文件只保留一份
+ * 3. 用户头像直接保存为确定的 256 尺寸缩略图URL {hash}_256.{ext}
+ * 4. 后台线程解码并中心裁剪为 64/128/256 三种尺寸，写为 {hash}_{size}.{ext}；上传请求短暂等待其完成
+ * 5. 缩放失败或队列已满时，若用户头像仍是本次的缩略图URL，则回退为原图
+ *
+ * 客户端把URL中的 _256 替换为 _64 或 _128 即可获得更小的尺寸；无法解码的格式（如 webp）只保留原图
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AvatarServiceImpl implements IAvatarService {
+
+    private static final List<String> ALLOWED_IMAGE_EXTENSIONS = Arrays.asList("jpg", "jpeg", "png", "gif", "webp");
+    private static final long MAX_FILE_SIZE = 10 * 1024 * 1024; // 10MB
+    private static final int[] SIZES = {64, 128, 256};
+    private static final int DEFAULT_SIZE = 256;
+    /**
+     * 上传请求等待后台缩放的最长时间
+     */
+    private static final long RESIZE_WAIT_MILLIS = 3000;
+    /**
+     * 解码时按行列抽样，使短边约为最大缩略图的 2 倍，避免按原始像素分配内存
+     */
+    private static final int DECODE_TARGET = DEFAULT_SIZE * 2;
+    /**
+     * 抽样后长边上限，限制长宽比极端的图片解码后的内存占用
+     */
+    private static final int MAX_DECODED_DIMENSION = 4096;
+
+    private final UserMapper userMapper;
+
+    @Value("${avatar.upload.path:/downloads/llmctl/images/avatar/}")
+    private String avatarUploadPath;
+
+    @Value("${avatar.base.url:http://117.72.200.2/downloads/llmctl/images/avatar/}")
+    private String avatarBaseUrl;
+
+    private ThreadPoolExecutor resizeExecutor;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger counter = new AtomicInteger();
+        resizeExecutor = new ThreadPoolExecutor(1, 2, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(100), r -> {
+                    Thread thread = new Thread(r, "avatar-resize-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        resizeExecutor.shutdown();
+    }
+
+    @Override
+    public String store(Long userId, MultipartFile file) throws IOException {
+        // 1. 验证文件
+        if (file.isEmpty()) {
+            throw new BusinessException("上传文件不能为空");
+        }
+        if (file.getSize() > MAX_FILE_SIZE) {
+            throw new BusinessException("文件大小不能超过10MB");
+        }
+        String originalFilename = file.getOriginalFilename();
+        if (originalFilename == null || !originalFilename.contains(".")) {
+            throw new BusinessException("无效的文件名");
+        }
+        String extension = originalFilename.substring(originalFilename.lastIndexOf(".") + 1).toLowerCase();
+        if (!ALLOWED_IMAGE_EXTENSIONS.contains(extension)) {
+            throw new BusinessException("只支持图片格式：jpg, jpeg, png, gif, webp");
+        }
+        if ("jpeg".equals(extension)) {
+            extension = "jpg";
+        }
+
+        // 2. 流式写入临时文件并计算内容哈希
+        Path uploadDir = resolveUploadDir();
+        Path tempFile = uploadDir.resolve(".upload-" + UUID.randomUUID());
+        String hash;
+        try (InputStream in = new DigestInputStream(file.getInputStream(), sha256())) {
+            Files.copy(in, tempFile);
+            hash = HexFormat.of().formatHex(((DigestInputStream) in).getMessageDigest().digest()).substring(0, 32);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        // 3. 以内容哈希命名，已存在相同内容时直接复用
+        String filename = hash + "." + extension;
+        Path target = uploadDir.resolve(filename);
+        if (Files.exists(target)) {
+            Files.deleteIfExists(tempFile);
+        } else {
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+        log.info("头像文件已保存: {}", target);
+
+        String originalUrl = avatarBaseUrl + filename;
+        if (!ImageIO.getImageReadersBySuffix(extension).hasNext()) {
+            log.info("头像格式无法解码，仅保留原图: {}", filename);
+            userMapper.updateAvatarUrl(userId, originalUrl);
+            return originalUrl;
+        }
+
+        // 4. 先保存确定的缩略图URL，再在后台生成缩略图；生成失败时回退为原图
+        String outputFormat = "jpg".equals(extension) ? "jpg" : "png";
+        String variantUrl = avatarBaseUrl + variantName(hash, DEFAULT_SIZE, outputFormat);
+        userMapper.updateAvatarUrl(userId, variantUrl);
+        Future<?> task;
+        try {
+            task = resizeExecutor.submit(() -> resize(userId, target, hash, outputFormat, variantUrl, originalUrl));
+        } catch (RejectedExecutionException e) {
+            log.warn("⚠️ [头像] 缩放队列已满，仅保留原图: {}", filename);
+            userMapper.updateAvatarUrlIfMatch(userId, variantUrl, originalUrl);
+            return originalUrl;
+        }
+
+        // 短暂等待缩放完成，使客户端拿到URL后即可访问；超时不影响结果，文件稍后生成
+        try {
+            if (!Boolean.TRUE.equals(task.get(RESIZE_WAIT_MILLIS, TimeUnit.MILLISECONDS))) {
+                return originalUrl;
+            }
+        } catch (TimeoutException e) {
+            log.debug("头像缩放仍在进行: {}", filename);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            return originalUrl;
+        }
+        return variantUrl;
+    }
+
+    /**
+     * 生成各尺寸缩略图，失败时若用户头像仍是本次的缩略图URL则回退为原图
+     *
+     * @return 缩略图是否可用
+     */
+    private boolean resize(Long userId, Path source, String hash, String format, String variantUrl, String originalUrl) {
+        try {
+            Path dir = source.getParent();
+            if (!Files.exists(dir.resolve(variantName(hash, DEFAULT_SIZE, format)))) {
+                BufferedImage image = decode(source);
+                if (image == null) {
+                    log.info("头像格式无法解码，仅保留原图: {}", source.getFileName());
+                    userMapper.updateAvatarUrlIfMatch(userId, variantUrl, originalUrl);
+                    return false;
+                }
+                BufferedImage square = cropSquare(image);
+                // 默认尺寸最后写入，其存在即表示全部尺寸已生成
+                for (int size : SIZES) {
+                    Path output = dir.resolve(variantName(hash, size, format));
+                    Path temp = dir.resolve(".resize-" + UUID.randomUUID());
+                    ImageIO.write(scale(square, size, "jpg".equals(format)), format, temp.toFile());
+                    Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            log.info("头像缩略图已生成: userId={}, file={}", userId, variantUrl);
+            return true;
+        } catch (Exception e) {
+            log.error("❌ [头像] 生成缩略图失败: {}", source.getFileName(), e);
+            userMapper.updateAvatarUrlIfMatch(userId, variantUrl, originalUrl);
+            return false;
+        }
+    }
+
+    private static String variantName(String hash, int size, String format) {
+        return hash + "_" + size + "." + format;
+    }
+
+    /**
+     * 先读取图片尺寸，再按抽样间隔解码，解码结果的短边约为 {@link #DECODE_TARGET}
+     */
+    private BufferedImage decode(Path source) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int period = Math.max(Math.min(width, height) / DECODE_TARGET,
+                        (Math.max(width, height) + MAX_DECODED_DIMENSION - 1) / MAX_DECODED_DIMENSION);
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (period > 1) {
+                    param.setSourceSubsampling(period, period, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage cropSquare(BufferedImage image) {
+        int side = Math.min(image.getWidth(), image.getHeight());
+        int x = (image.getWidth() - side) / 2;
+        int y = (image.getHeight() - side) / 2;
+        return image.getSubimage(x, y, side, side);
+    }
+
+    /**
+     * 逐级减半缩放到目标尺寸，避免一次大比例双线性缩放产生锯齿
+     */
+    private BufferedImage scale(BufferedImage image, int size, boolean opaque) {
+        int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage current = image;
+        int side = image.getWidth();
+        do {
+            side = Math.max(side / 2, size);
+            BufferedImage next = new BufferedImage(side, side, type);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, side, side, null);
+            g.dispose();
+            current = next;
+        } while (side > size);
+        return current;
+    }
+
+    private Path resolveUploadDir() throws IOException {
+        File uploadDirFile = new File(avatarUploadPath);
+        if (!uploadDirFile.isAbsolute()) {
+            uploadDirFile = new File(System.getProperty("user.dir"), avatarUploadPath);
+        }
+        Path dir = uploadDirFile.toPath();
+        if (!Files.isDirectory(dir)) {
+            Files.createDirectories(dir);
+            log.info("创建头像上传目录: {}", dir.toAbsolutePath());
+        }
+        return dir;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
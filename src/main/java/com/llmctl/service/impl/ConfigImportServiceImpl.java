@@ -0,0 +1,512 @@
+package com.llmctl.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmctl.context.UserContext;
+import com.llmctl.entity.Provider;
+import com.llmctl.entity.ProviderConfig;
+import com.llmctl.entity.Token;
+import com.llmctl.exception.ServiceException;
+import com.llmctl.mapper.ProviderConfigMapper;
+import com.llmctl.mapper.ProviderMapper;
+import com.llmctl.mapper.TokenMapper;
+import com.llmctl.service.IConfigImportService;
+import com.llmctl.service.IConfigService;
+import com.llmctl.service.IConfigVersionService;
+import com.llmctl.service.ITokenEncryptionService;
+import com.llmctl.utils.DataUtils;
+import com.llmctl.utils.IdGenerator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 配置批量导入服务实现类
+ *
+ * 与逐个调用 createProvider/createToken 相比：
+ * 1. 先校验整个文档，任一错误都不会写入数据
+ * 2. 通过一次 findByIdsOrNames 查询比对已有Provider
+ * 3. providers / provider_configs / tokens 均使用多行语句写入，并在同一事务中提交
+ * 4. Token 加密在写库前并行完成
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConfigImportServiceImpl implements IConfigImportService {
+
+    /**
+     * 单条多行语句的最大行数，避免超过 max_allowed_packet
+     */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * configs 中的键与CLI类型的对应关系
+     */
+    private static final Map<String, ProviderConfig.CliType> CONFIG_KEYS = Map.of(
+            "claudeConfig", ProviderConfig.CliType.CLAUDE,
+            "codexConfig", ProviderConfig.CliType.CODEX,
+            "geminiConfig", ProviderConfig.CliType.GEMINI,
+            "qoderConfig", ProviderConfig.CliType.QODER
+    );
+
+    private final ProviderMapper providerMapper;
+    private final ProviderConfigMapper providerConfigMapper;
+    private final TokenMapper tokenMapper;
+    private final ITokenEncryptionService encryptionService;
+    private final CacheManager cacheManager;
+    private final IConfigVersionService configVersionService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    @Transactional
+    public Map<String, String> importProviders(List<Map<String, Object>> providers,
+                                               boolean overwrite,
+                                               IConfigService.ConfigImportResult result) {
+        Long userId = UserContext.getUserId();
+        log.info("批量导入Provider，数量: {}, 覆盖: {}, 用户ID: {}", providers.size(), overwrite, userId);
+
+        // 1. 整体校验
+        List<String> validationErrors = new ArrayList<>();
+        List<ImportedProvider> imported = parseAndValidate(providers, validationErrors);
+        if (!validationErrors.isEmpty()) {
+            result.getErrors().addAll(validationErrors);
+            log.warn("导入文档校验失败，未写入任何数据，错误数: {}", validationErrors.size());
+            return Map.of();
+        }
+
+        // 2. 一次查询比对已有Provider
+        Set<String> ids = imported.stream().map(p -> p.id).collect(Collectors.toSet());
+        Set<String> names = imported.stream().map(p -> p.name).collect(Collectors.toSet());
+        List<Provider> existing = providerMapper.findByIdsOrNames(userId, ids, names);
+        Map<String, Provider> existingById = existing.stream()
+                .collect(Collectors.toMap(Provider::getId, Function.identity()));
+        Map<String, Provider> existingByName = existing.stream()
+                .collect(Collectors.toMap(Provider::getName, Function.identity(), (a, b) -> a));
+
+        Map<String, String> idMapping = new HashMap<>();
+        List<Provider> providerRows = new ArrayList<>();
+        List<ProviderConfig> configRows = new ArrayList<>();
+        List<String> updatedIds = new ArrayList<>();
+        List<ProviderConfig> updatedConfigRows = new ArrayList<>();
+        List<PendingToken> pendingTokens = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        for (ImportedProvider item : imported) {
+            Provider current = existingById.get(item.id);
+            Provider nameOwner = existingByName.get(item.name);
+
+            if (current != null) {
+                idMapping.put(item.id, current.getId());
+                if (!overwrite) {
+                    result.setSkippedCount(result.getSkippedCount() + 1);
+                    continue;
+                }
+                if (nameOwner != null && !nameOwner.getId().equals(current.getId())) {
+                    result.getErrors().add("更新Provider失败 [" + item.name + "]: Provider名称已存在");
+                    continue;
+                }
+                applyTo(current, item, now);
+                providerRows.add(current);
+                updatedIds.add(current.getId());
+                List<ProviderConfig> configs = buildConfigs(current.getId(), item);
+                configRows.addAll(configs);
+                updatedConfigRows.addAll(configs);
+                continue;
+            }
+
+            if (nameOwner != null) {
+                result.setSkippedCount(result.getSkippedCount() + 1);
+                result.getWarnings().add("Provider名称已存在，已跳过: " + item.name);
+                continue;
+            }
+
+            Provider provider = new Provider();
+            provider.setId(IdGenerator.generateProviderId());
+            provider.setUserId(userId);
+            provider.setIsActive(true);
+            provider.setCreatedAt(now);
+            applyTo(provider, item, now);
+            providerRows.add(provider);
+            idMapping.put(item.id, provider.getId());
+            configRows.addAll(buildConfigs(provider.getId(), item));
+            for (Map<String, Object> tokenConfig : item.tokens) {
+                pendingTokens.add(new PendingToken(provider.getId(), tokenConfig));
+            }
+        }
+
+        List<Token> tokenRows = buildTokens(userId, pendingTokens, now, result);
+
+        // 3. 多行写入
+        for (List<Provider> chunk : chunks(providerRows)) {
+            providerMapper.batchUpsert(chunk);
+        }
+        if (!updatedIds.isEmpty()) {
+            providerMapper.deleteTypesByProviderIds(updatedIds);
+        }
+        for (List<Provider> chunk : chunks(providerRows)) {
+            providerMapper.batchInsertTypes(chunk);
+        }
+        if (!updatedIds.isEmpty()) {
+            // 覆盖时删除新文档中不再包含的CLI配置，其余配置走 upsert
+            providerConfigMapper.deleteByProviderIdsExcept(updatedIds, updatedConfigRows);
+        }
+        for (List<ProviderConfig> chunk : chunks(configRows)) {
+            providerConfigMapper.batchUpsert(chunk);
+        }
+        for (List<Token> chunk : chunks(tokenRows)) {
+            tokenMapper.batchInsert(chunk);
+        }
+
+        evictCaches(userId, updatedIds);
+
+        result.setImportedCount(result.getImportedCount() + providerRows.size());
+        log.info("批量导入完成: 新建{}, 覆盖{}, CLI配置{}, Token{}",
+                providerRows.size() - updatedIds.size(), updatedIds.size(), configRows.size(), tokenRows.size());
+        return idMapping;
+    }
+
+    /**
+     * 解析并校验整个导入文档
+     */
+    @SuppressWarnings("unchecked")
+    private List<ImportedProvider> parseAndValidate(List<Map<String, Object>> providers, List<String> errors) {
+        List<ImportedProvider> imported = new ArrayList<>();
+        Set<String> seenIds = new HashSet<>();
+        Set<String> seenNames = new HashSet<>();
+
+        for (int i = 0; i < providers.size(); i++) {
+            Object raw = providers.get(i);
+            String position = "providers[" + i + "]";
+            if (!(raw instanceof Map)) {
+                errors.add(position + " 格式错误，必须是对象");
+                continue;
+            }
+            Map<String, Object> providerConfig = (Map<String, Object>) raw;
+
+            ImportedProvider item = new ImportedProvider();
+            item.id = asString(providerConfig.get("id"));
+            item.name = asString(providerConfig.get("name"));
+            item.description = asString(providerConfig.get("description"));
+            String label = position + (item.name != null ? " [" + item.name + "]" : "");
+
+            // 兼容旧格式（单个type字段）和新格式（types数组）
+            Object typesObj = providerConfig.get("types");
+            if (typesObj instanceof List) {
+                for (Object type : (List<Object>) typesObj) {
+                    item.types.add(String.valueOf(type));
+                }
+            } else if (typesObj instanceof String) {
+                item.types.add((String) typesObj);
+            }
+
+            if (DataUtils.isEmpty(item.id) || DataUtils.isEmpty(item.name) || item.types.isEmpty()) {
+                errors.add(label + " 缺少必需字段: id, name, types");
+                continue;
+            }
+            if (item.name.length() > 100) {
+                errors.add(label + " 名称长度不能超过100个字符");
+            }
+            if (!seenIds.add(item.id)) {
+                errors.add(label + " Provider ID重复: " + item.id);
+            }
+            if (!seenNames.add(item.name)) {
+                errors.add(label + " Provider名称重复: " + item.name);
+            }
+            for (String type : item.types) {
+                try {
+                    ProviderConfig.CliType.fromTypeString(type);
+                } catch (IllegalArgumentException e) {
+                    errors.add(label + " 不支持的CLI类型: " + type);
+                }
+            }
+
+            String strategy = asString(providerConfig.get("tokenStrategyType"));
+            if (strategy != null) {
+                try {
+                    item.tokenStrategyType = Provider.TokenStrategyType.fromValue(strategy);
+                } catch (IllegalArgumentException e) {
+                    errors.add(label + " 不支持的Token策略: " + strategy);
+                }
+            }
+            Object fallback = providerConfig.get("tokenFallbackOnError");
+            if (fallback instanceof Boolean) {
+                item.tokenFallbackOnError = (Boolean) fallback;
+            }
+            Object affinity = providerConfig.get("tokenAffinityEnabled");
+            if (affinity instanceof Boolean) {
+                item.tokenAffinityEnabled = (Boolean) affinity;
+            }
+
+            Object configsObj = providerConfig.get("configs");
+            if (configsObj instanceof Map) {
+                for (Map.Entry<String, Object> entry : ((Map<String, Object>) configsObj).entrySet()) {
+                    ProviderConfig.CliType cliType = CONFIG_KEYS.get(entry.getKey());
+                    if (cliType == null || entry.getValue() == null) {
+                        continue;
+                    }
+                    if (!(entry.getValue() instanceof Map)) {
+                        errors.add(label + " " + entry.getKey() + " 必须是对象");
+                        continue;
+                    }
+                    item.configs.put(cliType, toJson((Map<String, Object>) entry.getValue()));
+                }
+            } else if (configsObj != null) {
+                errors.add(label + " configs 必须是对象");
+            }
+
+            Object tokensObj = providerConfig.get("tokens");
+            if (tokensObj instanceof List) {
+                for (Object tokenObj : (List<Object>) tokensObj) {
+                    if (tokenObj instanceof Map) {
+                        item.tokens.add((Map<String, Object>) tokenObj);
+                    } else {
+                        errors.add(label + " tokens 中的元素必须是对象");
+                    }
+                }
+            } else if (tokensObj != null) {
+                errors.add(label + " tokens 必须是数组");
+            }
+
+            imported.add(item);
+        }
+        return imported;
+    }
+
+    /**
+     * 将导入内容写入Provider实体（新建或覆盖）
+     */
+    private void applyTo(Provider provider, ImportedProvider item, LocalDateTime now) {
+        provider.setName(item.name);
+        if (item.description != null || provider.getDescription() == null) {
+            provider.setDescription(item.description);
+        }
+        provider.setTypes(item.types);
+        if (item.tokenStrategyType != null) {
+            provider.setTokenStrategyType(item.tokenStrategyType);
+        } else if (provider.getTokenStrategyType() == null) {
+            provider.setTokenStrategyType(Provider.TokenStrategyType.ROUND_ROBIN);
+        }
+        if (item.tokenFallbackOnError != null) {
+            provider.setTokenFallbackOnError(item.tokenFallbackOnError);
+        } else if (provider.getTokenFallbackOnError() == null) {
+            provider.setTokenFallbackOnError(true);
+        }
+        if (item.tokenAffinityEnabled != null) {
+            provider.setTokenAffinityEnabled(item.tokenAffinityEnabled);
+        } else if (provider.getTokenAffinityEnabled() == null) {
+            provider.setTokenAffinityEnabled(false);
+        }
+        provider.setUpdatedAt(now);
+    }
+
+    /**
+     * 按 types 顺序构建CLI配置行（未提供配置数据的类型跳过）
+     */
+    private List<ProviderConfig> buildConfigs(String providerId, ImportedProvider item) {
+        List<ProviderConfig> configs = new ArrayList<>();
+        for (String type : item.types) {
+            ProviderConfig.CliType cliType = ProviderConfig.CliType.fromTypeString(type);
+            String configData = item.configs.get(cliType);
+            if (configData == null) {
+                continue;
+            }
+            ProviderConfig config = new ProviderConfig();
+            config.setProviderId(providerId);
+            config.setCliType(cliType);
+            config.setConfigData(configData);
+            configs.add(config);
+        }
+        return configs;
+    }
+
+    /**
+     * 构建待插入的Token行：去重、一次查询排除已存在的Token，并行加密
+     */
+    private List<Token> buildTokens(Long userId, List<PendingToken> pendingTokens,
+                                    LocalDateTime now, IConfigService.ConfigImportResult result) {
+        Map<String, PendingToken> byHash = new LinkedHashMap<>();
+        Map<String, Set<String>> aliasesByProvider = new HashMap<>();
+
+        for (PendingToken pending : pendingTokens) {
+            String alias = asString(pending.config.get("alias"));
+            String value = asString(pending.config.get("value"));
+            if (DataUtils.isEmpty(value)) {
+                result.getWarnings().add("Token [" + alias + "] 未提供值，已跳过");
+                continue;
+            }
+            if (alias != null && !aliasesByProvider.computeIfAbsent(pending.providerId, k -> new HashSet<>()).add(alias)) {
+                result.getWarnings().add("Token别名重复，已跳过: " + alias);
+                continue;
+            }
+            pending.alias = alias;
+            pending.value = value;
+            pending.hash = DataUtils.sha256Hex(value);
+            if (byHash.putIfAbsent(pending.hash, pending) != null) {
+                result.getWarnings().add("Token [" + alias + "] 与导入文档中的其他Token重复，已跳过");
+            }
+        }
+        if (byHash.isEmpty()) {
+            return List.of();
+        }
+
+        Set<String> existingHashes = new HashSet<>();
+        for (List<String> chunk : chunks(new ArrayList<>(byHash.keySet()))) {
+            existingHashes.addAll(tokenMapper.findExistingValueHashes(userId, chunk));
+        }
+        List<PendingToken> accepted = new ArrayList<>();
+        for (Map.Entry<String, PendingToken> entry : byHash.entrySet()) {
+            if (existingHashes.contains(entry.getKey())) {
+                result.getWarnings().add("Token [" + entry.getValue().alias + "] 已存在，已跳过");
+            } else {
+                accepted.add(entry.getValue());
+            }
+        }
+
+        assignDefaultAliases(accepted, aliasesByProvider);
+
+        List<String> encrypted = encryptionService.encryptAll(
+                accepted.stream().map(t -> t.value).collect(Collectors.toList()));
+
+        List<Token> tokens = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            PendingToken pending = accepted.get(i);
+            Token token = new Token();
+            token.setId(IdGenerator.generateTokenId());
+            token.setUserId(userId);
+            token.setProviderId(pending.providerId);
+            token.setValue(encrypted.get(i));
+            token.setValueHash(pending.hash);
+            token.setAlias(pending.alias);
+            Object weight = pending.config.get("weight");
+            token.setWeight(weight instanceof Number ? ((Number) weight).intValue() : 1);
+            Object enabled = pending.config.get("enabled");
+            token.setEnabled(enabled instanceof Boolean ? (Boolean) enabled : true);
+            token.setHealthy(true);
+            token.setEncryptionVersion("v1");
+            token.setCreatedAt(now);
+            token.setUpdatedAt(now);
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    /**
+     * 为未提供别名的Token按Provider分别编号（Token-1、Token-2…），跳过该Provider已有的和导入文档中显式指定的别名
+     */
+    private void assignDefaultAliases(List<PendingToken> accepted, Map<String, Set<String>> aliasesByProvider) {
+        Set<String> providerIds = accepted.stream()
+                .filter(t -> t.alias == null)
+                .map(t -> t.providerId)
+                .collect(Collectors.toSet());
+        if (providerIds.isEmpty()) {
+            return;
+        }
+        Map<String, Set<String>> taken = new HashMap<>();
+        aliasesByProvider.forEach((providerId, aliases) -> taken.put(providerId, new HashSet<>(aliases)));
+        for (List<String> chunk : chunks(new ArrayList<>(providerIds))) {
+            for (Token existing : tokenMapper.findAliasesByProviderIds(chunk)) {
+                taken.computeIfAbsent(existing.getProviderId(), k -> new HashSet<>()).add(existing.getAlias());
+            }
+        }
+
+        Map<String, Integer> counters = new HashMap<>();
+        for (PendingToken pending : accepted) {
+            if (pending.alias != null) {
+                continue;
+            }
+            Set<String> providerAliases = taken.computeIfAbsent(pending.providerId, k -> new HashSet<>());
+            String alias;
+            do {
+                alias = "Token-" + counters.merge(pending.providerId, 1, Integer::sum);
+            } while (!providerAliases.add(alias));
+            pending.alias = alias;
+        }
+    }
+
+    /**
+     * 清除受影响的Provider缓存（事务感知的缓存会在提交后执行）
+     */
+    private void evictCaches(Long userId, List<String> updatedIds) {
+        Cache listCache = cacheManager.getCache("provider:list");
+        if (listCache != null) {
+            listCache.evict(userId);
+        }
+        Cache configCache = cacheManager.getCache("provider:config");
+        if (configCache != null) {
+            updatedIds.forEach(configCache::evict);
+        }
+        configVersionService.bumpVersion(userId);
+    }
+
+    private <T> List<List<T>> chunks(List<T> rows) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i += BATCH_SIZE) {
+            chunks.add(rows.subList(i, Math.min(i + BATCH_SIZE, rows.size())));
+        }
+        return chunks;
+    }
+
+    private String asString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private String toJson(Map<String, Object> map) {
+        if (map == null || map.isEmpty()) {
+            return "{}";
+        }
+        try {
+            return objectMapper.writeValueAsString(map);
+        } catch (JsonProcessingException e) {
+            throw new ServiceException("JSON序列化", "将配置数据转换为JSON失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 校验通过的导入Provider
+     */
+    private static class ImportedProvider {
+        private String id;
+        private String name;
+        private String description;
+        private final List<String> types = new ArrayList<>();
+        private Provider.TokenStrategyType tokenStrategyType;
+        private Boolean tokenFallbackOnError;
+        private Boolean tokenAffinityEnabled;
+        private final Map<ProviderConfig.CliType, String> configs = new HashMap<>();
+        private final List<Map<String, Object>> tokens = new ArrayList<>();
+    }
+
+    /**
+     * 待导入的Token
+     */
+    private static class PendingToken {
+        private final String providerId;
+        private final Map<String, Object> config;
+        private String alias;
+        private String value;
+        private String hash;
+
+        private PendingToken(String providerId, Map<String, Object> config) {
+            this.providerId = providerId;
+            this.config = config;
+        }
+    }
+}
@@ -8,10 +8,11 @@ import com.llmctl.entity.Token;
 import com.llmctl.mapper.ProviderConfigMapper;
 import com.llmctl.mapper.ProviderMapper;
 import com.llmctl.mapper.TokenMapper;
+import com.llmctl.service.IActiveProviderService;
+import com.llmctl.service.IConfigImportService;
 import com.llmctl.service.IConfigService;
 import com.llmctl.service.IGlobalConfigService;
 import com.llmctl.service.ProviderService;
-import com.llmctl.service.TokenService;
 import com.llmctl.utils.DataUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -39,8 +40,9 @@ import java.util.stream.Collectors;
 public class ConfigServiceImpl implements IConfigService {
 
     private final IGlobalConfigService globalConfigService;
+    private final IActiveProviderService activeProviderService;
     private final ProviderService providerService;
-    private final TokenService tokenService;
+    private final IConfigImportService configImportService;
     private final ProviderMapper providerMapper;
     private final ProviderConfigMapper providerConfigMapper;
     private final TokenMapper tokenMapper;
@@ -51,7 +53,7 @@ public class ConfigServiceImpl implements IConfigService {
         log.debug("获取当前活跃Provider配置");
 
         ActiveProviderConfigDTO config = new ActiveProviderConfigDTO();
-        String activeProviderId = globalConfigService.getActiveProviderId();
+        String activeProviderId = activeProviderService.getActiveProviderId(com.llmctl.context.UserContext.getUserId());
         config.setActiveProviderId(activeProviderId);
 
         if (activeProviderId != null) {
@@ -84,7 +86,7 @@ public class ConfigServiceImpl implements IConfigService {
             log.warn("Provider没有可用Token: {}", providerId);
         }
 
-        globalConfigService.setActiveProviderId(providerId);
+        activeProviderService.setActiveProviderId(userId, providerId);
         log.info("成功设置活跃Provider: {} ({})", provider.getName(), providerId);
     }
 
@@ -197,7 +199,7 @@ public class ConfigServiceImpl implements IConfigService {
         sb.append("# LLMctl Configuration Export\n");
         sb.append("# Generated at: ").append(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append("\n\n");
 
-        String activeProviderId = globalConfigService.getActiveProviderId();
+        String activeProviderId = activeProviderService.getActiveProviderId(userId);
         if (activeProviderId != null) {
             Provider provider = providerMapper.findById(activeProviderId, userId);
             if (provider != null) {
@@ -226,7 +228,7 @@ public class ConfigServiceImpl implements IConfigService {
         sb.append("# LLMctl Configuration Export\n");
         sb.append("# Generated at: ").append(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append("\n\n");
 
-        String activeProviderId = globalConfigService.getActiveProviderId();
+        String activeProviderId = activeProviderService.getActiveProviderId(userId);
         if (activeProviderId != null) {
             Provider provider = providerMapper.findById(activeProviderId, userId);
             if (provider != null) {
@@ -256,7 +258,7 @@ public class ConfigServiceImpl implements IConfigService {
         sb.append("REM LLMctl Configuration Export\n");
         sb.append("REM Generated at: ").append(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append("\n\n");
 
-        String activeProviderId = globalConfigService.getActiveProviderId();
+        String activeProviderId = activeProviderService.getActiveProviderId(userId);
         if (activeProviderId != null) {
             Provider provider = providerMapper.findById(activeProviderId, userId);
             if (provider != null) {
@@ -286,7 +288,7 @@ public class ConfigServiceImpl implements IConfigService {
         // 导出基本信息
         config.put("exportTime", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
         config.put("version", globalConfigService.getAppVersion());
-        config.put("activeProviderId", globalConfigService.getActiveProviderId());
+        config.put("activeProviderId", activeProviderService.getActiveProviderId(userId));
 
         // 导出所有Provider（仅属于当前用户的）
         List<Provider> providers = providerMapper.findAll(userId);
@@ -299,6 +301,7 @@ public class ConfigServiceImpl implements IConfigService {
             providerConfig.put("description", provider.getDescription());
             providerConfig.put("types", provider.getTypes());
             providerConfig.put("tokenStrategyType", provider.getTokenStrategyType());
+            providerConfig.put("tokenAffinityEnabled", Boolean.TRUE.equals(provider.getTokenAffinityEnabled()));
 
             // 导出CLI配置
             List<ProviderConfig> configs = providerConfigMapper.selectByProviderId(provider.getId());
@@ -336,215 +339,43 @@ public class ConfigServiceImpl implements IConfigService {
     /**
      * 从JSON导入配置
      */
+    @SuppressWarnings("unchecked")
     private void importFromJson(String jsonData, Boolean overwrite, ConfigImportResult result) {
+        Map<String, Object> config;
         try {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> config = objectMapper.readValue(jsonData, Map.class);
-
-            // 导入Providers
-            if (config.containsKey("providers")) {
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> providers = (List<Map<String, Object>>) config.get("providers");
-
-                for (Map<String, Object> providerConfig : providers) {
-                    try {
-                        importProviderFromConfig(providerConfig, overwrite, result);
-                    } catch (Exception e) {
-                        String providerId = (String) providerConfig.get("id");
-                        result.getErrors().add("导入Provider失败 [" + providerId + "]: " + e.getMessage());
-                        log.error("导入Provider失败: {}", providerId, e);
-                    }
-                }
-            }
-
-            // 导入活跃Provider设置
-            if (config.containsKey("activeProviderId")) {
-                Long userId = com.llmctl.context.UserContext.getUserId();
-                String activeProviderId = (String) config.get("activeProviderId");
-                if (activeProviderId != null) {
-                    Provider provider = providerMapper.findById(activeProviderId, userId);
-                    if (provider != null) {
-                        globalConfigService.setActiveProviderId(activeProviderId);
-                        result.setImportedCount(result.getImportedCount() + 1);
-                        log.info("成功设置活跃Provider: {}", activeProviderId);
-                    } else {
-                        result.getErrors().add("活跃Provider不存在或无权访问: " + activeProviderId);
-                    }
-                }
-            }
-
+            config = objectMapper.readValue(jsonData, Map.class);
         } catch (Exception e) {
             result.getErrors().add("JSON解析失败: " + e.getMessage());
             log.error("JSON解析失败", e);
-        }
-    }
-
-    /**
-     * 从配置导入单个Provider
-     */
-    @SuppressWarnings("unchecked")
-    private void importProviderFromConfig(Map<String, Object> providerConfig, Boolean overwrite, ConfigImportResult result) {
-        Long userId = com.llmctl.context.UserContext.getUserId();
-        String providerId = (String) providerConfig.get("id");
-        String name = (String) providerConfig.get("name");
-        Object typesObj = providerConfig.get("types");
-
-        // 兼容旧格式（单个type字段）和新格式（types数组）
-        List<String> types = new ArrayList<>();
-        if (typesObj instanceof List) {
-            types = (List<String>) typesObj;
-        } else if (typesObj instanceof String) {
-            // 兼容旧版本单个type
-            types.add((String) typesObj);
+            return;
         }
 
-        // 验证必需字段
-        if (DataUtils.isEmpty(providerId) || DataUtils.isEmpty(name) || types.isEmpty()) {
-            result.getErrors().add("Provider配置缺少必需字段: id, name, types");
+        // 批量导入Providers（整体校验后单事务写入）
+        Map<String, String> idMapping = new HashMap<>();
+        Object providers = config.get("providers");
+        if (providers instanceof List) {
+            idMapping = configImportService.importProviders(
+                    (List<Map<String, Object>>) providers, Boolean.TRUE.equals(overwrite), result);
+        } else if (providers != null) {
+            result.getErrors().add("providers 必须是数组");
             return;
         }
 
-        Provider existingProvider = providerMapper.findById(providerId, userId);
-
-        // 如果Provider已存在
-        if (existingProvider != null) {
-            if (!overwrite) {
-                result.setSkippedCount(result.getSkippedCount() + 1);
-                log.info("跳过已存在的Provider: {} ({})", name, providerId);
-                return;
-            }
-
-            // 更新现有Provider
-            UpdateProviderRequest updateRequest = new UpdateProviderRequest();
-            updateRequest.setName(name);
-            updateRequest.setDescription((String) providerConfig.get("description"));
-            updateRequest.setTypes(types);
-
-            // 从 configs 中提取 CLI 配置
-            if (providerConfig.containsKey("configs")) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> configs = (Map<String, Object>) providerConfig.get("configs");
-
-                if (configs.containsKey("claudeConfig")) {
-                    updateRequest.setClaudeConfig((Map<String, Object>) configs.get("claudeConfig"));
-                }
-                if (configs.containsKey("codexConfig")) {
-                    updateRequest.setCodexConfig((Map<String, Object>) configs.get("codexConfig"));
-                }
-                if (configs.containsKey("geminiConfig")) {
-                    updateRequest.setGeminiConfig((Map<String, Object>) configs.get("geminiConfig"));
-                }
-                if (configs.containsKey("qoderConfig")) {
-                    updateRequest.setQoderConfig((Map<String, Object>) configs.get("qoderConfig"));
-                }
-            }
-
-            try {
-                providerService.updateProvider(providerId, updateRequest);
-                result.setImportedCount(result.getImportedCount() + 1);
-                log.info("成功更新Provider: {} ({})", name, providerId);
-            } catch (Exception e) {
-                result.getErrors().add("更新Provider失败 [" + name + "]: " + e.getMessage());
-                log.error("更新Provider失败: {}", providerId, e);
-            }
-
-        } else {
-            // 创建新Provider
-            CreateProviderRequest createRequest = new CreateProviderRequest();
-            createRequest.setName(name);
-            createRequest.setDescription((String) providerConfig.get("description"));
-            createRequest.setTypes(types);
-
-            // 从 configs 中提取 CLI 配置
-            if (providerConfig.containsKey("configs")) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> configs = (Map<String, Object>) providerConfig.get("configs");
-
-                if (configs.containsKey("claudeConfig")) {
-                    createRequest.setClaudeConfig((Map<String, Object>) configs.get("claudeConfig"));
-                }
-                if (configs.containsKey("codexConfig")) {
-                    createRequest.setCodexConfig((Map<String, Object>) configs.get("codexConfig"));
-                }
-                if (configs.containsKey("geminiConfig")) {
-                    createRequest.setGeminiConfig((Map<String, Object>) configs.get("geminiConfig"));
-                }
-                if (configs.containsKey("qoderConfig")) {
-                    createRequest.setQoderConfig((Map<String, Object>) configs.get("qoderConfig"));
-                }
-            }
-
-            String tokenStrategyType = (String) providerConfig.get("tokenStrategyType");
-            createRequest.setTokenStrategyType(tokenStrategyType != null ? tokenStrategyType : "round-robin");
-
-            // 处理第一个Token（注意：新版本不再有 setToken 和 setTokenAlias 方法，这部分逻辑需要单独处理Token）
-            /*
-            String firstTokenValue = "PLACEHOLDER_TOKEN_PLEASE_UPDATE";
-            String firstTokenAlias = "导入的占位符Token";
-
-            if (providerConfig.containsKey("tokens")) {
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> tokens = (List<Map<String, Object>>) providerConfig.get("tokens");
-                if (!tokens.isEmpty()) {
-                    Map<String, Object> firstToken = tokens.get(0);
-                    String tokenValue = (String) firstToken.get("value");
-                    if (tokenValue != null && !tokenValue.isEmpty()) {
-                        firstTokenValue = tokenValue;
-                        firstTokenAlias = (String) firstToken.getOrDefault("alias", "Token-1");
-                    }
-                }
-            }
-            */
-
-            try {
-                ProviderDTO createdProvider = providerService.createProvider(createRequest);
-                result.setImportedCount(result.getImportedCount() + 1);
-
-                log.info("成功创建Provider: {} ({})", name, createdProvider.getId());
-
-                // 导入Token配置 - 使用实际创建的Provider ID
-                if (providerConfig.containsKey("tokens")) {
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, Object>> tokens = (List<Map<String, Object>>) providerConfig.get("tokens");
-
-                    // 导入所有Token
-                    for (Map<String, Object> tokenConfig : tokens) {
-                        importTokenForProvider(createdProvider.getId(), tokenConfig, result);
-                    }
+        // 导入活跃Provider设置（新建的Provider会分配新ID，需要按映射转换）
+        if (config.containsKey("activeProviderId")) {
+            Long userId = com.llmctl.context.UserContext.getUserId();
+            String activeProviderId = (String) config.get("activeProviderId");
+            if (activeProviderId != null) {
+                activeProviderId = idMapping.getOrDefault(activeProviderId, activeProviderId);
+                Provider provider = providerMapper.findById(activeProviderId, userId);
+                if (provider != null) {
+                    activeProviderService.setActiveProviderId(userId, activeProviderId);
+                    result.setImportedCount(result.getImportedCount() + 1);
+                    log.info("成功设置活跃Provider: {}", activeProviderId);
+                } else {
+                    result.getErrors().add("活跃Provider不存在或无权访问: " + activeProviderId);
                 }
-
-            } catch (Exception e) {
-                result.getErrors().add("创建Provider失败 [" + name + "]: " + e.getMessage());
-                log.error("创建Provider失败: {}", name, e);
-            }
-        }
-    }
-
-    /**
-     * 为Provider导入Token配置
-     */
-    private void importTokenForProvider(String providerId, Map<String, Object> tokenConfig, ConfigImportResult result) {
-        try {
-            CreateTokenRequest tokenRequest = new CreateTokenRequest();
-
-            // 如果配置中有真实的token值，使用真实值；否则使用占位符
-            String tokenValue = (String) tokenConfig.get("value");
-            if (tokenValue != null && !tokenValue.isEmpty()) {
-                tokenRequest.setValue(tokenValue);
-            } else {
-                tokenRequest.setValue("PLACEHOLDER_TOKEN_PLEASE_UPDATE");
-                result.getWarnings().add("Token [" + tokenConfig.get("alias") + "] 未提供值，使用占位符");
             }
-
-            tokenRequest.setAlias((String) tokenConfig.get("alias"));
-            tokenRequest.setWeight((Integer) tokenConfig.getOrDefault("weight", 1));
-            tokenRequest.setEnabled((Boolean) tokenConfig.getOrDefault("enabled", true));
-
-            tokenService.createToken(providerId, tokenRequest);
-            log.info("为Provider {} 导入Token配置: {}", providerId, tokenRequest.getAlias());
-
-        } catch (Exception e) {
-            log.warn("为Provider {} 导入Token配置失败: {}", providerId, e.getMessage());
         }
     }
 
@@ -590,7 +421,7 @@ public class ConfigServiceImpl implements IConfigService {
         if ("LLMCTL_ACTIVE_PROVIDER".equals(key)) {
             Long userId = com.llmctl.context.UserContext.getUserId();
             if (providerMapper.findById(value, userId) != null) {
-                globalConfigService.setActiveProviderId(value);
+                activeProviderService.setActiveProviderId(userId, value);
                 return true;
             }
         }
@@ -655,7 +486,7 @@ public class ConfigServiceImpl implements IConfigService {
      */
     private void validateGlobalConfig(ConfigValidationResponse response) {
         Long userId = com.llmctl.context.UserContext.getUserId();
-        String activeProviderId = globalConfigService.getActiveProviderId();
+        String activeProviderId = activeProviderService.getActiveProviderId(userId);
         if (activeProviderId == null) {
             response.getWarnings().add("没有设置活跃Provider");
         } else if (providerMapper.findById(activeProviderId, userId) == null) {
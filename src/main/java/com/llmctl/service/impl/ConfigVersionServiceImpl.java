@@ -0,0 +1,120 @@
+package com.llmctl.service.impl;
+
+import com.llmctl.service.IConfigVersionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.UUID;
+
+/**
+ * 用户配置版本服务实现类
+ *
+ * 版本号存放在 Redis 哈希（config:version:{userId}）的 v 字段，通过 HINCRBY 保证多实例下单调递增；
+ * epoch 字段为 key 首次创建时生成的随机值并拼入 ETag，Redis 被清空后版本号从 0 重新计数也不会与旧 ETag 相同。
+ * Redis 不可用时 currentETag 返回 null，接口退化为不带 ETag 的完整响应；递增失败时删除 key，
+ * 下次读取生成新的 epoch，避免客户端拿旧 ETag 得到错误的 304
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConfigVersionServiceImpl implements IConfigVersionService {
+
+    private static final String VERSION_KEY_PREFIX = "config:version:";
+
+    /**
+     * 读取版本：key 不存在时以 ARGV[1] 作为 epoch 初始化，返回 "epoch:version"
+     */
+    private static final RedisScript<String> READ_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HSETNX', KEYS[1], 'epoch', ARGV[1]) == 1 then " +
+            "  redis.call('HSET', KEYS[1], 'v', 0) " +
+            "end " +
+            "local r = redis.call('HMGET', KEYS[1], 'epoch', 'v') " +
+            "return r[1] .. ':' .. (r[2] or '0')",
+            String.class);
+
+    /**
+     * 递增版本：key 不存在时以 ARGV[1] 作为 epoch 初始化，返回新版本号
+     */
+    private static final RedisScript<Long> BUMP_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('HSETNX', KEYS[1], 'epoch', ARGV[1]) " +
+            "return redis.call('HINCRBY', KEYS[1], 'v', 1)",
+            Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Override
+    public void bumpVersion(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 在 afterCompletion 中递增：所有 afterCommit 回调（包括事务感知缓存的 @CacheEvict）执行完之后才生效，
+            // 避免读请求拿到新 ETag 的同时读到尚未清除的旧缓存
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        doBump(userId);
+                    }
+                }
+            });
+        } else {
+            doBump(userId);
+        }
+    }
+
+    @Override
+    public String currentETag(Long userId) {
+        return currentETag(userId, null);
+    }
+
+    @Override
+    public String currentETag(Long userId, String scope) {
+        if (userId == null) {
+            return null;
+        }
+        try {
+            String version = stringRedisTemplate.execute(READ_SCRIPT,
+                    Collections.singletonList(VERSION_KEY_PREFIX + userId), newEpoch());
+            if (version == null) {
+                return null;
+            }
+            int sep = version.indexOf(':');
+            String etag = "u" + userId + "-" + version.substring(0, sep) + "-v" + version.substring(sep + 1);
+            return "\"" + (scope != null ? etag + "-" + scope : etag) + "\"";
+        } catch (Exception e) {
+            log.warn("⚠️ [配置版本] Redis读取失败，跳过ETag: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void doBump(Long userId) {
+        String key = VERSION_KEY_PREFIX + userId;
+        try {
+            Long version = stringRedisTemplate.execute(BUMP_SCRIPT, Collections.singletonList(key), newEpoch());
+            log.debug("🔄 [配置版本] 用户: {}, 新版本: {}", userId, version);
+        } catch (Exception e) {
+            log.warn("⚠️ [配置版本] Redis递增失败，作废当前版本，用户: {}, 错误: {}", userId, e.getMessage());
+            try {
+                stringRedisTemplate.delete(key);
+            } catch (Exception ex) {
+                log.error("❌ [配置版本] 作废版本失败，用户: {}, 错误: {}", userId, ex.getMessage());
+            }
+        }
+    }
+
+    private static String newEpoch() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+}
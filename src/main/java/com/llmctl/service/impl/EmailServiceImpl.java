@@ -1,16 +1,56 @@
 package com.llmctl.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmctl.exception.BusinessException;
 import com.llmctl.service.IEmailService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 /**
  * 邮件服务实现类
  *
+ * 邮件先持久化到 Redis 发件箱再返回，由后台工作线程认领投递，进程重启或发布不会丢失已受理的邮件：
+ * - 入队：邮件写入待发送列表 mail:{outbox}:pending，超过 queue-capacity 时拒绝
+ * - 认领：工作线程用 RPOPLPUSH 把邮件原子地移入本实例的处理中列表，最多 batch-size 封通过同一个 SMTP 连接批量发送
+ * - 确认：投递成功后从处理中列表删除；失败的邮件按指数退避写入重试有序集合，到期后移回待发送列表
+ * - 超过最大尝试次数后写入 Redis 死信列表 mail:dead-letter
+ * - 恢复：各实例定期续约心跳，心跳过期实例的处理中列表整体移回待发送列表（至少投递一次，极端情况下可能重复发送）
+ * - mail.outbox.sink=file 时不连接邮件服务器，邮件追加写入本地文件，便于本地和测试环境使用
+ *
+ * 所有键使用 {outbox} 哈希标签，保证集群模式下 RPOPLPUSH 和 Lua 脚本涉及的键落在同一个槽
+ *
  * @author Liu Yifan
  * @version 2.1.0
  * @since 2025-10-14
@@ -20,38 +60,452 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class EmailServiceImpl implements IEmailService {
 
+    private static final String DEAD_LETTER_KEY = "mail:dead-letter";
+    private static final int DEAD_LETTER_LIMIT = 1000;
+
+    private static final String PENDING_KEY = "mail:{outbox}:pending";
+    private static final String RETRY_KEY = "mail:{outbox}:retry";
+    private static final String WORKERS_KEY = "mail:{outbox}:workers";
+    private static final String PROCESSING_PREFIX = "mail:{outbox}:processing:";
+    private static final String ALIVE_PREFIX = "mail:{outbox}:alive:";
+
+    /** 工作线程阻塞等待新邮件的时长，需小于 Redis 命令超时 */
+    private static final long POLL_TIMEOUT_SECONDS = 2;
+    private static final long HEARTBEAT_INTERVAL_SECONDS = 10;
+    private static final long HEARTBEAT_TTL_SECONDS = HEARTBEAT_INTERVAL_SECONDS * 3;
+    private static final int PROMOTE_LIMIT = 100;
+
+    /**
+     * KEYS: 待发送列表
+     * ARGV: 容量上限, 邮件
+     * 返回: 1 已入队，0 队列已满
+     */
+    private static final RedisScript<Long> ENQUEUE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('LLEN', KEYS[1]) >= tonumber(ARGV[1]) then
+                return 0
+            end
+            redis.call('LPUSH', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    /**
+     * KEYS: 处理中列表, 重试有序集合
+     * ARGV: 原邮件, 更新尝试次数后的邮件, 到期毫秒
+     */
+    private static final RedisScript<Long> RETRY_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('ZADD', KEYS[2], ARGV[3], ARGV[2])
+            return redis.call('LREM', KEYS[1], 1, ARGV[1])
+            """, Long.class);
+
+    /**
+     * KEYS: 重试有序集合, 待发送列表
+     * ARGV: 当前毫秒, 单次最多移动数量
+     * 返回: 移回待发送列表的邮件数
+     */
+    private static final RedisScript<Long> PROMOTE_SCRIPT = new DefaultRedisScript<>("""
+            local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))
+            for _, item in ipairs(due) do
+                redis.call('ZREM', KEYS[1], item)
+                redis.call('LPUSH', KEYS[2], item)
+            end
+            return #due
+            """, Long.class);
+
+    /**
+     * KEYS: 实例处理中列表, 待发送列表, 实例集合, 实例心跳
+     * ARGV: 实例ID
+     * 返回: 移回待发送列表的邮件数，实例仍存活时返回 -1
+     */
+    private static final RedisScript<Long> RECOVER_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[4]) == 1 then
+                return -1
+            end
+            local moved = 0
+            while redis.call('RPOPLPUSH', KEYS[1], KEYS[2]) do
+                moved = moved + 1
+            end
+            redis.call('SREM', KEYS[3], ARGV[1])
+            return moved
+            """, Long.class);
+
     private final JavaMailSender mailSender;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
 
     @Value("${spring.mail.username}")
     private String from;
 
+    @Value("${mail.outbox.sink:smtp}")
+    private String sink;
+
+    @Value("${mail.outbox.file-path:./logs/mail-outbox.log}")
+    private String filePath;
+
+    @Value("${mail.outbox.workers:2}")
+    private int workers;
+
+    @Value("${mail.outbox.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${mail.outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${mail.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${mail.outbox.initial-backoff-millis:2000}")
+    private long initialBackoffMillis;
+
+    @Value("${mail.outbox.max-backoff-millis:60000}")
+    private long maxBackoffMillis;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private final ScheduledExecutorService maintenanceScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "mail-outbox-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean running = true;
+
+    /**
+     * 发件箱中持久化的邮件
+     */
+    @Data
+    @NoArgsConstructor
+    static final class OutboxMessage {
+        private String id;
+        private String from;
+        private String[] to;
+        private String subject;
+        private String text;
+        private int attempts;
+    }
+
+    /**
+     * 已认领的邮件：payload 为处理中列表里的原始值，用于确认和重试时精确删除
+     */
+    private static final class OutboundEmail {
+        private final String payload;
+        private final OutboxMessage record;
+        private final SimpleMailMessage message;
+
+        private OutboundEmail(String payload, OutboxMessage record) {
+            this.payload = payload;
+            this.record = record;
+            this.message = new SimpleMailMessage();
+            message.setFrom(record.getFrom());
+            message.setTo(record.getTo());
+            message.setSubject(record.getSubject());
+            message.setText(record.getText());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        heartbeat();
+        maintenanceScheduler.scheduleWithFixedDelay(this::promoteDueRetries, 1, 1, TimeUnit.SECONDS);
+        maintenanceScheduler.scheduleWithFixedDelay(() -> {
+            heartbeat();
+            recoverDeadInstances();
+        }, 0, HEARTBEAT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        for (int i = 0; i < Math.max(1, workers); i++) {
+            Thread worker = new Thread(this::runLoop, "mail-outbox-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workerThreads.add(worker);
+        }
+        log.info("📮 [邮件发件箱] 已启动: sink={}, workers={}, instance={}", sink, workerThreads.size(), instanceId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        maintenanceScheduler.shutdownNow();
+        // 不中断阻塞中的 Redis 命令，等待工作线程完成当前批次后自然退出
+        for (Thread worker : workerThreads) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(POLL_TIMEOUT_SECONDS + 5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // 本实例尚未确认的邮件移回待发送列表，由其他实例或下次启动继续投递
+        try {
+            stringRedisTemplate.delete(ALIVE_PREFIX + instanceId);
+            Long moved = recover(instanceId);
+            if (moved != null && moved > 0) {
+                log.info("📮 [邮件发件箱] 停机前已将 {} 封未完成邮件移回待发送列表", moved);
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ [邮件发件箱] 停机移交失败，将由其他实例在心跳过期后恢复: {}", e.getMessage());
+        }
+    }
+
     @Override
     public void sendVerificationCode(String email, String code, String purpose) {
+        OutboxMessage record = new OutboxMessage();
+        record.setId(UUID.randomUUID().toString());
+        record.setFrom(from);
+        record.setTo(new String[]{email});
+        record.setSubject("【LLMctl】验证码");
+
+        String purposeText = getPurposeText(purpose);
+        record.setText(String.format(
+                "您好，\n\n" +
+                        "您正在进行%s操作。\n" +
+                        "本次验证码为：%s\n" +
+                        "请在 5 分钟内完成验证。\n\n" +
+                        "若非您本人操作，请忽略此邮件。\n\n" +
+                        "—— LLMctl 团队",
+                purposeText, code
+        ));
+
+        Long accepted;
+        try {
+            accepted = stringRedisTemplate.execute(ENQUEUE_SCRIPT, List.of(PENDING_KEY),
+                    String.valueOf(queueCapacity), objectMapper.writeValueAsString(record));
+        } catch (Exception e) {
+            log.error("❌ [邮件发件箱] 写入发件箱失败: {} - {}", email, e.getMessage());
+            throw new BusinessException("发送验证码失败，请稍后重试");
+        }
+        if (accepted == null || accepted == 0) {
+            log.error("❌ [邮件发件箱] 队列已满，拒绝发送: {}", email);
+            throw new BusinessException("发送验证码失败，请稍后重试");
+        }
+        log.debug("验证码邮件已加入发件箱: {}", email);
+    }
+
+    private void runLoop() {
+        ListOperations<String, String> ops = stringRedisTemplate.opsForList();
+        String processingKey = PROCESSING_PREFIX + instanceId;
+        List<String> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                String first = ops.rightPopAndLeftPush(PENDING_KEY, processingKey, POLL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                while (batch.size() < batchSize) {
+                    String next = ops.rightPopAndLeftPush(PENDING_KEY, processingKey);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                deliver(batch);
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                log.error("❌ [邮件发件箱] 投递异常", e);
+                sleepQuietly();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 投递一批已认领的邮件，成功的确认删除，失败的按退避策略写入重试集合或进入死信
+     */
+    private void deliver(List<String> payloads) {
+        List<OutboundEmail> batch = new ArrayList<>(payloads.size());
+        for (String payload : payloads) {
+            try {
+                batch.add(new OutboundEmail(payload, objectMapper.readValue(payload, OutboxMessage.class)));
+            } catch (Exception e) {
+                log.error("❌ [邮件发件箱] 无法解析的邮件，已丢弃: {}", e.getMessage());
+                acknowledge(payload);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<OutboundEmail, Exception> failures = "file".equalsIgnoreCase(sink)
+                ? writeToFile(batch)
+                : sendViaSmtp(batch);
+
+        int delivered = 0;
+        for (OutboundEmail email : batch) {
+            if (!failures.containsKey(email)) {
+                acknowledge(email.payload);
+                delivered++;
+            }
+        }
+        if (delivered > 0) {
+            log.info("📮 [邮件发件箱] 已投递 {} 封邮件", delivered);
+        }
+        failures.forEach((email, error) -> {
+            int attempts = email.record.getAttempts() + 1;
+            if (attempts < maxAttempts) {
+                scheduleRetry(email, attempts, error);
+            } else {
+                email.record.setAttempts(attempts);
+                deadLetter(email, error);
+                acknowledge(email.payload);
+            }
+        });
+    }
+
+    /**
+     * 通过 SMTP 批量发送：JavaMailSender 对同一批邮件只建立一次连接
+     */
+    private Map<OutboundEmail, Exception> sendViaSmtp(List<OutboundEmail> batch) {
+        Map<SimpleMailMessage, OutboundEmail> byMessage = new IdentityHashMap<>();
+        batch.forEach(email -> byMessage.put(email.message, email));
+        Map<OutboundEmail, Exception> failures = new IdentityHashMap<>();
+        try {
+            mailSender.send(byMessage.keySet().toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                batch.forEach(email -> failures.put(email, e));
+            } else {
+                e.getFailedMessages().forEach((message, error) -> {
+                    OutboundEmail email = byMessage.get(message);
+                    if (email != null) {
+                        failures.put(email, error);
+                    }
+                });
+            }
+        } catch (Exception e) {
+            batch.forEach(email -> failures.put(email, e));
+        }
+        return failures;
+    }
+
+    /**
+     * 文件模式：邮件追加写入本地文件，不连接邮件服务器
+     */
+    private synchronized Map<OutboundEmail, Exception> writeToFile(List<OutboundEmail> batch) {
+        Map<OutboundEmail, Exception> failures = new IdentityHashMap<>();
+        StringBuilder content = new StringBuilder();
+        for (OutboundEmail email : batch) {
+            content.append("==== ").append(LocalDateTime.now()).append(" ====\n")
+                    .append("To: ").append(recipient(email)).append('\n')
+                    .append("Subject: ").append(email.message.getSubject()).append("\n\n")
+                    .append(email.message.getText()).append("\n\n");
+        }
+        try {
+            Path path = Paths.get(filePath);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Files.writeString(path, content, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            batch.forEach(email -> failures.put(email, e));
+        }
+        return failures;
+    }
+
+    private void scheduleRetry(OutboundEmail email, int attempts, Exception error) {
+        long delay = Math.min(initialBackoffMillis << (attempts - 1), maxBackoffMillis);
+        email.record.setAttempts(attempts);
+        try {
+            stringRedisTemplate.execute(RETRY_SCRIPT, Arrays.asList(PROCESSING_PREFIX + instanceId, RETRY_KEY),
+                    email.payload, objectMapper.writeValueAsString(email.record),
+                    String.valueOf(System.currentTimeMillis() + delay));
+            log.warn("⚠️ [邮件发件箱] 发送失败，{}ms 后第 {} 次重试: {} - {}",
+                    delay, attempts + 1, recipient(email), error.getMessage());
+        } catch (Exception e) {
+            // 邮件仍留在处理中列表，停机或心跳过期后会被移回待发送列表
+            log.warn("⚠️ [邮件发件箱] 写入重试集合失败: {} - {}", recipient(email), e.getMessage());
+        }
+    }
+
+    private void acknowledge(String payload) {
+        try {
+            stringRedisTemplate.opsForList().remove(PROCESSING_PREFIX + instanceId, 1, payload);
+        } catch (Exception e) {
+            log.warn("⚠️ [邮件发件箱] 确认邮件失败，可能重复发送: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 把到期的重试邮件移回待发送列表
+     */
+    private void promoteDueRetries() {
+        try {
+            stringRedisTemplate.execute(PROMOTE_SCRIPT, Arrays.asList(RETRY_KEY, PENDING_KEY),
+                    String.valueOf(System.currentTimeMillis()), String.valueOf(PROMOTE_LIMIT));
+        } catch (Exception e) {
+            log.warn("⚠️ [邮件发件箱] 移动到期重试邮件失败: {}", e.getMessage());
+        }
+    }
+
+    private void heartbeat() {
+        try {
+            stringRedisTemplate.opsForValue().set(ALIVE_PREFIX + instanceId, "1",
+                    HEARTBEAT_TTL_SECONDS, TimeUnit.SECONDS);
+            stringRedisTemplate.opsForSet().add(WORKERS_KEY, instanceId);
+        } catch (Exception e) {
+            log.warn("⚠️ [邮件发件箱] 心跳续约失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 心跳已过期的实例（崩溃或被强制终止）遗留的处理中邮件移回待发送列表
+     */
+    private void recoverDeadInstances() {
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(from);
-            message.setTo(email);
-            message.setSubject("【LLMctl】验证码");
-
-            String purposeText = getPurposeText(purpose);
-            message.setText(String.format(
-                    "您好，\n\n" +
-                            "您正在进行%s操作。\n" +
-                            "本次验证码为：%s\n" +
-                            "请在 5 分钟内完成验证。\n\n" +
-                            "若非您本人操作，请忽略此邮件。\n\n" +
-                            "—— LLMctl 团队",
-                    purposeText, code
-            ));
-
-            mailSender.send(message);
-            log.info("验证码邮件已发送到: {}", email);
+            Set<String> instances = stringRedisTemplate.opsForSet().members(WORKERS_KEY);
+            if (instances == null) {
+                return;
+            }
+            for (String instance : instances) {
+                if (instanceId.equals(instance)) {
+                    continue;
+                }
+                Long moved = recover(instance);
+                if (moved != null && moved > 0) {
+                    log.warn("📮 [邮件发件箱] 实例 {} 心跳已过期，已恢复 {} 封未完成邮件", instance, moved);
+                }
+            }
         } catch (Exception e) {
-            log.error("发送验证码邮件失败: {}", email, e);
-            throw new RuntimeException("发送验证码失败，请稍后重试");
+            log.warn("⚠️ [邮件发件箱] 恢复失效实例邮件失败: {}", e.getMessage());
         }
     }
 
+    private Long recover(String instance) {
+        return stringRedisTemplate.execute(RECOVER_SCRIPT,
+                Arrays.asList(PROCESSING_PREFIX + instance, PENDING_KEY, WORKERS_KEY, ALIVE_PREFIX + instance),
+                instance);
+    }
+
+    private void sleepQuietly() {
+        try {
+            TimeUnit.SECONDS.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deadLetter(OutboundEmail email, Exception error) {
+        log.error("❌ [邮件发件箱] 邮件投递失败，已转入死信: {} (尝试 {} 次) - {}",
+                recipient(email), email.record.getAttempts(), error.getMessage());
+        try {
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("id", email.record.getId());
+            record.put("to", recipient(email));
+            record.put("subject", email.message.getSubject());
+            record.put("attempts", email.record.getAttempts());
+            record.put("error", error.getMessage());
+            record.put("failedAt", LocalDateTime.now().toString());
+            stringRedisTemplate.opsForList().leftPush(DEAD_LETTER_KEY, objectMapper.writeValueAsString(record));
+            stringRedisTemplate.opsForList().trim(DEAD_LETTER_KEY, 0, DEAD_LETTER_LIMIT - 1);
+        } catch (Exception e) {
+            log.warn("⚠️ [邮件发件箱] 写入死信失败: {}", e.getMessage());
+        }
+    }
+
+    private String recipient(OutboundEmail email) {
+        String[] to = email.message.getTo();
+        return to != null && to.length > 0 ? String.join(",", to) : "";
+    }
 
     private String getPurposeText(String purpose) {
         return switch (purpose) {
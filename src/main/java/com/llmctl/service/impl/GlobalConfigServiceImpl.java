@@ -3,17 +3,34 @@ package com.llmctl.service.impl;
 import com.llmctl.entity.GlobalConfig;
 import com.llmctl.mapper.GlobalConfigMapper;
 import com.llmctl.service.IGlobalConfigService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.time.LocalDateTime;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 全局配置业务服务实现类
  *
+ * 配置在启动时整体加载到内存，读取为无锁的 volatile 快照查找，数值和布尔值在加载时解析一次。
+ * 写入提交后重新加载对应配置项并通过 config:global 频道通知其他实例；
+ * 另有每 5 分钟一次的全量重新加载，兜底丢失的广播消息
+ *
  * @author Liu Yifan
  * @version 2.0.0
  * @since 2025-09-29
@@ -23,7 +40,62 @@ import java.util.List;
 @RequiredArgsConstructor
 public class GlobalConfigServiceImpl implements IGlobalConfigService {
 
+    private static final String CHANNEL = "config:global";
+    private static final long FULL_RELOAD_MINUTES = 5;
+
     private final GlobalConfigMapper globalConfigMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 配置快照（写时复制，读取无需加锁）
+     */
+    private volatile Map<String, ConfigEntry> snapshot = Map.of();
+
+    private final ScheduledExecutorService reloadExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "global-config-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 已解析的配置值
+     */
+    private record ConfigEntry(String value, Integer intValue, Boolean booleanValue) {
+
+        static ConfigEntry of(String value) {
+            Integer intValue = null;
+            if (value != null) {
+                try {
+                    intValue = Integer.parseInt(value.trim());
+                } catch (NumberFormatException ignored) {
+                    // 非数值配置
+                }
+            }
+            return new ConfigEntry(value, intValue, value != null ? Boolean.parseBoolean(value.trim()) : null);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        reloadAll();
+        MessageListener listener = (message, pattern) -> {
+            String configKey = new String(message.getBody(), StandardCharsets.UTF_8);
+            try {
+                reload(configKey);
+            } catch (Exception e) {
+                log.warn("⚠️ [全局配置] 刷新配置失败: {} - {}", configKey, e.getMessage());
+            }
+        };
+        listenerContainer.addMessageListener(listener, new ChannelTopic(CHANNEL));
+        reloadExecutor.scheduleWithFixedDelay(this::reloadAllQuietly,
+                FULL_RELOAD_MINUTES, FULL_RELOAD_MINUTES, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reloadExecutor.shutdownNow();
+    }
 
     @Override
     public List<GlobalConfig> getAllConfigs() {
@@ -33,9 +105,8 @@ public class GlobalConfigServiceImpl implements IGlobalConfigService {
 
     @Override
     public String getConfigValue(String configKey) {
-        log.debug("获取配置值: {}", configKey);
-        GlobalConfig config = globalConfigMapper.findByConfigKey(configKey);
-        return config != null ? config.getConfigValue() : null;
+        ConfigEntry entry = snapshot.get(configKey);
+        return entry != null ? entry.value() : null;
     }
 
     @Override
@@ -46,27 +117,20 @@ public class GlobalConfigServiceImpl implements IGlobalConfigService {
 
     @Override
     public Integer getIntConfigValue(String configKey, Integer defaultValue) {
-        String value = getConfigValue(configKey);
-        if (value == null) {
-            return defaultValue;
-        }
-
-        try {
-            return Integer.parseInt(value);
-        } catch (NumberFormatException e) {
-            log.warn("配置值无法转换为整数: {} = {}, 使用默认值: {}", configKey, value, defaultValue);
+        ConfigEntry entry = snapshot.get(configKey);
+        if (entry == null || entry.intValue() == null) {
             return defaultValue;
         }
+        return entry.intValue();
     }
 
     @Override
     public Boolean getBooleanConfigValue(String configKey, Boolean defaultValue) {
-        String value = getConfigValue(configKey);
-        if (value == null) {
+        ConfigEntry entry = snapshot.get(configKey);
+        if (entry == null || entry.booleanValue() == null) {
             return defaultValue;
         }
-
-        return Boolean.parseBoolean(value);
+        return entry.booleanValue();
     }
 
     @Override
@@ -74,6 +138,7 @@ public class GlobalConfigServiceImpl implements IGlobalConfigService {
     public void setConfig(String configKey, String configValue) {
         log.info("设置配置: {} = {}", configKey, configValue);
         globalConfigMapper.insertOrUpdate(configKey, configValue, "系统设置");
+        publishAfterCommit(configKey);
     }
 
     @Override
@@ -87,28 +152,17 @@ public class GlobalConfigServiceImpl implements IGlobalConfigService {
     public void deleteConfig(String configKey) {
         log.info("删除配置: {}", configKey);
         globalConfigMapper.deleteByConfigKey(configKey);
+        publishAfterCommit(configKey);
     }
 
     @Override
     public boolean configExists(String configKey) {
-        return globalConfigMapper.existsByConfigKey(configKey);
-    }
-
-    @Override
-    public String getActiveProviderId() {
-        return globalConfigMapper.getActiveProviderId();
-    }
-
-    @Override
-    @Transactional
-    public void setActiveProviderId(String providerId) {
-        log.info("设置活跃Provider: {}", providerId);
-        globalConfigMapper.setActiveProviderId(providerId);
+        return snapshot.containsKey(configKey);
     }
 
     @Override
     public String getAppVersion() {
-        return globalConfigMapper.getAppVersion();
+        return getConfigValue(GlobalConfig.ConfigKeys.APP_VERSION);
     }
 
     @Override
@@ -139,4 +193,61 @@ public class GlobalConfigServiceImpl implements IGlobalConfigService {
 
         log.info("默认配置初始化完成");
     }
-}
\ No newline at end of file
+
+    /**
+     * 事务提交后刷新本地快照并通知其他实例
+     */
+    private void publishAfterCommit(String configKey) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(configKey);
+                }
+            });
+        } else {
+            publish(configKey);
+        }
+    }
+
+    private void publish(String configKey) {
+        reload(configKey);
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, configKey);
+        } catch (Exception e) {
+            log.warn("⚠️ [全局配置] 广播配置变更失败，其他实例将在下次全量加载时同步: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从数据库重新加载单个配置项（以数据库为准，避免并发写入时的顺序问题）
+     */
+    private synchronized void reload(String configKey) {
+        GlobalConfig config = globalConfigMapper.findByConfigKey(configKey);
+        Map<String, ConfigEntry> next = new HashMap<>(snapshot);
+        if (config != null) {
+            next.put(configKey, ConfigEntry.of(config.getConfigValue()));
+        } else {
+            next.remove(configKey);
+        }
+        snapshot = Map.copyOf(next);
+        log.debug("🔄 [全局配置] 已刷新配置: {}", configKey);
+    }
+
+    private synchronized void reloadAll() {
+        Map<String, ConfigEntry> next = new HashMap<>();
+        for (GlobalConfig config : globalConfigMapper.findAll()) {
+            next.put(config.getConfigKey(), ConfigEntry.of(config.getConfigValue()));
+        }
+        snapshot = Map.copyOf(next);
+        log.info("📦 [全局配置] 已加载 {} 项配置", next.size());
+    }
+
+    private void reloadAllQuietly() {
+        try {
+            reloadAll();
+        } catch (Exception e) {
+            log.warn("⚠️ [全局配置] 全量加载失败，沿用当前快照: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.llmctl.service.impl;
+
+import com.llmctl.entity.LoginLog;
+import com.llmctl.mapper.LoginLogMapper;
+import com.llmctl.service.ILoginAuditWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 登录审计日志写入实现类
+ *
+ * 单个后台线程阻塞等待日志，取到后把队列中已积压的日志一并取出（最多 500 条）合并写入；
+ * 入队时记录时间戳，写库延迟不影响日志时间。写库失败的批次只记录错误日志，不重试，避免拖垮登录链路
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LoginAuditWriterImpl implements ILoginAuditWriter {
+
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int BATCH_SIZE = 500;
+
+    private final LoginLogMapper loginLogMapper;
+
+    private final BlockingQueue<LoginLog> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean running = true;
+    private Thread worker;
+
+    @PostConstruct
+    public void start() {
+        worker = new Thread(this::runLoop, "login-audit-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 停机前把剩余日志写完
+        List<LoginLog> batch = new ArrayList<>(BATCH_SIZE);
+        while (queue.drainTo(batch, BATCH_SIZE) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    @Override
+    public void submit(LoginLog loginLog) {
+        if (loginLog.getCreatedAt() == null) {
+            loginLog.setCreatedAt(LocalDateTime.now());
+        }
+        if (!queue.offer(loginLog)) {
+            long total = dropped.incrementAndGet();
+            log.warn("⚠️ [登录审计] 队列已满，丢弃登录日志: {} (累计丢弃 {} 条)", loginLog.getUsername(), total);
+        }
+    }
+
+    private void runLoop() {
+        List<LoginLog> batch = new ArrayList<>(BATCH_SIZE);
+        while (running) {
+            try {
+                LoginLog first = queue.take();
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<LoginLog> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            loginLogMapper.batchInsert(batch);
+            log.debug("📝 [登录审计] 写入 {} 条登录日志", batch.size());
+        } catch (Exception e) {
+            log.error("❌ [登录审计] 批量写入 {} 条登录日志失败: {}", batch.size(), e.getMessage());
+        }
+    }
+}
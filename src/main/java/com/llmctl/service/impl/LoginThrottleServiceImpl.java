@@ -0,0 +1,184 @@
+package com.llmctl.service.impl;
+
+import com.llmctl.exception.AuthenticationException;
+import com.llmctl.exception.BusinessException;
+import com.llmctl.service.ILoginThrottleService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录限流与锁定服务实现类
+ *
+ * 失败记录使用 ZSET 滑动窗口（score 为毫秒时间戳），计数、裁剪窗口与加锁在同一个 Lua 脚本中原子完成；
+ * 锁定使用 SET NX PX，只有真正开始锁定的那次失败会返回 lockStarted，调用方据此才写一次 users 表。
+ * Redis 不可用时放行检查、失败记录返回 null，由调用方退回数据库计数
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LoginThrottleServiceImpl implements ILoginThrottleService {
+
+    private static final long WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+    private static final int MAX_USER_FAILURES = 5;
+    private static final long USER_LOCK_MINUTES = 30;
+
+    private static final int MAX_IP_FAILURES = 30;
+    private static final long IP_LOCK_MINUTES = 15;
+
+    private static final String USER_WINDOW_PREFIX = "login:fail:user:";
+    private static final String IP_WINDOW_PREFIX = "login:fail:ip:";
+    private static final String USER_LOCK_PREFIX = "login:lock:user:";
+    private static final String IP_LOCK_PREFIX = "login:lock:ip:";
+
+    /**
+     * KEYS: 用户窗口, IP窗口, 用户锁, IP锁
+     * ARGV: 当前毫秒, 窗口毫秒, 用户上限, IP上限, 用户锁定毫秒, IP锁定毫秒, 成员ID, 是否记录IP
+     * 返回: "用户失败次数,IP失败次数,是否新锁定用户,是否新锁定IP"（拼成字符串以使用类型化的脚本返回值）
+     */
+    private static final RedisScript<String> HIT_SCRIPT = new DefaultRedisScript<>("""
+            local now = tonumber(ARGV[1])
+            local window = tonumber(ARGV[2])
+            local function hit(key)
+                redis.call('ZREMRANGEBYSCORE', key, 0, now - window)
+                redis.call('ZADD', key, now, ARGV[7])
+                redis.call('PEXPIRE', key, window)
+                return redis.call('ZCARD', key)
+            end
+            local userCount = hit(KEYS[1])
+            local userLocked = 0
+            if userCount >= tonumber(ARGV[3]) and redis.call('SET', KEYS[3], now, 'PX', ARGV[5], 'NX') then
+                userLocked = 1
+            end
+            local ipCount = 0
+            local ipLocked = 0
+            if ARGV[8] == '1' then
+                ipCount = hit(KEYS[2])
+                if ipCount >= tonumber(ARGV[4]) and redis.call('SET', KEYS[4], now, 'PX', ARGV[6], 'NX') then
+                    ipLocked = 1
+                end
+            end
+            return userCount .. ',' .. ipCount .. ',' .. userLocked .. ',' .. ipLocked
+            """, String.class);
+
+    /**
+     * KEYS: 用户锁, IP锁
+     * 返回: "用户锁剩余毫秒,IP锁剩余毫秒"（未锁定时为负数）
+     */
+    private static final RedisScript<String> CHECK_SCRIPT = new DefaultRedisScript<>("""
+            return redis.call('PTTL', KEYS[1]) .. ',' .. redis.call('PTTL', KEYS[2])
+            """, String.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Override
+    public void checkAllowed(String username, String ipAddress) {
+        long[] ttl;
+        try {
+            ttl = parse(stringRedisTemplate.execute(CHECK_SCRIPT,
+                    Arrays.asList(USER_LOCK_PREFIX + normalize(username), IP_LOCK_PREFIX + ipKey(ipAddress))), 2);
+        } catch (Exception e) {
+            log.warn("⚠️ [登录限流] Redis检查失败，放行: {}", e.getMessage());
+            return;
+        }
+        if (ttl == null) {
+            return;
+        }
+        long ipTtl = ttl[1];
+        if (ipAddress != null && ipTtl > 0) {
+            log.warn("🚫 [登录限流] IP失败次数过多，拒绝登录: {}", ipAddress);
+            throw new BusinessException(429, "登录失败次数过多，请在 " + toMinutes(ipTtl) + " 分钟后重试");
+        }
+        long userTtl = ttl[0];
+        if (userTtl > 0) {
+            log.warn("🚫 [登录限流] 账户已锁定，拒绝登录: {}", username);
+            throw new AuthenticationException("账户已锁定，请在 " + toMinutes(userTtl) + " 分钟后重试");
+        }
+    }
+
+    @Override
+    public FailureResult recordFailure(String username, String ipAddress) {
+        String user = normalize(username);
+        String ip = ipKey(ipAddress);
+        long[] result;
+        try {
+            result = parse(stringRedisTemplate.execute(HIT_SCRIPT,
+                    Arrays.asList(USER_WINDOW_PREFIX + user, IP_WINDOW_PREFIX + ip,
+                            USER_LOCK_PREFIX + user, IP_LOCK_PREFIX + ip),
+                    String.valueOf(System.currentTimeMillis()),
+                    String.valueOf(WINDOW_MILLIS),
+                    String.valueOf(MAX_USER_FAILURES),
+                    String.valueOf(MAX_IP_FAILURES),
+                    String.valueOf(TimeUnit.MINUTES.toMillis(USER_LOCK_MINUTES)),
+                    String.valueOf(TimeUnit.MINUTES.toMillis(IP_LOCK_MINUTES)),
+                    UUID.randomUUID().toString(),
+                    ipAddress != null ? "1" : "0"), 4);
+        } catch (Exception e) {
+            log.warn("⚠️ [登录限流] Redis记录失败: {}", e.getMessage());
+            return null;
+        }
+        if (result == null) {
+            return null;
+        }
+        if (result[3] == 1) {
+            log.warn("🚫 [登录限流] IP失败次数达到上限，锁定 {} 分钟: {}", IP_LOCK_MINUTES, ipAddress);
+        }
+        return new FailureResult(result[0], result[2] == 1, USER_LOCK_MINUTES);
+    }
+
+    @Override
+    public void recordSuccess(String username) {
+        String user = normalize(username);
+        try {
+            stringRedisTemplate.delete(Arrays.asList(USER_WINDOW_PREFIX + user, USER_LOCK_PREFIX + user));
+        } catch (Exception e) {
+            log.warn("⚠️ [登录限流] Redis清理失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 用户名不区分大小写，避免通过大小写变体绕过计数
+     */
+    private static String normalize(String username) {
+        return username == null ? "" : username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String ipKey(String ipAddress) {
+        return ipAddress != null ? ipAddress : "unknown";
+    }
+
+    /**
+     * 解析脚本返回的逗号分隔整数，字段数不足时返回 null
+     */
+    private static long[] parse(String reply, int fields) {
+        if (reply == null) {
+            return null;
+        }
+        String[] parts = reply.split(",");
+        if (parts.length < fields) {
+            return null;
+        }
+        long[] values = new long[fields];
+        for (int i = 0; i < fields; i++) {
+            values[i] = Long.parseLong(parts[i]);
+        }
+        return values;
+    }
+
+    private static long toMinutes(long millis) {
+        return Math.max(1, (millis + 59_999) / 60_000);
+    }
+}
@@ -0,0 +1,166 @@
+package com.llmctl.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.llmctl.service.IMcpConfigFileWriter;
+import com.llmctl.utils.DataUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MCP 配置文件写入服务实现类
+ *
+ * 合并写入：每个配置文件最多只有一个写入任务在执行，期间到达的新内容会覆盖待写内容，
+ * 当前任务结束后再写入最新内容，中间版本直接丢弃
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class McpConfigFileWriterImpl implements IMcpConfigFileWriter {
+
+    private static final String MCP_CONFIG_FILE = ".mcp.json";
+    private static final int IO_THREADS = 2;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 待写入内容：配置文件路径 → 最新的 mcpServers JSON
+     */
+    private final Map<Path, String> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 最近一次写入（或确认无需写入）的文件状态，用于跳过未变化的写入
+     */
+    private final Map<Path, WrittenState> written = new ConcurrentHashMap<>();
+
+    private final ExecutorService ioExecutor = Executors.newFixedThreadPool(IO_THREADS, new ThreadFactory());
+
+    @Override
+    public void submit(String workingDir, String mcpServersJson) {
+        Path configPath = Paths.get(workingDir, MCP_CONFIG_FILE).toAbsolutePath().normalize();
+        if (pending.put(configPath, mcpServersJson) == null) {
+            ioExecutor.execute(() -> flush(configPath));
+        } else {
+            log.debug("MCP 配置写入已排队，合并到最新内容: {}", configPath);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        ioExecutor.shutdown();
+        if (!ioExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+            log.warn("MCP 配置写入线程池未能在 5 秒内结束，剩余待写入: {}", pending.size());
+        }
+    }
+
+    private void flush(Path configPath) {
+        String mcpServersJson = pending.get(configPath);
+        try {
+            write(configPath, mcpServersJson);
+        } catch (Exception e) {
+            log.error("❌ MCP 配置写入失败: {}, 错误: {}", configPath, e.getMessage(), e);
+        } finally {
+            // 写入期间有新内容到达时 remove 失败，继续写入最新内容
+            if (!pending.remove(configPath, mcpServersJson) && !ioExecutor.isShutdown()) {
+                ioExecutor.execute(() -> flush(configPath));
+            }
+        }
+    }
+
+    private void write(Path configPath, String mcpServersJson) throws IOException {
+        String serversHash = DataUtils.sha256Hex(mcpServersJson);
+        boolean exists = Files.exists(configPath);
+        FileTime modifiedTime = exists ? Files.getLastModifiedTime(configPath) : null;
+
+        WrittenState last = written.get(configPath);
+        if (last != null && exists && last.matches(serversHash, modifiedTime)) {
+            log.debug("MCP 配置未变化，跳过写入: {}", configPath);
+            return;
+        }
+
+        // 合并现有配置，保留 mcpServers 以外的键
+        byte[] existingBytes = exists ? Files.readAllBytes(configPath) : null;
+        ObjectNode config = null;
+        if (existingBytes != null && existingBytes.length > 0) {
+            JsonNode existing = objectMapper.readTree(existingBytes);
+            if (existing instanceof ObjectNode objectNode) {
+                config = objectNode;
+            }
+        }
+        if (config == null) {
+            config = objectMapper.createObjectNode();
+        }
+        config.set("mcpServers", objectMapper.readTree(mcpServersJson));
+
+        byte[] content = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(config);
+        if (existingBytes != null && Arrays.equals(existingBytes, content)) {
+            written.put(configPath, new WrittenState(serversHash, modifiedTime));
+            log.debug("MCP 配置文件内容一致，跳过写入: {}", configPath);
+            return;
+        }
+
+        Path parentDir = configPath.getParent();
+        Files.createDirectories(parentDir);
+        Path tempFile = Files.createTempFile(parentDir, MCP_CONFIG_FILE, ".tmp");
+        try {
+            Files.write(tempFile, content);
+            try {
+                Files.move(tempFile, configPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, configPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+        written.put(configPath, new WrittenState(serversHash, Files.getLastModifiedTime(configPath)));
+        log.info("✅ MCP 配置写入成功: {} ({} 字节)", configPath, content.length);
+    }
+
+    /**
+     * 已写入的 mcpServers 哈希和文件修改时间（文件被外部修改后重新比对）
+     */
+    private record WrittenState(String serversHash, FileTime modifiedTime) {
+
+        boolean matches(String hash, FileTime currentModifiedTime) {
+            return serversHash.equals(hash) && modifiedTime.equals(currentModifiedTime);
+        }
+    }
+
+    /**
+     * I/O 线程工厂：守护线程，便于在日志中识别
+     */
+    private static class ThreadFactory implements java.util.concurrent.ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "mcp-config-writer-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -1,15 +1,23 @@
 package com.llmctl.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.llmctl.context.UserContext;
+import com.llmctl.dto.McpConfigSnapshot;
 import com.llmctl.entity.McpServer;
 import com.llmctl.mapper.McpServerMapper;
+import com.llmctl.service.IConfigVersionService;
+import com.llmctl.service.IMcpTemplateCatalog;
 import com.llmctl.service.McpServerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.*;
 
@@ -26,6 +34,17 @@ import java.util.*;
 public class McpServerServiceImpl implements McpServerService {
 
     private final McpServerMapper mcpServerMapper;
+    private final IConfigVersionService configVersionService;
+    private final CacheManager cacheManager;
+    private final IMcpTemplateCatalog templateCatalog;
+    private final ObjectMapper objectMapper;
+
+    private static final String MCP_CONFIG_CACHE = "mcp:config";
+
+    /**
+     * 搜索结果最大数量
+     */
+    private static final int SEARCH_LIMIT = 50;
 
     @Override
     public List<McpServer> getAllServers() {
@@ -41,20 +60,44 @@ public class McpServerServiceImpl implements McpServerService {
 
     @Override
     public List<McpServer> getAllTemplates() {
-        log.info("查询所有 MCP 模板");
-        return mcpServerMapper.findAllTemplates();
+        log.debug("查询所有 MCP 模板（内存目录）");
+        return templateCatalog.getAllTemplates();
     }
 
     @Override
     public List<McpServer> getTemplatesByCategory(String category) {
-        log.info("查询分类为 {} 的 MCP 模板", category);
-        return mcpServerMapper.findTemplatesByCategory(category);
+        log.debug("查询分类为 {} 的 MCP 模板（内存目录）", category);
+        return templateCatalog.getTemplatesByCategory(category);
     }
 
     @Override
     public List<McpServer> searchServers(String keyword) {
-        log.info("搜索 MCP 服务器，关键词: {}", keyword);
-        return mcpServerMapper.searchByKeyword(keyword);
+        Long userId = getCurrentUserId();
+        log.info("搜索 MCP 服务器，关键词: {}, 用户 ID: {}", keyword, userId);
+
+        String trimmed = keyword == null ? "" : keyword.trim();
+        if (trimmed.isEmpty()) {
+            // 空关键词：返回全部可见服务器（与原 LIKE '%%' 行为一致）
+            List<McpServer> visible = new ArrayList<>(userId != null ? mcpServerMapper.findByUserId(userId) : List.of());
+            visible.addAll(templateCatalog.getAllTemplates());
+            return visible;
+        }
+
+        // 名称前缀（idx_name）与全文检索（ngram）各查一次，按 ID 去重后合并排序
+        List<McpServer> prefixMatches = mcpServerMapper.searchByNamePrefix(escapeLike(trimmed), userId, SEARCH_LIMIT);
+        List<McpServer> fulltextMatches = mcpServerMapper.searchByFulltext(trimmed, userId, SEARCH_LIMIT);
+
+        Map<Long, McpServer> ranked = new LinkedHashMap<>();
+        prefixMatches.stream()
+                .filter(server -> server.getName().equalsIgnoreCase(trimmed))
+                .forEach(server -> ranked.put(server.getId(), server));
+        prefixMatches.forEach(server -> ranked.putIfAbsent(server.getId(), server));
+        fulltextMatches.forEach(server -> ranked.putIfAbsent(server.getId(), server));
+
+        List<McpServer> results = ranked.values().stream().limit(SEARCH_LIMIT).toList();
+        log.debug("搜索 MCP 服务器完成，前缀匹配: {}, 全文匹配: {}, 返回: {}",
+                prefixMatches.size(), fulltextMatches.size(), results.size());
+        return results;
     }
 
     @Override
@@ -70,14 +113,12 @@ public class McpServerServiceImpl implements McpServerService {
     }
 
     /**
-     * ✅ 清除所有 MCP 配置缓存（创建时）
+     * ✅ 重建该用户的 MCP 配置缓存（创建时）
      */
     @Override
     @Transactional
-    @CacheEvict(value = "mcp:config", allEntries = true)
     public McpServer createServer(McpServer mcpServer) {
         log.info("创建 MCP 服务器: {}", mcpServer.getName());
-        log.info("🔄 [缓存清除] 创建 MCP Server 时清除所有 MCP 配置缓存");
 
         // 检查名称是否已存在（用户范围内）
         McpServer existingServer = mcpServerMapper.findByUserIdAndName(mcpServer.getUserId(), mcpServer.getName());
@@ -94,6 +135,8 @@ public class McpServerServiceImpl implements McpServerService {
         }
 
         mcpServerMapper.insert(mcpServer);
+        refreshMcpConfig(mcpServer.getUserId());
+        configVersionService.bumpVersion(mcpServer.getUserId());
         log.info("MCP 服务器创建成功，ID: {}", mcpServer.getId());
         return mcpServer;
     }
@@ -103,8 +146,11 @@ public class McpServerServiceImpl implements McpServerService {
     public McpServer createFromTemplate(Long templateId, Long userId, Map<String, Object> customConfig) {
         log.info("从模板创建 MCP 服务器，模板 ID: {}, 用户 ID: {}", templateId, userId);
 
-        // 获取模板
-        McpServer template = mcpServerMapper.findById(templateId);
+        // 获取模板（优先内存目录，未命中时回退数据库）
+        McpServer template = templateCatalog.getTemplate(templateId);
+        if (template == null) {
+            template = mcpServerMapper.findById(templateId);
+        }
         if (template == null || !template.getIsTemplate()) {
             throw new IllegalArgumentException("无效的模板 ID: " + templateId);
         }
@@ -142,19 +188,19 @@ public class McpServerServiceImpl implements McpServerService {
         }
 
         mcpServerMapper.insert(newServer);
+        refreshMcpConfig(userId);
+        configVersionService.bumpVersion(userId);
         log.info("从模板创建 MCP 服务器成功，ID: {}", newServer.getId());
         return newServer;
     }
 
     /**
-     * ✅ 清除所有 MCP 配置缓存（更新时）
+     * ✅ 重建该用户的 MCP 配置缓存（更新时）
      */
     @Override
     @Transactional
-    @CacheEvict(value = "mcp:config", allEntries = true)
     public McpServer updateServer(McpServer mcpServer) {
         log.info("更新 MCP 服务器，ID: {}", mcpServer.getId());
-        log.info("🔄 [缓存清除] 更新 MCP Server 时清除所有 MCP 配置缓存");
 
         // 检查是否存在
         McpServer existingServer = mcpServerMapper.findById(mcpServer.getId());
@@ -168,6 +214,8 @@ public class McpServerServiceImpl implements McpServerService {
             // 模板只允许修改启用状态
             existingServer.setEnabled(mcpServer.getEnabled());
             mcpServerMapper.update(existingServer);
+            refreshTemplateCatalogAfterCommit();
+            configVersionService.bumpVersion(existingServer.getUserId());
             return existingServer;
         }
 
@@ -217,19 +265,19 @@ public class McpServerServiceImpl implements McpServerService {
         }
 
         mcpServerMapper.update(mcpServer);
+        refreshMcpConfig(mcpServer.getUserId());
+        configVersionService.bumpVersion(mcpServer.getUserId());
         log.info("MCP 服务器更新成功，ID: {}", mcpServer.getId());
         return mcpServer;
     }
 
     /**
-     * ✅ 清除所有 MCP 配置缓存（删除时）
+     * ✅ 重建该用户的 MCP 配置缓存（删除时）
      */
     @Override
     @Transactional
-    @CacheEvict(value = "mcp:config", allEntries = true)
     public void deleteServer(Long id) {
         log.info("删除 MCP 服务器，ID: {}", id);
-        log.info("🔄 [缓存清除] 删除 MCP Server 时清除所有 MCP 配置缓存");
 
         // 检查是否存在
         McpServer existingServer = mcpServerMapper.findById(id);
@@ -244,6 +292,8 @@ public class McpServerServiceImpl implements McpServerService {
 
         int deletedRows = mcpServerMapper.deleteById(id);
         if (deletedRows > 0) {
+            refreshMcpConfig(existingServer.getUserId());
+            configVersionService.bumpVersion(existingServer.getUserId());
             log.info("MCP 服务器删除成功，ID: {}", id);
         } else {
             log.warn("MCP 服务器删除失败，可能已被删除，ID: {}", id);
@@ -254,101 +304,222 @@ public class McpServerServiceImpl implements McpServerService {
     @Transactional
     public void toggleEnabled(Long id, Boolean enabled) {
         log.info("切换 MCP 服务器启用状态，ID: {}, enabled: {}", id, enabled);
+        McpServer server = mcpServerMapper.findById(id);
         mcpServerMapper.updateEnabled(id, enabled);
+        if (server != null && !Boolean.TRUE.equals(server.getIsTemplate())) {
+            refreshMcpConfig(server.getUserId());
+            configVersionService.bumpVersion(server.getUserId());
+        }
     }
 
     @Override
     @Transactional
-    public void batchToggleEnabled(List<Long> ids, Boolean enabled) {
-        log.info("批量切换 MCP 服务器启用状态，数量: {}, enabled: {}", ids.size(), enabled);
-        ids.forEach(id -> mcpServerMapper.updateEnabled(id, enabled));
+    public Map<Long, BatchOutcome> batchToggleEnabled(List<Long> ids, Boolean enabled) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("ID 列表不能为空");
+        }
+        Long userId = getCurrentUserId();
+        log.info("批量切换 MCP 服务器启用状态，数量: {}, enabled: {}, 用户 ID: {}", ids.size(), enabled, userId);
+
+        Map<Long, BatchOutcome> outcomes = classifyForBatch(ids, userId);
+        if (outcomes.containsValue(BatchOutcome.SUCCESS)) {
+            int updatedRows = mcpServerMapper.batchUpdateEnabled(outcomes.keySet(), userId, enabled);
+            log.info("批量切换启用状态完成，影响行数: {}", updatedRows);
+            refreshMcpConfig(userId);
+            configVersionService.bumpVersion(userId);
+        }
+        return outcomes;
     }
 
     @Override
     @Transactional
-    public void batchDeleteServers(List<Long> ids) {
-        log.info("批量删除 MCP 服务器，数量: {}", ids.size());
+    public Map<Long, BatchOutcome> batchDeleteServers(List<Long> ids) {
         if (ids == null || ids.isEmpty()) {
             throw new IllegalArgumentException("ID 列表不能为空");
         }
+        Long userId = getCurrentUserId();
+        log.info("批量删除 MCP 服务器，数量: {}, 用户 ID: {}", ids.size(), userId);
+
+        Map<Long, BatchOutcome> outcomes = classifyForBatch(ids, userId);
+        if (outcomes.containsValue(BatchOutcome.SUCCESS)) {
+            int deletedRows = mcpServerMapper.batchDeleteByIds(outcomes.keySet(), userId);
+            log.info("批量删除 MCP 服务器完成，删除行数: {}", deletedRows);
+            refreshMcpConfig(userId);
+            configVersionService.bumpVersion(userId);
+        }
+        return outcomes;
+    }
 
-        // 逐个删除，确保只删除非模板的 MCP 服务器
-        for (Long id : ids) {
-            McpServer server = mcpServerMapper.findById(id);
-            if (server == null) {
-                log.warn("MCP 服务器不存在，ID: {}", id);
-            } else if (Boolean.TRUE.equals(server.getIsTemplate())) {
-                log.warn("不允许删除模板 MCP 服务器，ID: {}", id);
-            } else {
-                mcpServerMapper.deleteById(id);
-                log.info("删除 MCP 服务器成功，ID: {}", id);
+    /**
+     * 一次查询判定批量操作中每个 ID 的处理结果
+     * 批量 SQL 自身按 user_id 和 is_template 过滤，这里只用于向调用方报告逐项结果
+     *
+     * @param ids    MCP 服务器 ID 列表
+     * @param userId 当前用户 ID
+     * @return 每个 ID 的处理结果（保持请求顺序，重复 ID 只保留一次）
+     */
+    private Map<Long, BatchOutcome> classifyForBatch(List<Long> ids, Long userId) {
+        Map<Long, BatchOutcome> outcomes = new LinkedHashMap<>();
+        ids.forEach(id -> outcomes.put(id, BatchOutcome.NOT_FOUND));
+
+        for (McpServer server : mcpServerMapper.findOwnershipByIds(outcomes.keySet())) {
+            if (Boolean.TRUE.equals(server.getIsTemplate())) {
+                outcomes.put(server.getId(), BatchOutcome.TEMPLATE);
+            } else if (userId != null && userId.equals(server.getUserId())) {
+                outcomes.put(server.getId(), BatchOutcome.SUCCESS);
             }
         }
+        return outcomes;
     }
 
     /**
-     * ✅ Redis 缓存优化：MCP 配置缓存
-     * 缓存策略：15分钟 TTL，MCP Server 变更频率中等
-     * 缓存 Key：mcp:config:{providerId}:{cliType}:{clientOs}
-     * 清除时机：创建、更新、删除 MCP Server 时清除所有 MCP 配置缓存
+     * 生成 MCP 配置（全局模式：当前用户所有启用的 MCP 服务器）
+     * 输出只与用户和客户端系统有关，providerId / cliType 仅用于日志
      */
     @Override
-    @Cacheable(value = "mcp:config",
-               key = "#providerId + '-' + #cliType.replace(' ', '-') + '-' + (#clientOs != null ? #clientOs : 'default')",
-               unless = "#result == null || #result.isEmpty()")
     public Map<String, Object> generateMcpConfig(String providerId, String cliType, String clientOs) {
         log.info("生成 MCP 配置（全局模式），Provider ID: {}, CLI 类型: {}, 客户端系统: {}", providerId, cliType, clientOs);
+        String json = getMcpServersJson(getCurrentUserId(), clientOs);
+        try {
+            return objectMapper.readValue(json, new TypeReference<LinkedHashMap<String, Object>>() {});
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("MCP 配置解析失败: " + e.getMessage(), e);
+        }
+    }
 
-        // 全局模式：获取当前用户所有启用的 MCP 服务器
-        Long userId = getCurrentUserId();
+    @Override
+    public String getMcpServersJson(Long userId, String clientOs) {
+        boolean isClientWindows = isClientWindows(clientOs);
+        log.debug("客户端系统判断: clientOs={}, isClientWindows={}", clientOs, isClientWindows);
+        return getMcpConfigSnapshot(userId).variant(isClientWindows);
+    }
+
+    /**
+     * ✅ Redis 缓存优化：MCP 配置缓存
+     * 缓存策略：15分钟 TTL，MCP Server 变更频率中等
+     * 缓存 Key：mcp:config:{userId}，一个条目同时包含 Windows / POSIX 两种变体
+     * 更新时机：该用户的 MCP Server 变更时重建（事务提交后写入），不影响其他用户
+     */
+    @Override
+    public McpConfigSnapshot getMcpConfigSnapshot(Long userId) {
+        Cache cache = cacheManager.getCache(MCP_CONFIG_CACHE);
+        if (cache != null) {
+            try {
+                McpConfigSnapshot cached = cache.get(userId, McpConfigSnapshot.class);
+                if (cached != null) {
+                    return cached;
+                }
+            } catch (Exception e) {
+                log.warn("⚠️ [MCP缓存] 读取缓存失败，降级到数据库查询: {}", e.getMessage());
+            }
+        }
+
+        McpConfigSnapshot snapshot = buildSnapshot(userId);
+        if (cache != null) {
+            // putIfAbsent：避免读路径的旧快照覆盖并发变更刚写入的新快照
+            cache.putIfAbsent(userId, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 重建用户的 MCP 配置快照并写入缓存
+     * 在写事务内调用：快照读取本事务已写入的数据，事务感知缓存在提交后才真正写入 Redis
+     *
+     * @param userId 用户 ID
+     */
+    private void refreshMcpConfig(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        Cache cache = cacheManager.getCache(MCP_CONFIG_CACHE);
+        if (cache == null) {
+            return;
+        }
+        McpConfigSnapshot snapshot = buildSnapshot(userId);
+        cache.put(userId, snapshot);
+        log.info("🔄 [MCP缓存] 重建用户 MCP 配置缓存，用户: {}, 服务器数量: {}", userId, snapshot.getServerCount());
+    }
+
+    /**
+     * 事务提交后重新加载模板目录（模板被修改时调用）
+     */
+    private void refreshTemplateCatalogAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    templateCatalog.refresh();
+                }
+            });
+        } else {
+            templateCatalog.refresh();
+        }
+    }
+
+    /**
+     * 查询用户启用的 MCP 服务器并生成两种系统变体的 mcpServers JSON
+     */
+    private McpConfigSnapshot buildSnapshot(Long userId) {
         List<McpServer> enabledServers = mcpServerMapper.findByUserId(userId).stream()
-                .filter(McpServer::getEnabled)
+                .filter(server -> Boolean.TRUE.equals(server.getEnabled()))
                 .toList();
 
-        Map<String, Object> mcpConfig = new LinkedHashMap<>();
+        Map<String, Object> windowsConfig = new LinkedHashMap<>();
+        Map<String, Object> posixConfig = new LinkedHashMap<>();
+        for (McpServer server : enabledServers) {
+            windowsConfig.put(server.getName(), buildServerConfig(server, true));
+            posixConfig.put(server.getName(), buildServerConfig(server, false));
+        }
 
-        // 确定是否为 Windows 系统
-        boolean isClientWindows = isClientWindows(clientOs);
-        log.info("客户端系统判断: clientOs={}, isClientWindows={}", clientOs, isClientWindows);
+        try {
+            log.info("✅ [MCP缓存] 查询数据库生成 MCP 配置，用户: {}, 包含 {} 个服务器", userId, enabledServers.size());
+            return new McpConfigSnapshot(
+                    objectMapper.writeValueAsString(windowsConfig),
+                    objectMapper.writeValueAsString(posixConfig),
+                    enabledServers.size());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("MCP 配置序列化失败: " + e.getMessage(), e);
+        }
+    }
 
-        for (McpServer server : enabledServers) {
-            // 构建服务器配置
-            Map<String, Object> serverConfig = new LinkedHashMap<>();
-
-            // ✅ Windows 系统：对 npx/npm 命令进行包装
-            String command = server.getCommand();
-            List<String> args = server.getArgs();
-
-            if (isClientWindows && needsCmdWrapper(command)) {
-                // Windows 上需要 cmd /c 包装
-                serverConfig.put("command", "cmd");
-
-                List<String> wrappedArgs = new ArrayList<>();
-                wrappedArgs.add("/c");
-                wrappedArgs.add(command);
-                if (args != null && !args.isEmpty()) {
-                    wrappedArgs.addAll(args);
-                }
-                serverConfig.put("args", wrappedArgs);
-
-                log.debug("Windows 系统：将命令 {} 包装为 cmd /c {}", command, command);
-            } else {
-                // 非 Windows 或不需要包装的命令
-                serverConfig.put("command", command);
-                if (args != null && !args.isEmpty()) {
-                    serverConfig.put("args", args);
-                }
+    /**
+     * 构建单个服务器配置
+     *
+     * @param server          MCP 服务器
+     * @param isClientWindows 是否为 Windows 客户端
+     * @return 服务器配置
+     */
+    private Map<String, Object> buildServerConfig(McpServer server, boolean isClientWindows) {
+        Map<String, Object> serverConfig = new LinkedHashMap<>();
+
+        // ✅ Windows 系统：对 npx/npm 命令进行包装
+        String command = server.getCommand();
+        List<String> args = server.getArgs();
+
+        if (isClientWindows && needsCmdWrapper(command)) {
+            // Windows 上需要 cmd /c 包装
+            serverConfig.put("command", "cmd");
+
+            List<String> wrappedArgs = new ArrayList<>();
+            wrappedArgs.add("/c");
+            wrappedArgs.add(command);
+            if (args != null && !args.isEmpty()) {
+                wrappedArgs.addAll(args);
             }
-
-            if (server.getEnv() != null && !server.getEnv().isEmpty()) {
-                serverConfig.put("env", server.getEnv());
+            serverConfig.put("args", wrappedArgs);
+        } else {
+            // 非 Windows 或不需要包装的命令
+            serverConfig.put("command", command);
+            if (args != null && !args.isEmpty()) {
+                serverConfig.put("args", args);
             }
-
-            mcpConfig.put(server.getName(), serverConfig);
         }
 
-        log.info("✅ [MCP缓存] 查询数据库生成 MCP 配置（全局模式），包含 {} 个服务器", mcpConfig.size());
-        return mcpConfig;
+        if (server.getEnv() != null && !server.getEnv().isEmpty()) {
+            serverConfig.put("env", server.getEnv());
+        }
+        return serverConfig;
     }
 
     /**
@@ -358,6 +529,15 @@ public class McpServerServiceImpl implements McpServerService {
         return UserContext.getUserId();
     }
 
+    /**
+     * 转义 LIKE 通配符，避免关键词中的 % 和 _ 被当作通配符
+     */
+    private String escapeLike(String keyword) {
+        return keyword.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+
     /**
      * 检查客户端是否为 Windows 系统
      * 优先使用客户端传递的参数，如果未传递则回退到服务器系统检测
@@ -0,0 +1,183 @@
+package com.llmctl.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmctl.entity.McpServer;
+import com.llmctl.mapper.McpServerMapper;
+import com.llmctl.service.IMcpTemplateCatalog;
+import com.llmctl.utils.DataUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * MCP 模板目录实现类
+ *
+ * 目录以不可变快照的形式整体发布（volatile 引用替换），读路径不加锁、不访问数据库；
+ * 距上次检查超过 {@link #CHECK_INTERVAL_MILLIS} 时由一个请求线程查询模板指纹，变化则重新加载
+ *
+ * @author LLMctl Team
+ * @since v2.3.2
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class McpTemplateCatalogImpl implements IMcpTemplateCatalog {
+
+    /**
+     * 模板指纹检查间隔
+     */
+    private static final long CHECK_INTERVAL_MILLIS = 60_000L;
+
+    private static final String SUCCESS_MESSAGE = "查询成功";
+
+    private final McpServerMapper mcpServerMapper;
+    private final ObjectMapper objectMapper;
+
+    private volatile Catalog catalog;
+    private final AtomicLong lastCheckMillis = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            // 启动时数据库不可用不阻止应用启动，首次访问时再加载
+            log.warn("⚠️ [MCP模板目录] 启动加载失败，将在首次访问时重试: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public List<McpServer> getAllTemplates() {
+        return current().templates();
+    }
+
+    @Override
+    public List<McpServer> getTemplatesByCategory(String category) {
+        return current().byCategory().getOrDefault(category, List.of());
+    }
+
+    @Override
+    public McpServer getTemplate(Long id) {
+        return current().byId().get(id);
+    }
+
+    @Override
+    public SerializedResponse getAllTemplatesResponse() {
+        return current().allResponse();
+    }
+
+    @Override
+    public SerializedResponse getTemplatesByCategoryResponse(String category) {
+        Catalog snapshot = current();
+        SerializedResponse response = snapshot.categoryResponses().get(category);
+        return response != null ? response : snapshot.emptyResponse();
+    }
+
+    @Override
+    public synchronized void refresh() {
+        String fingerprint = mcpServerMapper.findTemplateFingerprint();
+        List<McpServer> templates = mcpServerMapper.findAllTemplates();
+        catalog = buildCatalog(fingerprint, templates);
+        lastCheckMillis.set(System.currentTimeMillis());
+        log.info("✅ [MCP模板目录] 加载完成，模板数量: {}, 分类数量: {}, 指纹: {}",
+                templates.size(), catalog.byCategory().size(), fingerprint);
+    }
+
+    @Override
+    public synchronized boolean refreshIfChanged() {
+        lastCheckMillis.set(System.currentTimeMillis());
+        Catalog snapshot = catalog;
+        String fingerprint = mcpServerMapper.findTemplateFingerprint();
+        if (snapshot != null && Objects.equals(snapshot.fingerprint(), fingerprint)) {
+            return false;
+        }
+        log.info("🔄 [MCP模板目录] 模板指纹变化，重新加载: {} -> {}",
+                snapshot != null ? snapshot.fingerprint() : null, fingerprint);
+        refresh();
+        return true;
+    }
+
+    /**
+     * 获取当前目录快照；未加载时同步加载，超过检查间隔时由一个线程检查指纹
+     */
+    private Catalog current() {
+        Catalog snapshot = catalog;
+        if (snapshot == null) {
+            synchronized (this) {
+                if (catalog == null) {
+                    refresh();
+                }
+                return catalog;
+            }
+        }
+
+        long last = lastCheckMillis.get();
+        long now = System.currentTimeMillis();
+        if (now - last > CHECK_INTERVAL_MILLIS && lastCheckMillis.compareAndSet(last, now)) {
+            try {
+                refreshIfChanged();
+                return catalog;
+            } catch (Exception e) {
+                log.warn("⚠️ [MCP模板目录] 指纹检查失败，继续使用当前目录: {}", e.getMessage());
+            }
+        }
+        return snapshot;
+    }
+
+    private Catalog buildCatalog(String fingerprint, List<McpServer> templates) {
+        List<McpServer> all = List.copyOf(templates);
+
+        // 分类索引保持查询顺序（按分类、名称排序）
+        Map<String, List<McpServer>> grouped = all.stream()
+                .filter(template -> template.getTemplateCategory() != null)
+                .collect(Collectors.groupingBy(McpServer::getTemplateCategory, LinkedHashMap::new, Collectors.toList()));
+        Map<String, List<McpServer>> byCategory = new LinkedHashMap<>();
+        Map<String, SerializedResponse> categoryResponses = new HashMap<>();
+        grouped.forEach((category, list) -> {
+            byCategory.put(category, List.copyOf(list));
+            categoryResponses.put(category, serialize(list));
+        });
+
+        Map<Long, McpServer> byId = all.stream()
+                .collect(Collectors.toUnmodifiableMap(McpServer::getId, template -> template));
+
+        return new Catalog(fingerprint, all, Collections.unmodifiableMap(byCategory), byId,
+                serialize(all), Collections.unmodifiableMap(categoryResponses), serialize(List.of()));
+    }
+
+    /**
+     * 按控制器的响应结构（code / message / data）预先序列化
+     */
+    private SerializedResponse serialize(List<McpServer> templates) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("code", 200);
+        response.put("message", SUCCESS_MESSAGE);
+        response.put("data", templates);
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            String etag = "\"tpl-" + DataUtils.sha256Hex(new String(body, StandardCharsets.UTF_8)).substring(0, 32) + "\"";
+            return new SerializedResponse(body, etag);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("MCP 模板序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 不可变的模板目录快照
+     */
+    private record Catalog(String fingerprint,
+                           List<McpServer> templates,
+                           Map<String, List<McpServer>> byCategory,
+                           Map<Long, McpServer> byId,
+                           SerializedResponse allResponse,
+                           Map<String, SerializedResponse> categoryResponses,
+                           SerializedResponse emptyResponse) {
+    }
+}
@@ -0,0 +1,136 @@
+package com.llmctl.service.impl;
+
+import com.llmctl.exception.BusinessException;
+import com.llmctl.exception.ServiceException;
+import com.llmctl.mapper.UserMapper;
+import com.llmctl.service.IPasswordHashingService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 密码哈希服务实现类
+ *
+ * 线程数默认等于 CPU 核数（BCrypt 是纯 CPU 计算，更多线程只会增加排队）；
+ * 等待队列有界，满了立即拒绝，请求线程等待结果也有超时上限
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PasswordHashingServiceImpl implements IPasswordHashingService {
+
+    private final UserMapper userMapper;
+
+    @Value("${auth.password.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    @Value("${auth.password.hashing-threads:0}")
+    private int hashingThreads;
+
+    @Value("${auth.password.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${auth.password.timeout-millis:5000}")
+    private long timeoutMillis;
+
+    private BCryptPasswordEncoder encoder;
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        encoder = new BCryptPasswordEncoder(bcryptStrength);
+        int threads = hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "password-hashing-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("🔐 [密码哈希] BCrypt强度: {}, 线程数: {}, 队列容量: {}", bcryptStrength, threads, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public String encode(String rawPassword) {
+        return await(() -> encoder.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(String rawPassword, String passwordHash) {
+        if (rawPassword == null || passwordHash == null) {
+            return false;
+        }
+        return await(() -> encoder.matches(rawPassword, passwordHash));
+    }
+
+    @Override
+    public boolean needsRehash(String passwordHash) {
+        return passwordHash != null && encoder.upgradeEncoding(passwordHash);
+    }
+
+    @Override
+    public void rehashInBackground(Long userId, String rawPassword, String oldHash) {
+        try {
+            executor.execute(() -> {
+                try {
+                    if (userMapper.updatePasswordIfMatch(userId, oldHash, encoder.encode(rawPassword)) > 0) {
+                        log.info("🔐 [密码哈希] 已升级密码哈希强度: userId={}", userId);
+                    } else {
+                        log.info("密码已被修改，跳过哈希升级: userId={}", userId);
+                    }
+                } catch (Exception e) {
+                    log.warn("⚠️ [密码哈希] 升级密码哈希失败: userId={}, 错误: {}", userId, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("密码哈希线程池繁忙，跳过哈希升级: userId={}", userId);
+        }
+    }
+
+    private <T> T await(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("⚠️ [密码哈希] 线程池已满，拒绝请求");
+            throw new BusinessException(429, "请求过多，请稍后重试");
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("⚠️ [密码哈希] 等待超时 ({} ms)", timeoutMillis);
+            throw new BusinessException(429, "请求过多，请稍后重试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("密码校验", "请求被中断");
+        } catch (ExecutionException e) {
+            throw new ServiceException("密码校验", e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        }
+    }
+}
@@ -8,7 +8,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Provider MCP 映射服务实现类
@@ -98,10 +99,12 @@ public class ProviderMcpMappingServiceImpl implements ProviderMcpMappingService
         log.info("批量保存 Provider MCP 映射，Provider ID: {}, CLI 类型: {}, 数量: {}",
                 providerId, cliType, mappings.size());
 
-        // 删除旧的映射
-        mappingMapper.deleteByProviderAndCli(providerId, cliType);
-
-        // 创建新的映射
+        // 以 MCP 服务器 ID 为键与现有映射比对（同一服务器重复提交时以最后一条为准）
+        Map<Long, ProviderMcpMapping> existingByServer = new HashMap<>();
+        for (ProviderMcpMapping existing : mappingMapper.findByProviderAndCli(providerId, cliType)) {
+            existingByServer.put(existing.getMcpServerId(), existing);
+        }
+        Map<Long, ProviderMcpMapping> incomingByServer = new LinkedHashMap<>();
         for (ProviderMcpMapping mapping : mappings) {
             mapping.setProviderId(providerId);
             mapping.setCliType(cliType);
@@ -113,11 +116,26 @@ public class ProviderMcpMappingServiceImpl implements ProviderMcpMappingService
             if (mapping.getPriority() == null) {
                 mapping.setPriority(0);
             }
+            incomingByServer.put(mapping.getMcpServerId(), mapping);
+        }
+
+        List<ProviderMcpMapping> changedMappings = incomingByServer.values().stream()
+                .filter(mapping -> !sameContent(existingByServer.get(mapping.getMcpServerId()), mapping))
+                .toList();
+        List<Long> staleIds = existingByServer.values().stream()
+                .filter(existing -> !incomingByServer.containsKey(existing.getMcpServerId()))
+                .map(ProviderMcpMapping::getId)
+                .toList();
 
-            mappingMapper.insert(mapping);
+        if (!staleIds.isEmpty()) {
+            mappingMapper.deleteByProviderAndCliAndIds(providerId, cliType, staleIds);
+        }
+        if (!changedMappings.isEmpty()) {
+            mappingMapper.batchUpsert(changedMappings);
         }
 
-        log.info("批量保存 Provider MCP 映射成功");
+        log.info("批量保存 Provider MCP 映射成功，写入: {}, 删除: {}, 未变化: {}",
+                changedMappings.size(), staleIds.size(), incomingByServer.size() - changedMappings.size());
     }
 
     @Override
@@ -132,13 +150,19 @@ public class ProviderMcpMappingServiceImpl implements ProviderMcpMappingService
     public void batchUpdatePriority(List<ProviderMcpMapping> mappings) {
         log.info("批量更新 Provider MCP 映射优先级，数量: {}", mappings.size());
 
+        // 同一 ID 重复提交时以最后一条为准
+        Map<Long, ProviderMcpMapping> byId = new LinkedHashMap<>();
         for (ProviderMcpMapping mapping : mappings) {
             if (mapping.getId() != null && mapping.getPriority() != null) {
-                mappingMapper.updatePriority(mapping.getId(), mapping.getPriority());
+                byId.put(mapping.getId(), mapping);
             }
         }
+        if (byId.isEmpty()) {
+            return;
+        }
 
-        log.info("批量更新 Provider MCP 映射优先级成功");
+        int affectedRows = mappingMapper.batchUpdatePriority(new ArrayList<>(byId.values()));
+        log.info("批量更新 Provider MCP 映射优先级成功，影响行数: {}", affectedRows);
     }
 
     @Override
@@ -147,31 +171,41 @@ public class ProviderMcpMappingServiceImpl implements ProviderMcpMappingService
         log.info("批量关联 MCP 服务器到 Provider，Provider ID: {}, CLI 类型: {}, 数量: {}",
                 providerId, cliType, mcpServerIds.size());
 
-        // 为每个 MCP 服务器创建关联
-        for (Long mcpServerId : mcpServerIds) {
-            // 检查是否已存在相同的关联
-            List<ProviderMcpMapping> existingMappings = mappingMapper.findByProviderAndCli(providerId, cliType);
-            boolean alreadyExists = existingMappings.stream()
-                    .anyMatch(m -> m.getMcpServerId().equals(mcpServerId));
+        // 一次查询已存在的关联，只为新的 MCP 服务器创建关联
+        Set<Long> associatedIds = mappingMapper.findByProviderAndCli(providerId, cliType).stream()
+                .map(ProviderMcpMapping::getMcpServerId)
+                .collect(Collectors.toSet());
 
-            if (alreadyExists) {
+        List<ProviderMcpMapping> newMappings = new ArrayList<>();
+        for (Long mcpServerId : new LinkedHashSet<>(mcpServerIds)) {
+            if (associatedIds.contains(mcpServerId)) {
                 log.info("MCP 服务器 {} 已关联到 Provider {} (CLI: {})，跳过",
                         mcpServerId, providerId, cliType);
                 continue;
             }
 
-            // 创建新的关联
             ProviderMcpMapping mapping = new ProviderMcpMapping();
             mapping.setProviderId(providerId);
             mapping.setCliType(cliType);
             mapping.setMcpServerId(mcpServerId);
             mapping.setEnabled(true);
             mapping.setPriority(0);
+            newMappings.add(mapping);
+        }
 
-            mappingMapper.insert(mapping);
-            log.info("成功关联 MCP 服务器 {} 到 Provider {}", mcpServerId, providerId);
+        if (!newMappings.isEmpty()) {
+            mappingMapper.batchUpsert(newMappings);
         }
+        log.info("批量关联 MCP 服务器成功，新增关联: {}", newMappings.size());
+    }
 
-        log.info("批量关联 MCP 服务器成功");
+    /**
+     * 判断现有映射与提交的映射内容是否一致（一致则无需写入）
+     */
+    private boolean sameContent(ProviderMcpMapping existing, ProviderMcpMapping incoming) {
+        return existing != null
+                && Objects.equals(existing.getEnabled(), incoming.getEnabled())
+                && Objects.equals(existing.getPriority(), incoming.getPriority())
+                && Objects.equals(existing.getCustomConfig(), incoming.getCustomConfig());
     }
 }
@@ -10,11 +10,16 @@ import com.llmctl.entity.Token;
 import com.llmctl.mapper.ProviderMapper;
 import com.llmctl.mapper.ProviderConfigMapper;
 import com.llmctl.mapper.TokenMapper;
+import com.llmctl.service.IConfigVersionService;
 import com.llmctl.service.ProviderService;
 import com.llmctl.service.TokenService;
 import com.llmctl.exception.ServiceException;
+import com.llmctl.utils.DataUtils;
+import com.llmctl.utils.IdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
@@ -24,10 +29,11 @@ import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 /**
@@ -47,6 +53,8 @@ public class ProviderServiceImpl implements ProviderService {
     private final TokenMapper tokenMapper;
     private final TokenService tokenService;
     private final ObjectMapper objectMapper;
+    private final CacheManager cacheManager;
+    private final IConfigVersionService configVersionService;
 
     /**
      * ✅ Redis 缓存优化：Provider 列表缓存
@@ -63,9 +71,7 @@ public class ProviderServiceImpl implements ProviderService {
         // 使用关联查询一次获取完整数据
         List<Provider> providers = providerMapper.findAllWithConfigs(userId);
         log.info("✅ [Provider缓存] 查询数据库获取Provider列表，用户: {}, 数量: {}", userId, providers.size());
-        return providers.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertToDTOs(providers);
     }
 
     @Override
@@ -96,24 +102,25 @@ public class ProviderServiceImpl implements ProviderService {
         return providerMapper.findByIdWithConfigs(id, userId);
     }
 
+    /**
+     * ✅ 优先复用 provider:list 缓存，在内存中按类型过滤（零查询）
+     * 缓存未命中时通过 provider_types 索引表一次关联查询 Provider 及其配置
+     */
     @Override
     public List<ProviderDTO> getProvidersByType(String type) {
         Long userId = UserContext.getUserId();
         log.debug("根据类型获取Provider列表: {}, 用户ID: {}", type, userId);
 
-        // 注意：findByType 只返回包含该type的Provider，但不加载configs
-        // 如果需要configs，需要再查询一次或修改SQL
-        List<Provider> providers = providerMapper.findByType(type, userId);
-
-        // 为每个Provider加载configs
-        for (Provider provider : providers) {
-            List<ProviderConfig> configs = providerConfigMapper.selectByProviderId(provider.getId());
-            provider.setConfigs(configs);
+        List<ProviderDTO> cachedList = getCachedProviderList(userId);
+        if (cachedList != null) {
+            log.debug("✅ [Provider缓存] 从列表缓存按类型过滤，用户: {}, 类型: {}", userId, type);
+            return cachedList.stream()
+                    .filter(dto -> dto.getTypes() != null && dto.getTypes().contains(type))
+                    .collect(Collectors.toList());
         }
 
-        return providers.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        List<Provider> providers = providerMapper.findByTypeWithConfigs(type, userId);
+        return convertToDTOs(providers);
     }
 
     /**
@@ -134,7 +141,7 @@ public class ProviderServiceImpl implements ProviderService {
 
         // 1. 创建Provider实体（核心信息）
         Provider provider = new Provider();
-        provider.setId(generateProviderId());
+        provider.setId(IdGenerator.generateProviderId());
         provider.setUserId(userId);
         provider.setName(request.getName());
         provider.setDescription(request.getDescription());
@@ -148,6 +155,7 @@ public class ProviderServiceImpl implements ProviderService {
             provider.setTokenStrategyType(Provider.TokenStrategyType.ROUND_ROBIN);
         }
         provider.setTokenFallbackOnError(request.getTokenFallbackOnError() != null ? request.getTokenFallbackOnError() : true);
+        provider.setTokenAffinityEnabled(Boolean.TRUE.equals(request.getTokenAffinityEnabled()));
 
         // 设置启用状态，默认为true
         provider.setIsActive(true);
@@ -162,6 +170,7 @@ public class ProviderServiceImpl implements ProviderService {
         if (result <= 0) {
             throw new ServiceException("创建Provider", "数据库插入失败");
         }
+        providerMapper.batchInsertTypes(List.of(provider));
 
         // 2. 创建CLI配置
         List<ProviderConfig> configs = new ArrayList<>();
@@ -210,24 +219,23 @@ public class ProviderServiceImpl implements ProviderService {
             log.error("为Provider {} 创建Token失败", provider.getId(), e);
             throw new ServiceException("创建Token", "Token创建失败: " + e.getMessage());
         }
+        configVersionService.bumpVersion(userId);
 
         log.info("成功创建Provider: {} (ID: {}), 配置数: {}", provider.getName(), provider.getId(), configs.size());
         return convertToDTO(provider);
     }
 
     /**
-     * ✅ 清除 Provider 列表缓存和配置缓存（更新时）
+     * ✅ 增量更新：仅写入实际变化的字段和CLI配置
+     * - 核心字段和CLI配置均未变化时不写库、不清缓存
+     * - CLI配置按内容Hash比对，只 upsert 变化的行（uk_provider_cli），只删除不再需要的行
+     * - 有变化时清除列表缓存，并用最新实体刷新 provider:config（而非清除后冷加载）
      */
     @Override
     @Transactional
-    @Caching(evict = {
-        @CacheEvict(value = "provider:list", key = "T(com.llmctl.context.UserContext).getUserId()"),
-        @CacheEvict(value = "provider:config", key = "#id")
-    })
     public ProviderDTO updateProvider(String id, UpdateProviderRequest request) {
         Long userId = UserContext.getUserId();
         log.info("更新Provider: {} (ID: {}), 用户ID: {}", request.getName(), id, userId);
-        log.info("🔄 [缓存清除] 更新Provider时清除列表缓存和配置缓存，用户: {}, Provider: {}", userId, id);
 
         // 检查Provider是否存在且属于当前用户
         Provider existingProvider = providerMapper.findById(id, userId);
@@ -243,12 +251,15 @@ public class ProviderServiceImpl implements ProviderService {
         }
 
         // 1. 更新Provider核心字段
+        List<Object> coreBefore = coreFields(existingProvider);
         if (StringUtils.hasText(request.getName())) {
             existingProvider.setName(request.getName());
         }
         if (request.getDescription() != null) {
             existingProvider.setDescription(request.getDescription());
         }
+        boolean typesChanged = request.getTypes() != null && !request.getTypes().isEmpty()
+                && !request.getTypes().equals(existingProvider.getTypes());
         if (request.getTypes() != null && !request.getTypes().isEmpty()) {
             existingProvider.setTypes(request.getTypes());
         }
@@ -261,51 +272,70 @@ public class ProviderServiceImpl implements ProviderService {
         if (request.getTokenFallbackOnError() != null) {
             existingProvider.setTokenFallbackOnError(request.getTokenFallbackOnError());
         }
+        if (request.getTokenAffinityEnabled() != null) {
+            existingProvider.setTokenAffinityEnabled(request.getTokenAffinityEnabled());
+        }
         if (request.getIsActive() != null) {
             existingProvider.setIsActive(request.getIsActive());
         }
+        boolean coreChanged = !coreBefore.equals(coreFields(existingProvider));
 
-        existingProvider.setUpdatedAt(LocalDateTime.now());
+        if (coreChanged) {
+            existingProvider.setUpdatedAt(LocalDateTime.now());
+            int result = providerMapper.update(existingProvider);
+            if (result <= 0) {
+                throw new ServiceException("更新Provider", "数据库更新失败");
+            }
+        }
 
-        // 保存Provider更新
-        int result = providerMapper.update(existingProvider);
-        if (result <= 0) {
-            throw new ServiceException("更新Provider", "数据库更新失败");
+        // 同步类型索引表
+        if (typesChanged) {
+            providerMapper.deleteTypesByProviderIds(List.of(id));
+            providerMapper.batchInsertTypes(List.of(existingProvider));
         }
 
-        // 2. 更新CLI配置
-        // 方式1：删除旧配置，插入新配置（简单直接）
+        // 2. 增量更新CLI配置（仅在请求携带 types 时处理，语义与原先的全量替换一致）
+        List<ProviderConfig> storedConfigs = providerConfigMapper.selectByProviderId(id);
+        boolean configsChanged = false;
         if (request.getTypes() != null && !request.getTypes().isEmpty()) {
-            providerConfigMapper.deleteByProviderId(id);
-
-            List<ProviderConfig> newConfigs = new ArrayList<>();
-            for (String type : request.getTypes()) {
-                ProviderConfig config = new ProviderConfig();
-                config.setProviderId(id);
-
-                if ("claude code".equals(type) && request.getClaudeConfig() != null) {
-                    config.setCliType(ProviderConfig.CliType.CLAUDE);
-                    config.setConfigData(toJson(request.getClaudeConfig()));
-                    providerConfigMapper.insert(config);
-                    newConfigs.add(config);
-                } else if ("codex".equals(type) && request.getCodexConfig() != null) {
-                    config.setCliType(ProviderConfig.CliType.CODEX);
-                    config.setConfigData(toJson(request.getCodexConfig()));
-                    providerConfigMapper.insert(config);
-                    newConfigs.add(config);
-                } else if ("gemini".equals(type) && request.getGeminiConfig() != null) {
-                    config.setCliType(ProviderConfig.CliType.GEMINI);
-                    config.setConfigData(toJson(request.getGeminiConfig()));
-                    providerConfigMapper.insert(config);
-                    newConfigs.add(config);
-                } else if ("qoder".equals(type) && request.getQoderConfig() != null) {
-                    config.setCliType(ProviderConfig.CliType.QODER);
-                    config.setConfigData(toJson(request.getQoderConfig()));
-                    providerConfigMapper.insert(config);
-                    newConfigs.add(config);
-                }
+            Map<ProviderConfig.CliType, ProviderConfig> storedByType = storedConfigs.stream()
+                    .collect(Collectors.toMap(ProviderConfig::getCliType, c -> c, (a, b) -> a));
+
+            List<ProviderConfig> desiredConfigs = buildConfigs(id, request);
+            List<ProviderConfig> changedConfigs = desiredConfigs.stream()
+                    .filter(config -> {
+                        ProviderConfig stored = storedByType.get(config.getCliType());
+                        return stored == null
+                                || !configContentHash(stored.getConfigData()).equals(configContentHash(config.getConfigData()));
+                    })
+                    .collect(Collectors.toList());
+            boolean hasStaleConfigs = storedConfigs.stream()
+                    .anyMatch(stored -> desiredConfigs.stream().noneMatch(c -> c.getCliType() == stored.getCliType()));
+
+            if (hasStaleConfigs) {
+                providerConfigMapper.deleteByProviderIdsExcept(List.of(id), desiredConfigs);
+            }
+            if (!changedConfigs.isEmpty()) {
+                providerConfigMapper.batchUpsert(changedConfigs);
+            }
+            configsChanged = hasStaleConfigs || !changedConfigs.isEmpty();
+            log.debug("Provider {} CLI配置比对完成: 变更{}, 删除旧配置: {}", id, changedConfigs.size(), hasStaleConfigs);
+        }
+        existingProvider.setConfigs(configsChanged ? providerConfigMapper.selectByProviderId(id) : storedConfigs);
+
+        if (coreChanged || configsChanged) {
+            log.info("🔄 [缓存更新] Provider有变更，清除列表缓存并刷新配置缓存，用户: {}, Provider: {}", userId, id);
+            Cache listCache = cacheManager.getCache("provider:list");
+            if (listCache != null) {
+                listCache.evict(userId);
             }
-            existingProvider.setConfigs(newConfigs);
+            Cache configCache = cacheManager.getCache("provider:config");
+            if (configCache != null) {
+                configCache.put(id, existingProvider);
+            }
+            configVersionService.bumpVersion(userId);
+        } else {
+            log.info("Provider无变化，跳过写入和缓存清除: {}", id);
         }
 
         log.info("成功更新Provider: {} (ID: {})", existingProvider.getName(), id);
@@ -319,7 +349,8 @@ public class ProviderServiceImpl implements ProviderService {
     @Transactional
     @Caching(evict = {
         @CacheEvict(value = "provider:list", key = "T(com.llmctl.context.UserContext).getUserId()"),
-        @CacheEvict(value = "provider:config", key = "#id")
+        @CacheEvict(value = "provider:config", key = "#id"),
+        @CacheEvict(value = "user:active-provider", key = "T(com.llmctl.context.UserContext).getUserId()")
     })
     public void deleteProvider(String id) {
         Long userId = UserContext.getUserId();
@@ -337,6 +368,7 @@ public class ProviderServiceImpl implements ProviderService {
         if (result <= 0) {
             throw new ServiceException("删除Provider", "数据库删除失败");
         }
+        configVersionService.bumpVersion(userId);
 
         log.info("成功删除Provider: {} (ID: {})", provider.getName(), id);
     }
@@ -365,6 +397,10 @@ public class ProviderServiceImpl implements ProviderService {
 
     @Override
     @Transactional
+    @Caching(evict = {
+        @CacheEvict(value = "provider:list", key = "T(com.llmctl.context.UserContext).getUserId()"),
+        @CacheEvict(value = "provider:config", key = "#id")
+    })
     public ProviderDTO updateTokenStrategy(String id, UpdateTokenStrategyRequest request) {
         Long userId = UserContext.getUserId();
         log.info("更新Provider的Token策略: ID={}, 策略类型={}, 故障切换={}",
@@ -379,6 +415,9 @@ public class ProviderServiceImpl implements ProviderService {
         // 更新Token策略
         existingProvider.setTokenStrategyType(Provider.TokenStrategyType.fromValue(request.getType()));
         existingProvider.setTokenFallbackOnError(request.getFallbackOnError());
+        if (request.getAffinityEnabled() != null) {
+            existingProvider.setTokenAffinityEnabled(request.getAffinityEnabled());
+        }
         existingProvider.setUpdatedAt(LocalDateTime.now());
 
         // 保存更新
@@ -386,12 +425,33 @@ public class ProviderServiceImpl implements ProviderService {
         if (result <= 0) {
             throw new ServiceException("更新Token策略", "数据库更新失败");
         }
+        configVersionService.bumpVersion(userId);
 
         log.info("成功更新Provider的Token策略: {} (ID: {}), 策略={}, 故障切换={}",
                  existingProvider.getName(), id, request.getType(), request.getFallbackOnError());
         return convertToDTO(existingProvider);
     }
 
+    /**
+     * 读取当前用户的 provider:list 缓存（未命中或 Redis 异常时返回 null）
+     *
+     * @param userId 用户ID
+     * @return 缓存的Provider列表
+     */
+    @SuppressWarnings("unchecked")
+    private List<ProviderDTO> getCachedProviderList(Long userId) {
+        Cache listCache = cacheManager.getCache("provider:list");
+        if (listCache == null) {
+            return null;
+        }
+        try {
+            return listCache.get(userId, List.class);
+        } catch (Exception e) {
+            log.warn("⚠️ [Provider缓存] 读取列表缓存失败，降级到数据库查询: {}", e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * 将Provider实体转换为DTO
      *
@@ -402,6 +462,36 @@ public class ProviderServiceImpl implements ProviderService {
         if (provider == null) {
             return null;
         }
+        return convertToDTO(provider, tokenMapper.findByProviderId(provider.getId()));
+    }
+
+    /**
+     * 批量将Provider实体转换为DTO（一次查询加载所有Provider的Token）
+     *
+     * @param providers Provider实体列表
+     * @return Provider DTO列表
+     */
+    private List<ProviderDTO> convertToDTOs(List<Provider> providers) {
+        if (providers.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, List<Token>> tokensByProvider = tokenMapper.findByProviderIds(
+                        providers.stream().map(Provider::getId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.groupingBy(Token::getProviderId));
+        return providers.stream()
+                .map(provider -> convertToDTO(provider, tokensByProvider.getOrDefault(provider.getId(), List.of())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 将Provider实体转换为DTO（使用已加载的Token列表）
+     *
+     * @param provider Provider实体
+     * @param tokens 该Provider的Token列表
+     * @return Provider DTO
+     */
+    private ProviderDTO convertToDTO(Provider provider, List<Token> tokens) {
 
         ProviderDTO dto = new ProviderDTO();
         dto.setId(provider.getId());
@@ -417,6 +507,7 @@ public class ProviderServiceImpl implements ProviderService {
         ProviderDTO.TokenStrategyDTO tokenStrategy = new ProviderDTO.TokenStrategyDTO();
         tokenStrategy.setType(provider.getTokenStrategyType() != null ? provider.getTokenStrategyType().getValue() : "round-robin");
         tokenStrategy.setFallbackOnError(provider.getTokenFallbackOnError());
+        tokenStrategy.setAffinityEnabled(Boolean.TRUE.equals(provider.getTokenAffinityEnabled()));
         dto.setTokenStrategy(tokenStrategy);
 
         // 转换CLI配置
@@ -427,8 +518,7 @@ public class ProviderServiceImpl implements ProviderService {
             dto.setConfigs(configDTOs);
         }
 
-        // 获取关联的Token列表
-        List<Token> tokens = tokenMapper.findByProviderId(provider.getId());
+        // 关联的Token列表
         if (tokens != null && !tokens.isEmpty()) {
             List<TokenDTO> tokenDTOs = tokens.stream()
                     .map(tokenService::convertToDTO)
@@ -459,6 +549,93 @@ public class ProviderServiceImpl implements ProviderService {
         return dto;
     }
 
+    /**
+     * 根据请求构建期望的CLI配置（按 types 顺序，未提供配置数据的类型跳过）
+     *
+     * @param providerId Provider ID
+     * @param request 更新请求
+     * @return 期望的配置列表
+     */
+    private List<ProviderConfig> buildConfigs(String providerId, UpdateProviderRequest request) {
+        List<ProviderConfig> configs = new ArrayList<>();
+        for (String type : request.getTypes()) {
+            Map<String, Object> configData = null;
+            ProviderConfig.CliType cliType = null;
+            if ("claude code".equals(type)) {
+                cliType = ProviderConfig.CliType.CLAUDE;
+                configData = request.getClaudeConfig();
+            } else if ("codex".equals(type)) {
+                cliType = ProviderConfig.CliType.CODEX;
+                configData = request.getCodexConfig();
+            } else if ("gemini".equals(type)) {
+                cliType = ProviderConfig.CliType.GEMINI;
+                configData = request.getGeminiConfig();
+            } else if ("qoder".equals(type)) {
+                cliType = ProviderConfig.CliType.QODER;
+                configData = request.getQoderConfig();
+            }
+            if (cliType == null || configData == null) {
+                continue;
+            }
+            ProviderConfig config = new ProviderConfig();
+            config.setProviderId(providerId);
+            config.setCliType(cliType);
+            config.setConfigData(toJson(configData));
+            configs.add(config);
+        }
+        return configs;
+    }
+
+    /**
+     * 计算配置数据的内容Hash
+     * MySQL JSON 列会重排键顺序并规范空白，因此先按键排序再序列化，保证相同内容得到相同Hash
+     *
+     * @param json 配置数据JSON字符串
+     * @return SHA-256 Hex
+     */
+    private String configContentHash(String json) {
+        if (!StringUtils.hasText(json)) {
+            return DataUtils.sha256Hex("{}");
+        }
+        try {
+            Object canonical = canonicalize(objectMapper.readValue(json, Object.class));
+            return DataUtils.sha256Hex(objectMapper.writeValueAsString(canonical));
+        } catch (JsonProcessingException e) {
+            return DataUtils.sha256Hex(json);
+        }
+    }
+
+    /**
+     * 递归地将Map转换为按键排序的TreeMap
+     */
+    private Object canonicalize(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            ((Map<?, ?>) value).forEach((k, v) -> sorted.put(String.valueOf(k), canonicalize(v)));
+            return sorted;
+        }
+        if (value instanceof List) {
+            return ((List<?>) value).stream().map(this::canonicalize).collect(Collectors.toList());
+        }
+        return value;
+    }
+
+    /**
+     * Provider中会写入 providers 表的字段（用于判断核心字段是否变化）
+     */
+    private List<Object> coreFields(Provider provider) {
+        return Arrays.asList(
+                provider.getName(),
+                provider.getDescription(),
+                provider.getTypes() != null ? new ArrayList<>(provider.getTypes()) : null,
+                provider.getExtraHeaders(),
+                provider.getTokenStrategyType(),
+                provider.getTokenFallbackOnError(),
+                provider.getTokenAffinityEnabled(),
+                provider.getIsActive()
+        );
+    }
+
     /**
      * 将Map转换为JSON字符串
      *
@@ -495,13 +672,4 @@ public class ProviderServiceImpl implements ProviderService {
             return new HashMap<>();
         }
     }
-
-    /**
-     * 生成Provider ID
-     *
-     * @return 新的Provider ID
-     */
-    private String generateProviderId() {
-        return "provider_" + UUID.randomUUID().toString().replace("-", "");
-    }
 }
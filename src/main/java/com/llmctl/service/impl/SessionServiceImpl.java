@@ -1,8 +1,9 @@
 package com.llmctl.service.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.util.RawValue;
 import com.llmctl.context.UserContext;
+import com.llmctl.dto.McpConfigSnapshot;
 import com.llmctl.dto.SessionDTO;
 import com.llmctl.dto.StartSessionRequest;
 import com.llmctl.entity.Provider;
@@ -17,18 +18,20 @@ import com.llmctl.mapper.ProviderMapper;
 import com.llmctl.mapper.SessionMapper;
 import com.llmctl.mapper.TokenMapper;
 import com.llmctl.service.IGlobalConfigService;
+import com.llmctl.service.IMcpConfigFileWriter;
 import com.llmctl.service.ISessionService;
 import com.llmctl.service.ITokenEncryptionService;
 import com.llmctl.service.McpServerService;
+import com.llmctl.service.StatisticsService;
+import com.llmctl.service.ITokenLoadTracker;
+import com.llmctl.service.ITokenUsageMeter;
 import com.llmctl.service.TokenService;
 import com.llmctl.utils.IdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -59,6 +62,10 @@ public class SessionServiceImpl implements ISessionService {
     private final IGlobalConfigService globalConfigService;
     private final ITokenEncryptionService encryptionService;
     private final McpServerService mcpServerService;
+    private final IMcpConfigFileWriter mcpConfigFileWriter;
+    private final StatisticsService statisticsService;
+    private final ITokenUsageMeter tokenUsageMeter;
+    private final ITokenLoadTracker tokenLoadTracker;
     private final ObjectMapper objectMapper;
 
     @Override
@@ -105,6 +112,7 @@ public class SessionServiceImpl implements ISessionService {
     }
 
     @Override
+    @Transactional
     public SessionDTO startSession(StartSessionRequest request) {
         Long userId = UserContext.getUserId();
         log.info("创建新的会话记录: Provider: {}, WorkingDir: {}, 用户ID: {}", request.getProviderId(), request.getWorkingDirectory(), userId);
@@ -116,7 +124,7 @@ public class SessionServiceImpl implements ISessionService {
         }
 
         // 选择可用的Token并保存Token ID
-        Token selectedToken = tokenService.selectToken(request.getProviderId());
+        Token selectedToken = tokenService.selectToken(request.getProviderId(), request.getWorkingDirectory());
         if (selectedToken == null) {
             throw new BusinessException("没有可用的Token: " + request.getProviderId());
         }
@@ -145,6 +153,9 @@ public class SessionServiceImpl implements ISessionService {
         if (result <= 0) {
             throw new ServiceException("创建会话", "数据库插入失败");
         }
+        statisticsService.recordSessionStarted(session.getId());
+        tokenUsageMeter.record(selectedToken.getProviderId(), selectedToken.getId(), 1, 0, 0);
+        tokenLoadTracker.sessionStarted(selectedToken.getId());
 
         // 注入 MCP 配置
         if (provider != null) {
@@ -179,6 +190,7 @@ public class SessionServiceImpl implements ISessionService {
     }
 
     @Override
+    @Transactional
     public SessionDTO updateSessionStatus(String sessionId, String status) {
         Long userId = UserContext.getUserId();
         log.info("更新会话状态: {} -> {}, 用户ID: {}", sessionId, status, userId);
@@ -194,25 +206,28 @@ public class SessionServiceImpl implements ISessionService {
             throw new IllegalArgumentException("无权访问该会话");
         }
 
+        Session.SessionStatus oldStatus = session.getStatus();
         Session.SessionStatus newStatus = Session.SessionStatus.fromValue(status);
-        session.setStatus(newStatus);
-        session.setLastActivity(LocalDateTime.now());
 
-        // 兼容废弃的TERMINATED状态（仅为向后兼容保留）
-        if (newStatus == Session.SessionStatus.TERMINATED) {
-            session.setEndTime(LocalDateTime.now());
-        }
-
-        int result = sessionMapper.update(session);
+        // 以读取到的状态为条件更新，并发修改时不重复计入统计
+        int result = sessionMapper.transitionStatus(sessionId, oldStatus.getValue(), newStatus.getValue());
         if (result <= 0) {
-            throw new ServiceException("更新会话状态", "数据库更新失败");
+            log.warn("会话状态已被并发修改，跳过: {} ({} -> {})", sessionId, oldStatus, newStatus);
+            return convertToDTO(sessionMapper.findById(sessionId));
         }
+        if (oldStatus == Session.SessionStatus.ACTIVE && newStatus != Session.SessionStatus.ACTIVE) {
+            statisticsService.recordSessionEnded(sessionId);
+        } else if (oldStatus != Session.SessionStatus.ACTIVE && newStatus == Session.SessionStatus.ACTIVE) {
+            statisticsService.recordSessionStarted(sessionId);
+        }
+        session = sessionMapper.findById(sessionId);
 
         log.info("成功更新会话状态: {} -> {}", sessionId, status);
         return convertToDTO(session);
     }
 
     @Override
+    @Transactional
     public void terminateSession(String sessionId) {
         Long userId = UserContext.getUserId();
         log.info("终止会话: {}, 用户ID: {}", sessionId, userId);
@@ -229,7 +244,14 @@ public class SessionServiceImpl implements ISessionService {
         }
 
         // 更新数据库状态为inactive（进程由Electron管理和终止）
-        int result = sessionMapper.terminate(sessionId);
+        // 仍活跃的会话按状态条件更新，只有真正由本次调用结束的会话才计入统计
+        int result = sessionMapper.transitionStatus(sessionId,
+                Session.SessionStatus.ACTIVE.getValue(), Session.SessionStatus.INACTIVE.getValue());
+        if (result > 0) {
+            statisticsService.recordSessionEnded(sessionId);
+        } else {
+            result = sessionMapper.terminate(sessionId);
+        }
         if (result <= 0) {
             throw new ServiceException("终止会话", "数据库更新失败");
         }
@@ -238,6 +260,7 @@ public class SessionServiceImpl implements ISessionService {
     }
 
     @Override
+    @Transactional
     public SessionDTO reactivateSession(String sessionId) {
         Long userId = UserContext.getUserId();
         log.info("重新激活会话: {}, 用户ID: {}", sessionId, userId);
@@ -258,6 +281,7 @@ public class SessionServiceImpl implements ISessionService {
         if (result <= 0) {
             throw new ServiceException("重新激活会话", "数据库更新失败");
         }
+        statisticsService.recordSessionStarted(sessionId);
 
         // 重新查询更新后的会话（使用优化查询）
         Session reactivatedSession = sessionMapper.findByIdWithPermissionCheck(sessionId, userId);
@@ -267,6 +291,7 @@ public class SessionServiceImpl implements ISessionService {
     }
 
     @Override
+    @Transactional
     public void deleteSession(String sessionId) {
         Long userId = UserContext.getUserId();
         log.info("删除会话记录: {}, 用户ID: {}", sessionId, userId);
@@ -282,7 +307,11 @@ public class SessionServiceImpl implements ISessionService {
             throw new IllegalArgumentException("无权访问该会话");
         }
 
-        // 从数据库中永久删除会话记录
+        // 从数据库中永久删除会话记录（仍活跃的会话先按状态条件结束，只有真正由本次调用结束的会话才计入统计）
+        if (sessionMapper.transitionStatus(sessionId,
+                Session.SessionStatus.ACTIVE.getValue(), Session.SessionStatus.INACTIVE.getValue()) > 0) {
+            statisticsService.recordSessionEnded(sessionId);
+        }
         int result = sessionMapper.deleteById(sessionId);
         if (result <= 0) {
             throw new ServiceException("删除会话记录", "数据库删除失败");
@@ -314,9 +343,10 @@ public class SessionServiceImpl implements ISessionService {
      * Electron应用退出时调用：将所有活跃会话设置为非活跃状态
      * 原因：Electron应用关闭后，所有终端进程已全部终止
      */
+    @Transactional
     public int deactivateAllActiveSessions() {
         log.info("Electron应用退出，开始批量更新活跃会话状态...");
-        int affectedRows = sessionMapper.deactivateAllActiveSessions();
+        int affectedRows = deactivateLocked(null);
         if (affectedRows > 0) {
             log.info("成功将 {} 个活跃会话设置为非活跃状态（Electron应用已退出）", affectedRows);
         } else {
@@ -330,9 +360,10 @@ public class SessionServiceImpl implements ISessionService {
      * 原因：用户登出后，其会话应被清理，避免资源泄漏和状态混乱
      */
     @Override
+    @Transactional
     public int deactivateUserActiveSessions(Long userId) {
         log.info("用户登出，开始批量更新用户活跃会话状态，用户ID: {}", userId);
-        int affectedRows = sessionMapper.deactivateUserActiveSessions(userId);
+        int affectedRows = deactivateLocked(userId);
         if (affectedRows > 0) {
             log.info("成功将用户 {} 的 {} 个活跃会话设置为非活跃状态（用户已登出）", userId, affectedRows);
         } else {
@@ -341,6 +372,21 @@ public class SessionServiceImpl implements ISessionService {
         return affectedRows;
     }
 
+    /**
+     * 先锁定活跃会话再汇总结束统计并停用，持锁期间并发的状态变更会等待，提交后不再匹配 active，不会重复统计
+     *
+     * @param userId 用户ID（为空表示所有用户）
+     * @return 停用的会话数
+     */
+    private int deactivateLocked(Long userId) {
+        List<String> sessionIds = sessionMapper.lockActiveSessionIds(userId);
+        if (sessionIds.isEmpty()) {
+            return 0;
+        }
+        statisticsService.recordSessionsEnded(sessionIds);
+        return sessionMapper.deactivateByIds(sessionIds);
+    }
+
     /**
      * 批量删除当前用户的所有非活跃会话（一键清除功能）
      * 原因：清理冗余的非活跃会话记录，释放存储空间
@@ -413,18 +459,14 @@ public class SessionServiceImpl implements ISessionService {
             throw new IllegalArgumentException("无权访问该会话");
         }
 
-        // 生成 MCP 配置，传递客户端操作系统参数
-        Map<String, Object> mcpConfig = mcpServerService.generateMcpConfig(
-            provider.getId(),
-            session.getType(),
-            clientOs
-        );
+        // 按客户端操作系统取用户级缓存中预序列化的 mcpServers JSON，响应时原样输出
+        String mcpServersJson = mcpServerService.getMcpServersJson(userId, clientOs);
 
         // 构建完整的配置对象（与文件格式一致）
         Map<String, Object> fullConfig = new HashMap<>();
-        fullConfig.put("mcpServers", mcpConfig);
+        fullConfig.put("mcpServers", new RawValue(mcpServersJson));
 
-        log.info("成功生成会话 {} 的 MCP 配置内容（客户端系统: {}），包含 {} 个服务器", sessionId, clientOs, mcpConfig.size());
+        log.info("成功生成会话 {} 的 MCP 配置内容（客户端系统: {}），大小 {} 字节", sessionId, clientOs, mcpServersJson.length());
         return fullConfig;
     }
 
@@ -708,27 +750,19 @@ public class SessionServiceImpl implements ISessionService {
             return;
         }
 
-        // 生成 MCP 配置
-        log.info("📦 生成 MCP 配置...");
-        // ✅ 后端本地写入配置，使用服务器系统检测（传 null）
-        Map<String, Object> mcpConfig = mcpServerService.generateMcpConfig(
-            provider.getId(),
-            cliType,
-            null
-        );
+        // 取用户级缓存中与服务器系统对应的预序列化配置
+        McpConfigSnapshot snapshot = mcpServerService.getMcpConfigSnapshot(UserContext.getUserId());
+        log.info("生成的服务器数量: {}", snapshot.getServerCount());
 
-        log.info("生成的服务器数量: {}", mcpConfig.size());
-
-        if (mcpConfig.isEmpty()) {
+        if (snapshot.getServerCount() == 0) {
             log.info("ℹ️ 无需注入 MCP 配置（无关联的服务器）");
             log.info("========================================");
             return;
         }
 
-        // ✅ 统一使用 .mcp.json 配置文件（项目级别配置，与 CLI 类型无关）
-        log.info("📝 调用统一配置注入方法...");
-        injectUnifiedMcpConfig(workingDir, mcpConfig);
-        log.info("========== MCP 配置注入完成 ==========");
+        // ✅ 统一使用 .mcp.json 配置文件（项目级别配置，与 CLI 类型无关），由 I/O 线程池异步写入
+        mcpConfigFileWriter.submit(workingDir, snapshot.variant(isRunningOnWindows));
+        log.info("========== MCP 配置注入已提交 ==========");
     }
 
     /**
@@ -756,84 +790,6 @@ public class SessionServiceImpl implements ISessionService {
         return os != null && os.toLowerCase().contains("windows");
     }
 
-    /**
-     * 注入统一的 MCP 配置
-     * 创建项目根目录的 .mcp.json 文件，所有 CLI 工具共享此配置
-     *
-     * @param workingDir 工作目录
-     * @param mcpConfig MCP 配置
-     */
-    private void injectUnifiedMcpConfig(String workingDir, Map<String, Object> mcpConfig) {
-        log.info("---------- 统一 MCP 配置注入 ----------");
-        log.info("工作目录: {}", workingDir);
-        log.info("MCP 服务器数量: {}", mcpConfig.size());
-
-        try {
-            // ✅ 统一使用 .mcp.json（项目级配置，与 CLI 类型无关）
-            Path configPath = Paths.get(workingDir, ".mcp.json");
-            log.info("目标配置文件: {}", configPath.toAbsolutePath());
-            log.info("文件是否存在: {}", Files.exists(configPath));
-
-            // 确保父目录存在
-            if (configPath.getParent() != null) {
-                Path parentDir = configPath.getParent();
-                log.info("父目录: {}", parentDir.toAbsolutePath());
-                log.info("父目录是否存在: {}", Files.exists(parentDir));
-
-                if (!Files.exists(parentDir)) {
-                    log.info("创建父目录: {}", parentDir);
-                    Files.createDirectories(parentDir);
-                    log.info("✅ 父目录创建成功");
-                }
-            }
-
-            // 读取现有配置（如果存在）
-            Map<String, Object> existingConfig = new HashMap<>();
-            if (Files.exists(configPath)) {
-                log.info("📖 读取现有配置文件...");
-                String content = Files.readString(configPath);
-                log.info("现有文件大小: {} 字节", content.length());
-                existingConfig = objectMapper.readValue(content, new TypeReference<>() {});
-                log.info("现有配置键: {}", existingConfig.keySet());
-            } else {
-                log.info("配置文件不存在，将创建新文件");
-            }
-
-            // 添加 MCP 服务器配置
-            existingConfig.put("mcpServers", mcpConfig);
-            log.info("合并后配置键: {}", existingConfig.keySet());
-
-            // 写入配置文件
-            String configJson = objectMapper.writerWithDefaultPrettyPrinter()
-                .writeValueAsString(existingConfig);
-            log.info("配置 JSON 大小: {} 字节", configJson.length());
-            log.info("配置内容预览: {}", configJson.length() > 200 ? configJson.substring(0, 200) + "..." : configJson);
-
-            log.info("💾 写入配置文件: {}", configPath.toAbsolutePath());
-            Files.writeString(configPath, configJson);
-            log.info("✅ 文件写入成功");
-
-            // 验证写入结果
-            if (Files.exists(configPath)) {
-                long fileSize = Files.size(configPath);
-                log.info("验证: 文件存在，大小 {} 字节", fileSize);
-                log.info("✅ MCP 配置注入成功: {} ({} 个服务器)", configPath, mcpConfig.size());
-            } else {
-                log.error("❌ 验证失败: 文件不存在");
-            }
-
-            log.info("---------------------------------------");
-        } catch (Exception e) {
-            log.error("❌ ========== MCP 配置注入失败 ==========");
-            log.error("工作目录: {}", workingDir);
-            log.error("错误类型: {}", e.getClass().getName());
-            log.error("错误消息: {}", e.getMessage());
-            log.error("错误堆栈:", e);
-            log.error("=========================================");
-            throw new RuntimeException("MCP 配置注入失败: " + e.getMessage(), e);
-        }
-    }
-
     /**
      * 解析配置数据JSON字符串为Map
      *
@@ -8,6 +8,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -31,4 +32,23 @@ public class StatisticsServiceImpl implements StatisticsService {
         log.info("[统计] 查询Provider使用统计, userId={}, days={}", userId, days);
         return statisticsMapper.getProviderUsageStats(userId, days);
     }
+
+    @Override
+    public void recordSessionStarted(String sessionId) {
+        statisticsMapper.rollupSessionStart(sessionId);
+    }
+
+    @Override
+    public void recordSessionsEnded(Collection<String> sessionIds) {
+        if (sessionIds == null || sessionIds.isEmpty()) {
+            return;
+        }
+        int affectedRows = statisticsMapper.rollupSessionsEnded(sessionIds);
+        log.debug("[统计] 汇总会话结束, 会话数={}, 影响行数={}", sessionIds.size(), affectedRows);
+    }
+
+    @Override
+    public void recordSessionEnded(String sessionId) {
+        statisticsMapper.rollupSessionEnded(sessionId);
+    }
 }
@@ -0,0 +1,135 @@
+package com.llmctl.service.impl;
+
+import com.llmctl.entity.Token;
+import com.llmctl.service.ITokenAffinityRouter;
+import com.llmctl.service.ITokenLoadTracker;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Token 亲和路由实现类
+ *
+ * 每个 Provider 按当前可用 Token 集合构建一致性哈希环（每个 Token 160 个虚拟节点），
+ * Token 集合不变时复用已构建的环；Token 新增或因熔断/不健康移出可用列表时，只有落在其区间内的目录会迁移。
+ * 采用有界负载：某个 Token 的活跃会话数超过平均值的 1.25 倍时沿环顺延到下一个 Token，避免热点项目压垮单个 Token
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenAffinityRouterImpl implements ITokenAffinityRouter {
+
+    private static final int VIRTUAL_NODES = 160;
+    private static final double LOAD_BOUND_FACTOR = 1.25;
+
+    private final ITokenLoadTracker tokenLoadTracker;
+
+    private final ConcurrentHashMap<String, Ring> rings = new ConcurrentHashMap<>();
+
+    @Override
+    public Token route(Long userId, String providerId, String workingDirectory, List<Token> tokens) {
+        if (tokens.size() == 1) {
+            return tokens.get(0);
+        }
+        Map<String, Token> byId = new HashMap<>();
+        tokens.forEach(token -> byId.put(token.getId(), token));
+
+        Ring ring = rings.compute(providerId, (id, existing) ->
+                existing != null && existing.tokenIds.equals(byId.keySet()) ? existing : new Ring(byId.keySet()));
+
+        int totalActive = 0;
+        for (String tokenId : byId.keySet()) {
+            totalActive += tokenLoadTracker.activeSessions(tokenId);
+        }
+        // 本次会话也计入平均负载，保证至少有一个 Token 不超过上限
+        int capacity = (int) Math.ceil(LOAD_BOUND_FACTOR * (totalActive + 1) / byId.size());
+
+        long hash = hash(userId + ":" + providerId + ":" + normalize(workingDirectory));
+        Set<String> visited = new HashSet<>();
+        String preferred = null;
+        for (String tokenId : ring.walk(hash)) {
+            if (!visited.add(tokenId)) {
+                continue;
+            }
+            if (preferred == null) {
+                preferred = tokenId;
+            }
+            if (tokenLoadTracker.activeSessions(tokenId) < capacity) {
+                if (!tokenId.equals(preferred)) {
+                    log.info("🧲 [Token亲和] 首选Token负载已满，顺延: {} -> {}", preferred, tokenId);
+                }
+                return byId.get(tokenId);
+            }
+            if (visited.size() == byId.size()) {
+                break;
+            }
+        }
+        return byId.get(preferred);
+    }
+
+    /**
+     * 统一路径写法：Windows 反斜杠转为正斜杠、去掉末尾分隔符
+     */
+    private static String normalize(String workingDirectory) {
+        String path = workingDirectory.trim().replace('\\', '/');
+        while (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest, 0, Long.BYTES).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    /**
+     * 不可变的一致性哈希环
+     */
+    private static final class Ring {
+        private final Set<String> tokenIds;
+        private final NavigableMap<Long, String> nodes = new TreeMap<>();
+
+        private Ring(Set<String> tokenIds) {
+            // 按ID排序构建，哈希冲突时结果与 Token 列表顺序无关
+            this.tokenIds = Set.copyOf(tokenIds);
+            for (String tokenId : new TreeSet<>(tokenIds)) {
+                for (int i = 0; i < VIRTUAL_NODES; i++) {
+                    nodes.putIfAbsent(hash(tokenId + "#" + i), tokenId);
+                }
+            }
+        }
+
+        /**
+         * 从 hash 所在位置开始顺时针遍历环上的节点
+         */
+        private Iterable<String> walk(long hash) {
+            return () -> Stream.concat(
+                    nodes.tailMap(hash, true).values().stream(),
+                    nodes.headMap(hash, false).values().stream()).iterator();
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package com.llmctl.service.impl;
+
+import com.llmctl.context.UserContext;
+import com.llmctl.entity.GlobalConfig;
+import com.llmctl.entity.Token;
+import com.llmctl.mapper.TokenMapper;
+import com.llmctl.service.ICacheService;
+import com.llmctl.service.IConfigVersionService;
+import com.llmctl.service.IGlobalConfigService;
+import com.llmctl.service.ITokenCircuitBreaker;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token 熔断器实现类
+ *
+ * 熔断状态保存在本实例内存中，选择 Token 时直接过滤，无需等待缓存失效；
+ * 打开时写入 tokens.healthy = 0 与熔断器租约（breaker_lease_at），只有关闭时才写回 healthy = 1，
+ * 半开期间其他实例仍不会向该 Token 分配流量，探测请求只由持有熔断器的实例放行。
+ * 后台线程每秒检查一次打开状态的熔断器，冷却期满后切换为半开；每 30 秒为本实例持有的熔断器续期租约，
+ * 并恢复租约已过期（持有实例重启或下线）的 Token。手动标记的不健康状态没有租约，不会被自动恢复
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenCircuitBreakerImpl implements ITokenCircuitBreaker {
+
+    /**
+     * 滑动窗口：6 个 10 秒的桶，共 60 秒
+     */
+    private static final int BUCKET_COUNT = 6;
+    private static final long BUCKET_MILLIS = 10_000L;
+
+    /**
+     * 失败率阈值（失败次数同时达到 token_error_threshold 才会熔断）
+     */
+    private static final double FAILURE_RATE_THRESHOLD = 0.5;
+
+    /**
+     * 半开状态下两次探测放行的最小间隔
+     */
+    private static final long PROBE_INTERVAL_MILLIS = 10_000L;
+
+    /**
+     * 熔断配置的本地缓存时间
+     */
+    private static final long CONFIG_REFRESH_MILLIS = 30_000L;
+
+    /**
+     * 熔断器租约的续期与过期检查间隔
+     */
+    private static final long LEASE_RENEW_INTERVAL_MILLIS = 30_000L;
+
+    /**
+     * 租约超过该时长未续期视为持有实例已不存在
+     */
+    private static final long LEASE_TIMEOUT_MILLIS = 3 * LEASE_RENEW_INTERVAL_MILLIS;
+
+    private static final int DEFAULT_ERROR_THRESHOLD = 3;
+    private static final int DEFAULT_COOLDOWN_SECONDS = 60;
+
+    private final TokenMapper tokenMapper;
+    private final ICacheService cacheService;
+    private final CacheManager cacheManager;
+    private final IGlobalConfigService globalConfigService;
+    private final IConfigVersionService configVersionService;
+
+    private final ConcurrentHashMap<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService sweepExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "token-circuit-breaker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile int errorThreshold = DEFAULT_ERROR_THRESHOLD;
+    private volatile long cooldownMillis = DEFAULT_COOLDOWN_SECONDS * 1000L;
+    private volatile long configLoadedAt;
+    private long leaseRenewedAt;
+
+    @PostConstruct
+    public void start() {
+        sweepExecutor.scheduleWithFixedDelay(this::sweepQuietly, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweepExecutor.shutdownNow();
+    }
+
+    @Override
+    public void recordOutcome(String providerId, String tokenId, long successes, long failures) {
+        if (tokenId == null || (successes <= 0 && failures <= 0)) {
+            return;
+        }
+        refreshConfigIfStale();
+        long now = System.currentTimeMillis();
+        Long userId = UserContext.getUserId();
+
+        while (true) {
+            Breaker breaker = breakers.computeIfAbsent(tokenId, id -> new Breaker(providerId));
+            Transition transition;
+            synchronized (breaker) {
+                if (breakers.get(tokenId) != breaker) {
+                    // 取到引用后被后台线程当作空闲熔断器移除，重新获取，避免记录落到已丢弃的对象上
+                    continue;
+                }
+                breaker.userId = userId != null ? userId : breaker.userId;
+                breaker.record(now, Math.max(successes, 0), Math.max(failures, 0));
+                transition = breaker.evaluate(now, successes > 0, failures > 0, errorThreshold);
+            }
+            applyTransition(tokenId, breaker, transition);
+            return;
+        }
+    }
+
+    @Override
+    public void forceOpen(String providerId, String tokenId) {
+        refreshConfigIfStale();
+        long now = System.currentTimeMillis();
+        Long userId = UserContext.getUserId();
+
+        while (true) {
+            Breaker breaker = breakers.computeIfAbsent(tokenId, id -> new Breaker(providerId));
+            synchronized (breaker) {
+                if (breakers.get(tokenId) != breaker) {
+                    continue;
+                }
+                breaker.userId = userId != null ? userId : breaker.userId;
+                breaker.open(now);
+            }
+            applyTransition(tokenId, breaker, Transition.OPENED);
+            return;
+        }
+    }
+
+    @Override
+    public List<Token> filterAllowed(String providerId, List<Token> tokens) {
+        if (breakers.isEmpty()) {
+            return tokens;
+        }
+        long now = System.currentTimeMillis();
+        List<Token> allowed = new ArrayList<>(tokens.size());
+        Set<String> listed = new HashSet<>();
+        for (Token token : tokens) {
+            listed.add(token.getId());
+            Breaker breaker = breakers.get(token.getId());
+            if (breaker == null || breaker.tryAcquire(now)) {
+                allowed.add(token);
+            }
+        }
+        if (allowed.size() < tokens.size()) {
+            log.info("🔌 [Token熔断] 过滤熔断中的Token: {} -> {}", tokens.size(), allowed.size());
+        }
+        // 半开的 Token 在数据库中仍为不健康，不在可用列表里，到达探测间隔时由本实例补回候选
+        breakers.forEach((tokenId, breaker) -> {
+            if (breaker.state == State.HALF_OPEN && providerId.equals(breaker.providerId)
+                    && !listed.contains(tokenId) && breaker.tryAcquire(now)) {
+                Token token = tokenMapper.findById(tokenId);
+                if (token != null && Boolean.TRUE.equals(token.getEnabled())) {
+                    log.info("🔌 [Token熔断] 放行半开探测: {}", tokenId);
+                    allowed.add(token);
+                }
+            }
+        });
+        return allowed;
+    }
+
+    @Override
+    public void reset(String tokenId) {
+        Breaker breaker = breakers.remove(tokenId);
+        if (breaker != null && breaker.state != State.CLOSED) {
+            log.info("🔌 [Token熔断] 手动关闭熔断器: {}", tokenId);
+        }
+    }
+
+    @Override
+    public void resetProvider(String providerId) {
+        breakers.values().removeIf(breaker -> providerId.equals(breaker.providerId));
+    }
+
+    @Override
+    public State getState(String tokenId) {
+        Breaker breaker = breakers.get(tokenId);
+        return breaker != null ? breaker.state : State.CLOSED;
+    }
+
+    private void sweepQuietly() {
+        try {
+            refreshConfigIfStale();
+            long now = System.currentTimeMillis();
+            breakers.forEach((tokenId, breaker) -> {
+                Transition transition;
+                synchronized (breaker) {
+                    if (breaker.isIdle(now)) {
+                        // 窗口内没有任何记录的关闭状态熔断器不再需要保留
+                        breakers.remove(tokenId, breaker);
+                        return;
+                    }
+                    transition = breaker.checkCooldown(now, cooldownMillis);
+                }
+                applyTransition(tokenId, breaker, transition);
+            });
+            if (now - leaseRenewedAt >= LEASE_RENEW_INTERVAL_MILLIS) {
+                leaseRenewedAt = now;
+                renewLeases();
+                recoverExpiredLeases();
+            }
+        } catch (Exception e) {
+            log.error("❌ [Token熔断] 冷却检查异常", e);
+        }
+    }
+
+    /**
+     * 为本实例打开/半开的熔断器续期租约，避免被其他实例当作过期租约恢复
+     */
+    private void renewLeases() {
+        List<String> held = new ArrayList<>();
+        breakers.forEach((tokenId, breaker) -> {
+            if (breaker.state != State.CLOSED) {
+                held.add(tokenId);
+            }
+        });
+        if (!held.isEmpty()) {
+            tokenMapper.renewBreakerLease(held);
+        }
+    }
+
+    /**
+     * 恢复租约已过期的 Token，覆盖持有熔断器的实例重启或下线的情况
+     */
+    private void recoverExpiredLeases() {
+        LocalDateTime before = LocalDateTime.now()
+                .minus(Math.max(cooldownMillis, LEASE_TIMEOUT_MILLIS), ChronoUnit.MILLIS);
+        for (Token token : tokenMapper.findExpiredBreakerLeases(before)) {
+            Breaker breaker = breakers.get(token.getId());
+            if (breaker != null && breaker.state != State.CLOSED) {
+                continue;
+            }
+            if (tokenMapper.recoverExpiredBreakerLease(token.getId(), before) > 0) {
+                log.info("✅ [Token熔断] 熔断器租约已过期，恢复Token: {}", token.getId());
+                evictAndBump(token.getProviderId(), token.getUserId());
+            }
+        }
+    }
+
+    private void applyTransition(String tokenId, Breaker breaker, Transition transition) {
+        if (transition == Transition.NONE) {
+            return;
+        }
+        if (transition == Transition.HALF_OPENED) {
+            // 半开只在本实例放行探测，数据库保持不健康，其他实例不会分配流量
+            log.info("🔌 [Token熔断] 冷却期结束，熔断器半开: {}", tokenId);
+            return;
+        }
+        try {
+            if (transition == Transition.OPENED) {
+                log.warn("🔌 [Token熔断] 熔断器打开: {} (冷却 {} 秒)", tokenId, cooldownMillis / 1000);
+                tokenMapper.markUnhealthyByBreaker(tokenId);
+            } else {
+                log.info("✅ [Token熔断] 探测成功，熔断器关闭: {}", tokenId);
+                tokenMapper.markHealthyByBreaker(tokenId);
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ [Token熔断] 写回健康状态失败: {}, 错误: {}", tokenId, e.getMessage());
+        }
+        evictAndBump(breaker.providerId, breaker.userId);
+    }
+
+    private void evictAndBump(String providerId, Long userId) {
+        cacheService.evictTokenAvailableList(providerId);
+        Cache tokensCache = cacheManager.getCache("provider:tokens");
+        if (tokensCache != null) {
+            tokensCache.evict(providerId);
+        }
+        configVersionService.bumpVersion(userId);
+    }
+
+    private void refreshConfigIfStale() {
+        long now = System.currentTimeMillis();
+        if (now - configLoadedAt < CONFIG_REFRESH_MILLIS) {
+            return;
+        }
+        configLoadedAt = now;
+        try {
+            int threshold = globalConfigService.getIntConfigValue(
+                    GlobalConfig.ConfigKeys.TOKEN_ERROR_THRESHOLD, DEFAULT_ERROR_THRESHOLD);
+            int cooldown = globalConfigService.getIntConfigValue(
+                    GlobalConfig.ConfigKeys.TOKEN_COOLDOWN_PERIOD, DEFAULT_COOLDOWN_SECONDS);
+            errorThreshold = Math.max(threshold, 1);
+            cooldownMillis = Math.max(cooldown, 1) * 1000L;
+        } catch (Exception e) {
+            log.warn("⚠️ [Token熔断] 读取熔断配置失败，沿用当前配置: {}", e.getMessage());
+        }
+    }
+
+    private enum Transition {
+        NONE,
+        OPENED,
+        HALF_OPENED,
+        CLOSED
+    }
+
+    /**
+     * 单个 Token 的熔断器，状态变更在 synchronized(this) 内完成
+     */
+    private static final class Breaker {
+        private final String providerId;
+        private final long[] bucketEpochs = new long[BUCKET_COUNT];
+        private final long[] bucketSuccesses = new long[BUCKET_COUNT];
+        private final long[] bucketFailures = new long[BUCKET_COUNT];
+
+        private volatile State state = State.CLOSED;
+        private volatile long openedAt;
+        private volatile long lastProbeAt;
+        private Long userId;
+
+        private Breaker(String providerId) {
+            this.providerId = providerId;
+        }
+
+        private void record(long now, long successes, long failures) {
+            long epoch = now / BUCKET_MILLIS;
+            int index = (int) (epoch % BUCKET_COUNT);
+            if (bucketEpochs[index] != epoch) {
+                bucketEpochs[index] = epoch;
+                bucketSuccesses[index] = 0;
+                bucketFailures[index] = 0;
+            }
+            bucketSuccesses[index] += successes;
+            bucketFailures[index] += failures;
+        }
+
+        private Transition evaluate(long now, boolean succeeded, boolean failed, int threshold) {
+            switch (state) {
+                case HALF_OPEN:
+                    if (failed) {
+                        open(now);
+                        return Transition.OPENED;
+                    }
+                    if (succeeded) {
+                        close();
+                        return Transition.CLOSED;
+                    }
+                    return Transition.NONE;
+                case CLOSED:
+                    long minEpoch = now / BUCKET_MILLIS - BUCKET_COUNT + 1;
+                    long successes = 0;
+                    long failures = 0;
+                    for (int i = 0; i < BUCKET_COUNT; i++) {
+                        if (bucketEpochs[i] >= minEpoch) {
+                            successes += bucketSuccesses[i];
+                            failures += bucketFailures[i];
+                        }
+                    }
+                    if (failures >= threshold && failures >= (successes + failures) * FAILURE_RATE_THRESHOLD) {
+                        open(now);
+                        return Transition.OPENED;
+                    }
+                    return Transition.NONE;
+                default:
+                    return Transition.NONE;
+            }
+        }
+
+        private boolean isIdle(long now) {
+            if (state != State.CLOSED) {
+                return false;
+            }
+            long minEpoch = now / BUCKET_MILLIS - BUCKET_COUNT + 1;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                if (bucketEpochs[i] >= minEpoch) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private Transition checkCooldown(long now, long cooldownMillis) {
+            if (state == State.OPEN && now - openedAt >= cooldownMillis) {
+                state = State.HALF_OPEN;
+                lastProbeAt = 0;
+                return Transition.HALF_OPENED;
+            }
+            return Transition.NONE;
+        }
+
+        private synchronized boolean tryAcquire(long now) {
+            switch (state) {
+                case OPEN:
+                    return false;
+                case HALF_OPEN:
+                    if (now - lastProbeAt >= PROBE_INTERVAL_MILLIS) {
+                        lastProbeAt = now;
+                        return true;
+                    }
+                    return false;
+                default:
+                    return true;
+            }
+        }
+
+        private void open(long now) {
+            state = State.OPEN;
+            openedAt = now;
+        }
+
+        private void close() {
+            state = State.CLOSED;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                bucketEpochs[i] = 0;
+                bucketSuccesses[i] = 0;
+                bucketFailures[i] = 0;
+            }
+        }
+    }
+}
@@ -16,6 +16,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Token加密服务实现类
@@ -43,6 +45,11 @@ public class TokenEncryptionServiceImpl implements ITokenEncryptionService {
 
     private static final String VERSION_PREFIX = "AES-256-GCM$v1$";
 
+    /**
+     * 批量加密时启用并行的最小数量（数量较少时并行调度开销大于收益）
+     */
+    private static final int PARALLEL_THRESHOLD = 16;
+
     private final SecretKey masterKey;
 
     /**
@@ -95,6 +102,18 @@ public class TokenEncryptionServiceImpl implements ITokenEncryptionService {
         }
     }
 
+    @Override
+    public List<String> encryptAll(List<String> plaintexts) {
+        if (plaintexts == null || plaintexts.isEmpty()) {
+            return List.of();
+        }
+        // Cipher 实例在 encrypt 内部按次创建，主密钥只读，可安全并行
+        if (plaintexts.size() < PARALLEL_THRESHOLD) {
+            return plaintexts.stream().map(this::encrypt).collect(Collectors.toList());
+        }
+        return plaintexts.parallelStream().map(this::encrypt).collect(Collectors.toList());
+    }
+
     @Override
     public String decrypt(String encrypted) {
         try {
@@ -0,0 +1,288 @@
+package com.llmctl.service.impl;
+
+import com.llmctl.entity.Token;
+import com.llmctl.mapper.SessionMapper;
+import com.llmctl.service.ITokenLoadTracker;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Token 负载跟踪实现类
+ *
+ * 活跃会话数每 15 秒从 sessions 表按 token_id 汇总一次（全局准确），两次汇总之间本节点新开的会话在内存中累加：
+ * 事务提交前计为待定，提交后才转入本地增量，汇总时只扣除已提交的部分，避免扣掉数据库里还看不到的会话。
+ * 没有活跃会话、本周期也没有样本的 Token 在汇总后移出内存；
+ * 错误率与延迟按节点在内存中做 EWMA。开启 token.load.redis-shared 后，各节点在同步时把 EWMA 写入 Redis 哈希，
+ * 并以本地值与共享值中较差的一个参与打分
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenLoadTrackerImpl implements ITokenLoadTracker {
+
+    private static final long SYNC_INTERVAL_SECONDS = 15;
+    private static final double EWMA_ALPHA = 0.2;
+
+    /**
+     * 同步周期内没有新样本时错误率的衰减系数，避免 Token 因历史错误被长期冷落
+     */
+    private static final double IDLE_ERROR_DECAY = 0.5;
+
+    /**
+     * 打分参数：错误率的放大倍数、延迟的参考值（毫秒）
+     */
+    private static final double ERROR_PENALTY = 4.0;
+    private static final double LATENCY_REFERENCE_MILLIS = 2000.0;
+
+    private static final String SHARED_EWMA_KEY = "token:load:ewma";
+    private static final Duration SHARED_EWMA_TTL = Duration.ofMinutes(10);
+
+    private final SessionMapper sessionMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${token.load.redis-shared:false}")
+    private boolean redisShared;
+
+    private final ConcurrentHashMap<String, Load> loads = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService syncExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "token-load-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void start() {
+        syncExecutor.scheduleWithFixedDelay(this::syncQuietly, 0, SYNC_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        syncExecutor.shutdownNow();
+    }
+
+    @Override
+    public void sessionStarted(String tokenId) {
+        if (tokenId == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update(tokenId, load -> load.localStarts.incrementAndGet());
+            return;
+        }
+        update(tokenId, load -> load.pendingStarts.incrementAndGet());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                update(tokenId, load -> {
+                    load.pendingStarts.decrementAndGet();
+                    if (status == STATUS_COMMITTED) {
+                        load.localStarts.incrementAndGet();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 在 Map 的原子操作内修改计数，避免与汇总后的清理并发时增量落在已移除的对象上
+     */
+    private void update(String tokenId, Consumer<Load> action) {
+        loads.compute(tokenId, (id, load) -> {
+            Load target = load != null ? load : new Load();
+            action.accept(target);
+            return target;
+        });
+    }
+
+    @Override
+    public void recordOutcome(String tokenId, long successes, long failures, Long latencyMillis) {
+        long total = Math.max(successes, 0) + Math.max(failures, 0);
+        if (tokenId == null || total == 0) {
+            return;
+        }
+        Load load = loads.computeIfAbsent(tokenId, id -> new Load());
+        synchronized (load) {
+            double errorRate = (double) Math.max(failures, 0) / total;
+            load.errorEwma = load.errorEwma + EWMA_ALPHA * (errorRate - load.errorEwma);
+            if (latencyMillis != null && latencyMillis >= 0) {
+                load.latencyEwma = load.latencyEwma == 0
+                        ? latencyMillis
+                        : load.latencyEwma + EWMA_ALPHA * (latencyMillis - load.latencyEwma);
+            }
+            load.sampled = true;
+        }
+    }
+
+    @Override
+    public int activeSessions(String tokenId) {
+        Load load = loads.get(tokenId);
+        return load != null ? load.syncedActive + load.localStarts.get() + load.pendingStarts.get() : 0;
+    }
+
+    @Override
+    public Token select(List<Token> tokens) {
+        if (tokens.size() == 1) {
+            return tokens.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(tokens.size());
+        int second = random.nextInt(tokens.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Token a = tokens.get(first);
+        Token b = tokens.get(second);
+        double scoreA = score(a);
+        double scoreB = score(b);
+        Token selected = scoreA <= scoreB ? a : b;
+        log.debug("⚖️ [负载感知] 候选 {}={} / {}={} -> {}",
+                a.getId(), String.format("%.3f", scoreA), b.getId(), String.format("%.3f", scoreB), selected.getId());
+        return selected;
+    }
+
+    /**
+     * 负载分：(活跃会话 + 1) × 错误惩罚 × 延迟惩罚 ÷ 权重，越低越好
+     */
+    private double score(Token token) {
+        Load load = loads.get(token.getId());
+        int weight = token.getWeight() != null && token.getWeight() > 0 ? token.getWeight() : 1;
+        if (load == null) {
+            return 1.0 / weight;
+        }
+        double errorEwma = Math.max(load.errorEwma, load.sharedErrorEwma);
+        double latencyEwma = Math.max(load.latencyEwma, load.sharedLatencyEwma);
+        int active = activeSessions(token.getId());
+        return (active + 1)
+                * (1 + ERROR_PENALTY * errorEwma)
+                * (1 + latencyEwma / LATENCY_REFERENCE_MILLIS)
+                / weight;
+    }
+
+    private void syncQuietly() {
+        try {
+            syncActiveSessions();
+            decayIdle();
+            if (redisShared) {
+                syncSharedEwma();
+            }
+            pruneIdle();
+        } catch (Exception e) {
+            log.warn("⚠️ [负载感知] 同步Token负载失败: {}", e.getMessage());
+        }
+    }
+
+    private void syncActiveSessions() {
+        // 先记下查询前的本地增量，查询后只扣除这部分，查询期间新开的会话保留到下一轮
+        Map<String, Integer> startsBefore = new HashMap<>();
+        loads.forEach((tokenId, load) -> startsBefore.put(tokenId, load.localStarts.get()));
+
+        Map<String, Integer> active = new HashMap<>();
+        for (Map<String, Object> row : sessionMapper.countActiveGroupByToken()) {
+            Object tokenId = row.get("tokenId");
+            Object count = row.get("activeCount");
+            if (tokenId != null && count instanceof Number number) {
+                active.put(tokenId.toString(), number.intValue());
+            }
+        }
+
+        loads.forEach((tokenId, load) -> {
+            load.syncedActive = active.getOrDefault(tokenId, 0);
+            load.localStarts.addAndGet(-startsBefore.getOrDefault(tokenId, 0));
+        });
+        active.forEach((tokenId, count) -> loads.computeIfAbsent(tokenId, id -> new Load()).syncedActive = count);
+    }
+
+    /**
+     * 移除没有活跃会话、本周期没有样本的 Token（包括已删除的 Token）
+     */
+    private void pruneIdle() {
+        for (String tokenId : loads.keySet()) {
+            loads.computeIfPresent(tokenId, (id, load) -> load.isIdle() ? null : load);
+        }
+    }
+
+    private void decayIdle() {
+        loads.values().forEach(load -> {
+            synchronized (load) {
+                if (!load.sampled) {
+                    load.errorEwma *= IDLE_ERROR_DECAY;
+                }
+                load.pendingPublish = load.sampled;
+                load.sampled = false;
+            }
+        });
+    }
+
+    private void syncSharedEwma() {
+        Map<String, String> updates = new HashMap<>();
+        loads.forEach((tokenId, load) -> {
+            if (load.pendingPublish) {
+                updates.put(tokenId, load.errorEwma + "," + load.latencyEwma);
+            }
+        });
+        if (!updates.isEmpty()) {
+            stringRedisTemplate.opsForHash().putAll(SHARED_EWMA_KEY, updates);
+            stringRedisTemplate.expire(SHARED_EWMA_KEY, SHARED_EWMA_TTL);
+        }
+
+        Map<Object, Object> shared = stringRedisTemplate.opsForHash().entries(SHARED_EWMA_KEY);
+        loads.forEach((tokenId, load) -> {
+            Object value = shared.get(tokenId);
+            if (value == null) {
+                load.sharedErrorEwma = 0;
+                load.sharedLatencyEwma = 0;
+                return;
+            }
+            String[] parts = value.toString().split(",");
+            try {
+                load.sharedErrorEwma = Double.parseDouble(parts[0]);
+                load.sharedLatencyEwma = parts.length > 1 ? Double.parseDouble(parts[1]) : 0;
+            } catch (NumberFormatException e) {
+                log.debug("忽略无法解析的共享负载数据: {} = {}", tokenId, value);
+            }
+        });
+    }
+
+    /**
+     * 单个 Token 的负载数据
+     */
+    private static final class Load {
+        private final AtomicInteger localStarts = new AtomicInteger();
+        private final AtomicInteger pendingStarts = new AtomicInteger();
+        private volatile int syncedActive;
+        private volatile double errorEwma;
+        private volatile double latencyEwma;
+        private volatile double sharedErrorEwma;
+        private volatile double sharedLatencyEwma;
+        private boolean sampled;
+        private volatile boolean pendingPublish;
+
+        private boolean isIdle() {
+            return syncedActive == 0 && localStarts.get() == 0 && pendingStarts.get() == 0 && !pendingPublish;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.llmctl.service.impl;
+
+import com.llmctl.service.ITokenRevocationService;
+import com.llmctl.utils.BloomFilter;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT 吊销服务实现类
+ *
+ * Redis 数据结构：
+ * - auth:revoked:sid   ZSET，成员为登录会话ID，score 为吊销记录过期时间（毫秒）
+ * - auth:revoked:user  ZSET，成员为用户ID，score 为吊销时间（毫秒），早于该时间签发的Token全部失效
+ * - auth:refresh:used:{jti}  已使用的 Refresh Token，值为首次使用时间（毫秒），TTL 为该 Token 的剩余有效期
+ *
+ * 同一 Refresh Token 在首次使用后的宽限期内再次出现（客户端并发刷新、响应丢失后重试）仍视为正常轮换，
+ * 超过宽限期才按被盗用处理并吊销整个登录会话
+ *
+ * 新增吊销时通过 auth:revoked 频道广播，各实例写入本地布隆过滤器；
+ * 每 10 分钟清理过期记录并整体重建布隆过滤器，重建期间收到的广播同时写入新旧两个过滤器
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenRevocationServiceImpl implements ITokenRevocationService {
+
+    private static final String SESSION_KEY = "auth:revoked:sid";
+    private static final String USER_KEY = "auth:revoked:user";
+    private static final String USED_PREFIX = "auth:refresh:used:";
+    private static final String CHANNEL = "auth:revoked";
+
+    private static final String SESSION_MEMBER_PREFIX = "s:";
+    private static final String USER_MEMBER_PREFIX = "u:";
+
+    private static final long EXPECTED_REVOCATIONS = 100_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final long REBUILD_INTERVAL_MINUTES = 10;
+
+    /**
+     * KEYS: 会话吊销ZSET, 用户吊销ZSET, 已使用标记
+     * ARGV: sid, userId, 签发时间毫秒, 标记TTL毫秒, 当前毫秒, 会话吊销过期毫秒, 频道, 重用宽限毫秒
+     * 返回: 0 首次使用或宽限期内重用, 1 超过宽限期的重复使用（已吊销会话）, 2 会话或用户已被吊销
+     */
+    private static final RedisScript<Long> CONSUME_SCRIPT = new DefaultRedisScript<>("""
+            local revokedSession = redis.call('ZSCORE', KEYS[1], ARGV[1])
+            if revokedSession and tonumber(revokedSession) > tonumber(ARGV[5]) then
+                return 2
+            end
+            local revokedUser = redis.call('ZSCORE', KEYS[2], ARGV[2])
+            if revokedUser and tonumber(revokedUser) >= tonumber(ARGV[3]) then
+                return 2
+            end
+            if redis.call('SET', KEYS[3], ARGV[5], 'PX', ARGV[4], 'NX') then
+                return 0
+            end
+            local usedAt = tonumber(redis.call('GET', KEYS[3]))
+            if usedAt and tonumber(ARGV[5]) - usedAt <= tonumber(ARGV[8]) then
+                return 0
+            end
+            redis.call('ZADD', KEYS[1], ARGV[6], ARGV[1])
+            redis.call('PUBLISH', ARGV[7], 's:' .. ARGV[1])
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${jwt.refresh-expiration}")
+    private Long refreshExpiration;
+
+    @Value("${jwt.refresh-reuse-grace-millis:5000}")
+    private long reuseGraceMillis;
+
+    private volatile BloomFilter bloom = new BloomFilter(EXPECTED_REVOCATIONS, FALSE_POSITIVE_RATE);
+    private volatile BloomFilter building;
+
+    private final ScheduledExecutorService rebuildExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "token-revocation-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void start() {
+        MessageListener listener = (message, pattern) ->
+                remember(new String(message.getBody(), StandardCharsets.UTF_8));
+        listenerContainer.addMessageListener(listener, new ChannelTopic(CHANNEL));
+        rebuildExecutor.scheduleWithFixedDelay(this::rebuildQuietly, 0, REBUILD_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    @Override
+    public boolean isRevoked(Claims claims) {
+        String sessionId = claims.get("sid", String.class);
+        Long userId = claims.get("userId", Long.class);
+        BloomFilter current = bloom;
+        boolean sessionHit = sessionId != null && current.mightContain(SESSION_MEMBER_PREFIX + sessionId);
+        boolean userHit = userId != null && current.mightContain(USER_MEMBER_PREFIX + userId);
+        if (!sessionHit && !userHit) {
+            return false;
+        }
+        // 布隆过滤器命中，查询 Redis 排除误判；Redis 不可用时按已吊销处理
+        try {
+            long now = System.currentTimeMillis();
+            if (sessionHit) {
+                Double expireAt = stringRedisTemplate.opsForZSet().score(SESSION_KEY, sessionId);
+                if (expireAt != null && expireAt > now) {
+                    return true;
+                }
+            }
+            if (userHit) {
+                Double revokedAt = stringRedisTemplate.opsForZSet().score(USER_KEY, String.valueOf(userId));
+                long issuedAt = claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0;
+                if (revokedAt != null && revokedAt >= issuedAt) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (Exception e) {
+            log.warn("⚠️ [Token吊销] Redis确认失败，按已吊销处理: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    @Override
+    public RotationResult consumeRefreshToken(Claims claims) {
+        long now = System.currentTimeMillis();
+        String sessionId = claims.get("sid", String.class);
+        if (sessionId == null || claims.getId() == null) {
+            // 升级前签发的 Refresh Token 不含 jti/sid，无法保证一次性使用，要求重新登录
+            return RotationResult.REVOKED;
+        }
+        long issuedAt = claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0;
+        long remaining = Math.max(claims.getExpiration().getTime() - now, 1000);
+
+        Long result = stringRedisTemplate.execute(CONSUME_SCRIPT,
+                Arrays.asList(SESSION_KEY, USER_KEY, USED_PREFIX + claims.getId()),
+                sessionId,
+                String.valueOf(claims.get("userId", Long.class)),
+                String.valueOf(issuedAt),
+                String.valueOf(remaining),
+                String.valueOf(now),
+                String.valueOf(now + refreshExpiration),
+                CHANNEL,
+                String.valueOf(reuseGraceMillis));
+        if (result == null || result == 2) {
+            return RotationResult.REVOKED;
+        }
+        if (result == 1) {
+            log.warn("🚫 [Token吊销] Refresh Token被重复使用，吊销登录会话: {}", sessionId);
+            remember(SESSION_MEMBER_PREFIX + sessionId);
+            return RotationResult.REUSED;
+        }
+        return RotationResult.OK;
+    }
+
+    @Override
+    public void revokeSession(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        long expireAt = System.currentTimeMillis() + refreshExpiration;
+        stringRedisTemplate.opsForZSet().add(SESSION_KEY, sessionId, expireAt);
+        publish(SESSION_MEMBER_PREFIX + sessionId);
+    }
+
+    @Override
+    public void revokeUser(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        stringRedisTemplate.opsForZSet().add(USER_KEY, String.valueOf(userId), System.currentTimeMillis());
+        publish(USER_MEMBER_PREFIX + userId);
+    }
+
+    private void publish(String member) {
+        remember(member);
+        stringRedisTemplate.convertAndSend(CHANNEL, member);
+    }
+
+    private void remember(String member) {
+        bloom.put(member);
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(member);
+        }
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("⚠️ [Token吊销] 重建布隆过滤器失败，沿用当前过滤器: {}", e.getMessage());
+        } finally {
+            building = null;
+        }
+    }
+
+    private void rebuild() {
+        long now = System.currentTimeMillis();
+        stringRedisTemplate.opsForZSet().removeRangeByScore(SESSION_KEY, 0, now);
+        stringRedisTemplate.opsForZSet().removeRangeByScore(USER_KEY, 0, now - refreshExpiration);
+
+        BloomFilter next = new BloomFilter(EXPECTED_REVOCATIONS, FALSE_POSITIVE_RATE);
+        building = next;
+        Set<String> sessions = stringRedisTemplate.opsForZSet().range(SESSION_KEY, 0, -1);
+        Set<String> users = stringRedisTemplate.opsForZSet().range(USER_KEY, 0, -1);
+        if (sessions != null) {
+            sessions.forEach(sid -> next.put(SESSION_MEMBER_PREFIX + sid));
+        }
+        if (users != null) {
+            users.forEach(userId -> next.put(USER_MEMBER_PREFIX + userId));
+        }
+        bloom = next;
+        log.debug("🔄 [Token吊销] 布隆过滤器已重建，会话: {}, 用户: {}",
+                sessions != null ? sessions.size() : 0, users != null ? users.size() : 0);
+    }
+}
@@ -11,9 +11,16 @@ import com.llmctl.mapper.TokenMapper;
 import com.llmctl.service.TokenService;
 import com.llmctl.service.ITokenEncryptionService;
 import com.llmctl.service.ICacheService;
+import com.llmctl.service.IConfigVersionService;
+import com.llmctl.service.ITokenUsageMeter;
+import com.llmctl.service.ITokenCircuitBreaker;
+import com.llmctl.service.ITokenLoadTracker;
+import com.llmctl.service.ITokenAffinityRouter;
 import com.llmctl.exception.ServiceException;
 import com.llmctl.exception.ResourceNotFoundException;
 import com.llmctl.exception.BusinessException;
+import com.llmctl.utils.DataUtils;
+import com.llmctl.utils.IdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
@@ -23,12 +30,9 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Random;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 /**
@@ -47,6 +51,11 @@ public class TokenServiceImpl implements TokenService {
     private final ProviderMapper providerMapper;
     private final ITokenEncryptionService encryptionService;
     private final ICacheService cacheService;  // ✅ 注入缓存服务
+    private final IConfigVersionService configVersionService;
+    private final ITokenUsageMeter tokenUsageMeter;
+    private final ITokenCircuitBreaker tokenCircuitBreaker;
+    private final ITokenLoadTracker tokenLoadTracker;
+    private final ITokenAffinityRouter tokenAffinityRouter;
     private final Random random = new Random();
 
     /**
@@ -81,6 +90,13 @@ public class TokenServiceImpl implements TokenService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public void checkProviderAccess(String providerId) {
+        if (providerMapper.findById(providerId, UserContext.getUserId()) == null) {
+            throw new IllegalArgumentException("Provider不存在或无权访问: " + providerId);
+        }
+    }
+
     @Override
     public List<TokenDTO> getAvailableTokensByProviderId(String providerId) {
         Long userId = UserContext.getUserId();
@@ -129,6 +145,7 @@ public class TokenServiceImpl implements TokenService {
 
         // ✅ 清除 Token 可用列表缓存
         cacheService.evictTokenAvailableList(providerId);
+        configVersionService.bumpVersion(userId);
 
         // 检查Provider是否存在且属于当前用户
         Provider provider = providerMapper.findById(providerId, userId);
@@ -150,7 +167,7 @@ public class TokenServiceImpl implements TokenService {
 
         // 创建Token实体
         Token token = new Token();
-        token.setId(generateTokenId());
+        token.setId(IdGenerator.generateTokenId());
         token.setUserId(userId);
         token.setProviderId(providerId);
         token.setValue(encryptTokenValue(request.getValue())); // AES-256-GCM加密存储
@@ -188,6 +205,7 @@ public class TokenServiceImpl implements TokenService {
 
         // ✅ 清除 Token 可用列表缓存
         cacheService.evictTokenAvailableList(providerId);
+        configVersionService.bumpVersion(userId);
 
         // 验证Provider是否属于当前用户
         Provider provider = providerMapper.findById(providerId, userId);
@@ -237,6 +255,8 @@ public class TokenServiceImpl implements TokenService {
         }
         if (request.getHealthy() != null) {
             existingToken.setHealthy(request.getHealthy());
+            // 手动指定健康状态时以手动结果为准，清除熔断器状态
+            tokenCircuitBreaker.reset(tokenId);
         }
 
         existingToken.setUpdatedAt(LocalDateTime.now());
@@ -263,6 +283,7 @@ public class TokenServiceImpl implements TokenService {
 
         // ✅ 清除 Token 可用列表缓存
         cacheService.evictTokenAvailableList(providerId);
+        configVersionService.bumpVersion(userId);
 
         // 验证Provider是否属于当前用户
         Provider provider = providerMapper.findById(providerId, userId);
@@ -287,6 +308,11 @@ public class TokenServiceImpl implements TokenService {
 
     @Override
     public Token selectToken(String providerId) {
+        return selectToken(providerId, null);
+    }
+
+    @Override
+    public Token selectToken(String providerId, String workingDirectory) {
         // 注意：这个方法可能在Session启动时被调用，此时需要验证Provider权限
         // 但由于调用方已经验证过Provider，这里可以保持现状或添加额外验证
         log.debug("为Provider选择Token: {}", providerId);
@@ -311,6 +337,9 @@ public class TokenServiceImpl implements TokenService {
             }
         }
 
+        // 过滤熔断中的Token（熔断状态在内存中，状态切换立即生效）
+        availableTokens = tokenCircuitBreaker.filterAllowed(providerId, availableTokens);
+
         if (availableTokens.isEmpty()) {
             log.warn("Provider {} 没有可用的Token", providerId);
             return null;
@@ -332,21 +361,30 @@ public class TokenServiceImpl implements TokenService {
             strategy = Provider.TokenStrategyType.ROUND_ROBIN;
         }
 
-        switch (strategy) {
-            case ROUND_ROBIN:
-                selectedToken = selectByRoundRobin(availableTokens);
-                break;
-            case WEIGHTED:
-                selectedToken = selectByWeight(availableTokens);
-                break;
-            case RANDOM:
-                selectedToken = selectByRandom(availableTokens);
-                break;
-            case LEAST_USED:
-                selectedToken = selectByLeastUsed(availableTokens);
-                break;
-            default:
-                selectedToken = availableTokens.get(0);
+        boolean affinity = Boolean.TRUE.equals(provider.getTokenAffinityEnabled())
+                && StringUtils.hasText(workingDirectory);
+        if (affinity) {
+            selectedToken = tokenAffinityRouter.route(UserContext.getUserId(), providerId, workingDirectory, availableTokens);
+        } else {
+            switch (strategy) {
+                case ROUND_ROBIN:
+                    selectedToken = selectByRoundRobin(availableTokens);
+                    break;
+                case WEIGHTED:
+                    selectedToken = selectByWeight(availableTokens);
+                    break;
+                case RANDOM:
+                    selectedToken = selectByRandom(availableTokens);
+                    break;
+                case LEAST_USED:
+                    selectedToken = selectByLeastUsed(availableTokens);
+                    break;
+                case ADAPTIVE:
+                    selectedToken = tokenLoadTracker.select(availableTokens);
+                    break;
+                default:
+                    selectedToken = availableTokens.get(0);
+            }
         }
 
         if (selectedToken != null) {
@@ -400,7 +438,24 @@ public class TokenServiceImpl implements TokenService {
         log.info("📝 [更新前状态] Token: {} | 当前健康: {} | 目标健康: {}",
                 token.getAlias(), token.getHealthy(), healthy);
 
-        int result = tokenMapper.updateHealthStatus(tokenId, healthy);
+        if (!healthy) {
+            // 客户端标记不健康后会立即重新启动会话，必须马上下线该Token，不能等滑动窗口累计到阈值；
+            // 由熔断器打开，冷却期满后经半开探测自动恢复。该请求已在启动会话时计入请求数，这里只补记失败
+            tokenUsageMeter.record(token.getProviderId(), tokenId, 0, 1, 0);
+            tokenCircuitBreaker.forceOpen(token.getProviderId(), tokenId);
+            tokenLoadTracker.recordOutcome(tokenId, 0, 1, null);
+            log.info("🔌 [Token熔断] 已记录失败: {} | 熔断状态: {}",
+                    token.getAlias(), tokenCircuitBreaker.getState(tokenId));
+            return;
+        }
+
+        // 手动恢复健康：关闭熔断器并立即让Token重新进入可用列表
+        tokenCircuitBreaker.reset(tokenId);
+        int result = tokenMapper.updateHealthStatus(tokenId, true);
+        if (result > 0) {
+            cacheService.evictTokenAvailableList(token.getProviderId());
+            configVersionService.bumpVersion(userId);
+        }
 
         if (result > 0) {
             log.info("✅ [更新Token健康状态成功] Token: {} | 新状态: {} | 影响行数: {}",
@@ -430,7 +485,12 @@ public class TokenServiceImpl implements TokenService {
         }
 
         // 批量恢复不健康的Token
+        tokenCircuitBreaker.resetProvider(providerId);
         int affectedRows = tokenMapper.recoverAllUnhealthyTokens(providerId);
+        if (affectedRows > 0) {
+            cacheService.evictTokenAvailableList(providerId);
+            configVersionService.bumpVersion(userId);
+        }
 
         if (affectedRows > 0) {
             log.info("✅ [批量恢复成功] Provider: {} | 已恢复 {} 个Token的健康状态",
@@ -536,13 +596,6 @@ public class TokenServiceImpl implements TokenService {
                 .orElse(null);
     }
 
-    /**
-     * 生成Token ID
-     */
-    private String generateTokenId() {
-        return "token_" + UUID.randomUUID().toString().replace("-", "");
-    }
-
     /**
      * 生成Token值的SHA-256 Hash
      * 用于唯一性检查，确保相同的Token值产生相同的Hash
@@ -551,24 +604,7 @@ public class TokenServiceImpl implements TokenService {
      * @return SHA-256 Hex字符串
      */
     private String generateTokenHash(String tokenValue) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hashBytes = digest.digest(tokenValue.getBytes(StandardCharsets.UTF_8));
-
-            // 转换为十六进制字符串
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hashBytes) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (Exception e) {
-            log.error("生成Token Hash失败", e);
-            throw new ServiceException("Token Hash生成", "Hash生成失败: " + e.getMessage());
-        }
+        return DataUtils.sha256Hex(tokenValue);
     }
 
     /**
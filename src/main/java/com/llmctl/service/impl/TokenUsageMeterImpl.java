@@ -0,0 +1,196 @@
+package com.llmctl.service.impl;
+
+import com.llmctl.entity.UsageStatistics;
+import com.llmctl.mapper.UsageStatisticsMapper;
+import com.llmctl.service.ITokenUsageMeter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Token 用量计量服务实现类
+ *
+ * 计数按 (Token, 日期) 聚合在 LongAdder 中，热路径只持有共享读锁、无数据库访问；
+ * 后台线程每 10 秒在写锁内一次性取出三个计数的增量（保证同一次上报的请求数与失败数落在同一行），
+ * 分块批量 upsert 到 usage_statistics，写库失败时把增量加回内存，下一轮重试
+ *
+ * @author Liu Yifan
+ * @version 2.3.2
+ * @since 2026-10-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenUsageMeterImpl implements ITokenUsageMeter {
+
+    private static final long FLUSH_INTERVAL_SECONDS = 10;
+    private static final int FLUSH_CHUNK_SIZE = 500;
+
+    private final UsageStatisticsMapper usageStatisticsMapper;
+
+    private final ConcurrentHashMap<CounterKey, Counters> counters = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "token-usage-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void start() {
+        flushExecutor.scheduleWithFixedDelay(this::flushQuietly,
+                FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        try {
+            flushExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    @Override
+    public void record(String providerId, String tokenId, long requests, long errors, long tokens) {
+        if (providerId == null || tokenId == null || (requests <= 0 && errors <= 0 && tokens <= 0)) {
+            return;
+        }
+        add(new CounterKey(tokenId, LocalDate.now()), providerId,
+                Math.max(requests, 0), Math.max(errors, 0), Math.max(tokens, 0));
+    }
+
+    /**
+     * 累加计数；取到的计数器已被刷新线程移出 Map 时重新获取，避免增量落在已丢弃的对象上
+     */
+    private void add(CounterKey key, String providerId, long requests, long errors, long tokens) {
+        while (true) {
+            Counters c = counters.computeIfAbsent(key, k -> new Counters(providerId));
+            long stamp = c.lock.readLock();
+            try {
+                if (c.retired) {
+                    continue;
+                }
+                c.requests.add(requests);
+                c.errors.add(errors);
+                c.tokens.add(tokens);
+                return;
+            } finally {
+                c.lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    @Override
+    public synchronized int flush() {
+        LocalDate today = LocalDate.now();
+        List<UsageStatistics> batch = new ArrayList<>();
+
+        for (Map.Entry<CounterKey, Counters> entry : counters.entrySet()) {
+            CounterKey key = entry.getKey();
+            Counters c = entry.getValue();
+            long requests;
+            long errors;
+            long tokens;
+            long stamp = c.lock.writeLock();
+            try {
+                // 过期日期的计数不会再有新写入：标记后移出 Map，仍持有旧引用的写入方会重新获取计数器
+                if (key.date().isBefore(today)) {
+                    c.retired = true;
+                    counters.remove(key, c);
+                }
+                requests = c.requests.sumThenReset();
+                errors = c.errors.sumThenReset();
+                tokens = c.tokens.sumThenReset();
+            } finally {
+                c.lock.unlockWrite(stamp);
+            }
+            if (requests == 0 && errors == 0 && tokens == 0) {
+                continue;
+            }
+            UsageStatistics stat = new UsageStatistics();
+            stat.setProviderId(c.providerId);
+            stat.setTokenId(key.tokenId());
+            stat.setRequestCount(capToInt(requests, key));
+            stat.setSuccessCount(capToInt(Math.max(requests - errors, 0), key));
+            stat.setErrorCount(capToInt(errors, key));
+            stat.setTotalTokens(capToInt(tokens, key));
+            stat.setDate(key.date());
+            batch.add(stat);
+        }
+
+        int written = 0;
+        for (int from = 0; from < batch.size(); from += FLUSH_CHUNK_SIZE) {
+            int to = Math.min(from + FLUSH_CHUNK_SIZE, batch.size());
+            List<UsageStatistics> chunk = batch.subList(from, to);
+            try {
+                usageStatisticsMapper.batchIncrement(chunk);
+                written += chunk.size();
+            } catch (Exception e) {
+                log.warn("⚠️ [Token用量] 批量写入失败，{} 行计数回填内存等待重试: {}", chunk.size(), e.getMessage());
+                restore(chunk);
+            }
+        }
+        if (written > 0) {
+            log.debug("📊 [Token用量] 刷新 {} 行用量统计", written);
+        }
+        return written;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("❌ [Token用量] 刷新用量统计异常", e);
+        }
+    }
+
+    private void restore(List<UsageStatistics> chunk) {
+        for (UsageStatistics stat : chunk) {
+            add(new CounterKey(stat.getTokenId(), stat.getDate()), stat.getProviderId(),
+                    stat.getRequestCount(), stat.getErrorCount(), stat.getTotalTokens());
+        }
+    }
+
+    /**
+     * usage_statistics 的计数列为 INT，单行增量超出范围时截断并记录告警
+     */
+    private static int capToInt(long value, CounterKey key) {
+        if (value > Integer.MAX_VALUE) {
+            log.warn("⚠️ [Token用量] 单次刷新计数超出INT范围，已截断: {} ({})", key.tokenId(), value);
+            return Integer.MAX_VALUE;
+        }
+        return (int) value;
+    }
+
+    private record CounterKey(String tokenId, LocalDate date) {
+    }
+
+    private static final class Counters {
+        private final String providerId;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder tokens = new LongAdder();
+        private final StampedLock lock = new StampedLock();
+        private boolean retired;
+
+        private Counters(String providerId) {
+            this.providerId = providerId;
+        }
+    }
+}
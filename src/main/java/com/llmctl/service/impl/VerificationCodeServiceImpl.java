@@ -1,24 +1,33 @@
 package com.llmctl.service.impl;
 
-import com.llmctl.entity.EmailVerificationCode;
 import com.llmctl.entity.User;
 import com.llmctl.exception.BusinessException;
-import com.llmctl.mapper.EmailVerificationCodeMapper;
 import com.llmctl.mapper.UserMapper;
 import com.llmctl.service.IEmailService;
 import com.llmctl.service.IVerificationCodeService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
-import java.util.Random;
-import java.util.UUID;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
 
 /**
  * 验证码服务实现类
  *
+ * 验证码保存在 Redis 中，依靠键的 TTL 自然过期：
+ * - verify:code:{purpose}:{email}   Hash{code, attempts}，TTL 为有效期
+ * - verify:cooldown:{email}         发送冷却标记
+ * - verify:daily:{email}:{yyyyMMdd} 当日发送次数
+ *
+ * 发送与校验各自是一次 Lua 调用：校验成功即删除（一次性），连续输错达到上限同样删除
+ *
  * @author Liu Yifan
  * @version 2.1.0
  * @since 2025-10-14
@@ -28,14 +37,73 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class VerificationCodeServiceImpl implements IVerificationCodeService {
 
-    private final EmailVerificationCodeMapper codeMapper;
+    private static final String CODE_PREFIX = "verify:code:";
+    private static final String COOLDOWN_PREFIX = "verify:cooldown:";
+    private static final String DAILY_PREFIX = "verify:daily:";
+
+    /**
+     * KEYS: 冷却标记, 当日计数, 验证码
+     * ARGV: 冷却秒数, 每日上限, 验证码, 有效期秒数
+     * 返回: 0 成功, 正数 冷却剩余秒数, -1 超过每日上限
+     */
+    private static final RedisScript<Long> SEND_SCRIPT = new DefaultRedisScript<>("""
+            local cooldown = redis.call('TTL', KEYS[1])
+            if cooldown > 0 then
+                return cooldown
+            end
+            local count = redis.call('INCR', KEYS[2])
+            if count == 1 then
+                redis.call('EXPIRE', KEYS[2], 86400)
+            end
+            if count > tonumber(ARGV[2]) then
+                return -1
+            end
+            redis.call('SET', KEYS[1], '1', 'EX', ARGV[1])
+            redis.call('DEL', KEYS[3])
+            redis.call('HSET', KEYS[3], 'code', ARGV[3], 'attempts', 0)
+            redis.call('EXPIRE', KEYS[3], ARGV[4])
+            return 0
+            """, Long.class);
+
+    /**
+     * KEYS: 验证码
+     * ARGV: 用户输入的验证码, 最大错误次数
+     * 返回: 1 验证通过（验证码已删除）, 0 验证失败
+     */
+    private static final RedisScript<Long> VERIFY_SCRIPT = new DefaultRedisScript<>("""
+            local expected = redis.call('HGET', KEYS[1], 'code')
+            if not expected then
+                return 0
+            end
+            if expected == ARGV[1] then
+                redis.call('DEL', KEYS[1])
+                return 1
+            end
+            if redis.call('HINCRBY', KEYS[1], 'attempts', 1) >= tonumber(ARGV[2]) then
+                redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final StringRedisTemplate stringRedisTemplate;
     private final UserMapper userMapper;
     private final IEmailService emailService;
-    private static final Random RANDOM = new Random();
-    private static final int CODE_EXPIRE_MINUTES = 5;
+
+    @Value("${verification.code.expire-seconds:300}")
+    private long expireSeconds;
+
+    @Value("${verification.code.resend-interval-seconds:60}")
+    private long resendIntervalSeconds;
+
+    @Value("${verification.code.daily-limit:10}")
+    private int dailyLimit;
+
+    @Value("${verification.code.max-attempts:5}")
+    private int maxAttempts;
 
     @Override
-    @Transactional
     public void sendVerificationCode(String email, String purpose) {
         // 如果是重置密码用途，需要先验证邮箱是否已绑定账户
         if ("RESET_PASSWORD".equals(purpose)) {
@@ -48,18 +116,20 @@ public class VerificationCodeServiceImpl implements IVerificationCodeService {
         // 生成6位数字验证码
         String code = String.format("%06d", RANDOM.nextInt(1000000));
 
-        // 创建验证码记录
-        EmailVerificationCode verificationCode = new EmailVerificationCode();
-        verificationCode.setId(UUID.randomUUID().toString());
-        verificationCode.setEmail(email);
-        verificationCode.setCode(code);
-        verificationCode.setPurpose(EmailVerificationCode.Purpose.valueOf(purpose));
-        verificationCode.setUsed(false);
-        verificationCode.setExpireTime(LocalDateTime.now().plusMinutes(CODE_EXPIRE_MINUTES));
-        verificationCode.setCreatedAt(LocalDateTime.now());
-
-        // 保存到数据库
-        codeMapper.insert(verificationCode);
+        // 限流与保存验证码在同一次Redis调用中完成，新验证码覆盖同用途的旧验证码
+        String dailyKey = DAILY_PREFIX + email + ":" + LocalDate.now().toString().replace("-", "");
+        Long result = stringRedisTemplate.execute(SEND_SCRIPT,
+                Arrays.asList(COOLDOWN_PREFIX + email, dailyKey, codeKey(email, purpose)),
+                String.valueOf(resendIntervalSeconds),
+                String.valueOf(dailyLimit),
+                code,
+                String.valueOf(expireSeconds));
+        if (result != null && result > 0) {
+            throw new BusinessException(429, "验证码发送过于频繁，请在 " + result + " 秒后重试");
+        }
+        if (result != null && result < 0) {
+            throw new BusinessException(429, "今日验证码发送次数已达上限，请明天再试");
+        }
 
         // 发送邮件
         emailService.sendVerificationCode(email, code, purpose);
@@ -68,20 +138,26 @@ public class VerificationCodeServiceImpl implements IVerificationCodeService {
     }
 
     @Override
-    @Transactional
     public boolean verifyCode(String email, String code, String purpose) {
-        // 查找有效的验证码
-        EmailVerificationCode verificationCode = codeMapper.findValidCode(email, code, purpose);
-
-        if (verificationCode == null) {
-            log.warn("验证码验证失败: email={}, code={}, purpose={}", email, code, purpose);
+        if (code == null) {
             return false;
         }
+        // 比对与删除在同一个脚本中完成，同一验证码只能通过一次
+        Long result = stringRedisTemplate.execute(VERIFY_SCRIPT,
+                Collections.singletonList(codeKey(email, purpose)),
+                code,
+                String.valueOf(maxAttempts));
 
-        // 标记为已使用
-        codeMapper.markAsUsed(verificationCode.getId());
+        if (result == null || result != 1) {
+            log.warn("验证码验证失败: email={}, purpose={}", email, purpose);
+            return false;
+        }
 
         log.info("验证码验证成功: email={}, purpose={}", email, purpose);
         return true;
     }
+
+    private String codeKey(String email, String purpose) {
+        return CODE_PREFIX + purpose + ":" + email;
+    }
 }
@@ -0,0 +1,58 @@
+package com.llmctl.task;
+
+import com.llmctl.service.IMcpTemplateCatalog;
+import com.xxl.job.core.context.XxlJobHelper;
+import com.xxl.job.core.handler.annotation.XxlJob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * MCP 模板目录刷新任务（基于 XXL-Job）
+ *
+ * ✅ 条件加载：仅当 xxl.job.enabled=true 时才启用此任务
+ * 管理员修改内置模板后可在 XXL-Job 控制台手动触发，立即重新加载模板目录；
+ * 未触发时各实例也会在指纹检查间隔（1分钟）内自行发现变化
+ *
+ * @author LLMctl Team
+ * @since v2.3.2
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "xxl.job.enabled", havingValue = "true", matchIfMissing = false)
+public class McpTemplateCatalogTask {
+
+    private final IMcpTemplateCatalog templateCatalog;
+
+    /**
+     * 重新加载 MCP 模板目录
+     *
+     * XXL-Job 配置建议：
+     * - JobHandler: refreshMcpTemplateCatalogJob
+     * - 路由策略: 分片广播（所有实例都需要刷新）
+     * - 运行模式: BEAN，手动触发
+     */
+    @XxlJob("refreshMcpTemplateCatalogJob")
+    public void refreshMcpTemplateCatalogJob() {
+        XxlJobHelper.log("========== 开始刷新 MCP 模板目录 ==========");
+
+        try {
+            templateCatalog.refresh();
+
+            String successMsg = "MCP 模板目录刷新完成，模板数量: " + templateCatalog.getAllTemplates().size();
+            log.info(successMsg);
+            XxlJobHelper.log(successMsg);
+            XxlJobHelper.handleSuccess(successMsg);
+
+        } catch (Exception e) {
+            String errorMsg = "刷新 MCP 模板目录失败: " + e.getMessage();
+            log.error(errorMsg, e);
+            XxlJobHelper.log(errorMsg);
+            XxlJobHelper.handleFail(errorMsg);
+        }
+
+        XxlJobHelper.log("========== MCP 模板目录刷新任务结束 ==========");
+    }
+}
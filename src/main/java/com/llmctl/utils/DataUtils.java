@@ -4,8 +4,12 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
 import java.util.Map;
 
 /**
@@ -257,4 +261,23 @@ public class DataUtils {
         }
         return str.substring(0, maxLength - 3) + "...";
     }
-}
\ No newline at end of file
+
+    /**
+     * 计算字符串的SHA-256摘要
+     *
+     * @param value 原始字符串（UTF-8编码）
+     * @return 64位小写十六进制字符串，输入为null时返回null
+     */
+    public static String sha256Hex(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // JDK 规范保证 SHA-256 可用
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
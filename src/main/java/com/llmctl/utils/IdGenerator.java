@@ -1,16 +1,53 @@
 package com.llmctl.utils;
 
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * ID生成工具类
  *
+ * 业务主键为「前缀_」+ 26 位时间有序ID（UUIDv7 布局，Crockford Base32 小写编码）：
+ * - 48 位毫秒时间戳 | 4 位版本(7) | 12 位同毫秒序号 | 2 位变体 | 10 位节点ID | 52 位随机数
+ * - 同一前缀下的ID按生成时间递增，InnoDB 插入落在 B+ 树末端，不再随机分裂页
+ *
  * @author Liu Yifan
  * @version 2.0.0
  * @since 2025-09-28
  */
 public class IdGenerator {
 
+    private static final char[] ENCODING = "0123456789abcdefghjkmnpqrstvwxyz".toCharArray();
+    private static final int ENCODED_LENGTH = 26;
+    private static final int MAX_NODE_ID = 0x3FF;
+    private static final int MAX_SEQUENCE = 0xFFF;
+
+    private static volatile int nodeId = defaultNodeId();
+    private static long lastMillis = -1L;
+    private static int sequence;
+
+    /**
+     * 设置当前实例的节点ID（0-1023），多实例部署时各节点应配置不同的值
+     *
+     * @param id 节点ID
+     */
+    public static void setNodeId(int id) {
+        if (id < 0 || id > MAX_NODE_ID) {
+            throw new IllegalArgumentException("节点ID必须在 0-" + MAX_NODE_ID + " 之间: " + id);
+        }
+        nodeId = id;
+    }
+
+    /**
+     * 获取当前实例的节点ID
+     *
+     * @return 节点ID
+     */
+    public static int getNodeId() {
+        return nodeId;
+    }
+
     /**
      * 生成Provider ID
      *
@@ -50,10 +87,52 @@ public class IdGenerator {
     /**
      * 生成短ID
      *
-     * @return 不带连字符的UUID字符串
+     * @return 26位时间有序ID
      */
     public static String generateShortId() {
-        return UUID.randomUUID().toString().replace("-", "");
+        long msb;
+        synchronized (IdGenerator.class) {
+            long now = System.currentTimeMillis();
+            if (now > lastMillis) {
+                lastMillis = now;
+                sequence = 0;
+            } else if (++sequence > MAX_SEQUENCE) {
+                // 同一毫秒内序号用尽（或时钟回拨），借用下一毫秒，保证单调递增
+                lastMillis++;
+                sequence = 0;
+            }
+            msb = (lastMillis << 16) | (0x7L << 12) | sequence;
+        }
+        long lsb = (0x2L << 62)
+                | ((long) nodeId << 52)
+                | (ThreadLocalRandom.current().nextLong() & 0xFFFFFFFFFFFFFL);
+        return encode(msb, lsb);
+    }
+
+    /**
+     * 128 位按 Crockford Base32 编码为 26 个字符（首字符只承载最高 3 位），字典序与数值序一致
+     */
+    private static String encode(long msb, long lsb) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ENCODING[(int) (lsb & 0x1F)];
+            lsb = (lsb >>> 5) | (msb << 59);
+            msb >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 未配置节点ID时，根据主机名和进程号派生一个
+     */
+    private static int defaultNodeId() {
+        try {
+            String host = InetAddress.getLocalHost().getHostName();
+            String process = ManagementFactory.getRuntimeMXBean().getName();
+            return (host + "/" + process).hashCode() & MAX_NODE_ID;
+        } catch (Exception e) {
+            return ThreadLocalRandom.current().nextInt(MAX_NODE_ID + 1);
+        }
     }
 
     /**
@@ -99,8 +178,10 @@ public class IdGenerator {
             return false;
         }
 
-        String uuidPart = id.substring(prefix.length() + 1);
-        return uuidPart.length() == 32 && uuidPart.matches("[a-f0-9]+");
+        // 兼容旧版32位十六进制ID
+        String idPart = id.substring(prefix.length() + 1);
+        return (idPart.length() == 32 && idPart.matches("[a-f0-9]+"))
+                || (idPart.length() == ENCODED_LENGTH && idPart.matches("[0-7][0-9a-hjkmnp-tv-z]+"));
     }
 
     /**
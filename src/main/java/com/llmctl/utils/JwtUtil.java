@@ -11,6 +11,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * JWT工具类
@@ -32,36 +33,67 @@ public class JwtUtil {
     @Value("${jwt.refresh-expiration}")
     private Long refreshExpiration; // 默认7天（毫秒）
 
+    /**
+     * 生成新的登录会话ID（同一次登录签发及后续轮换的所有Token共享）
+     *
+     * @return 会话ID
+     */
+    public String newSessionId() {
+        return UUID.randomUUID().toString();
+    }
+
     /**
      * 生成JWT Access Token
      *
      * @param userId 用户ID
      * @param username 用户名
+     * @param sessionId 登录会话ID
      * @return JWT Token字符串
      */
-    public String generateAccessToken(Long userId, String username) {
+    public String generateAccessToken(Long userId, String username, String sessionId) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", userId);
         claims.put("username", username);
         claims.put("type", "access");
+        claims.put("sid", sessionId);
 
         return createToken(claims, username, expiration);
     }
 
     /**
      * 生成JWT Refresh Token
+     * 携带首次登录时间（auth_time，秒），过期时间不超过 auth_time + refresh-expiration，轮换不会延长登录会话
      *
      * @param userId 用户ID
      * @param username 用户名
+     * @param sessionId 登录会话ID
+     * @param authTimeMillis 首次登录时间（毫秒）
      * @return Refresh Token字符串
      */
-    public String generateRefreshToken(Long userId, String username) {
+    public String generateRefreshToken(Long userId, String username, String sessionId, long authTimeMillis) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", userId);
         claims.put("username", username);
         claims.put("type", "refresh");
+        claims.put("sid", sessionId);
+        claims.put("auth_time", authTimeMillis / 1000);
+
+        long remaining = authTimeMillis + refreshExpiration - System.currentTimeMillis();
+        return createToken(claims, username, Math.min(remaining, refreshExpiration));
+    }
 
-        return createToken(claims, username, refreshExpiration);
+    /**
+     * 获取首次登录时间（毫秒），升级前签发的Token不含 auth_time 时退回签发时间
+     *
+     * @param claims Refresh Token Claims
+     * @return 首次登录时间（毫秒）
+     */
+    public long getAuthTimeMillis(Claims claims) {
+        Number authTime = claims.get("auth_time", Number.class);
+        if (authTime != null) {
+            return authTime.longValue() * 1000;
+        }
+        return claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : System.currentTimeMillis();
     }
 
     /**
@@ -76,19 +108,13 @@ public class JwtUtil {
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    /**
-     * 从Token中提取用户名
-     */
-    public String getUsernameFromToken(String token) {
-        return getClaimsFromToken(token).getSubject();
-    }
-
     /**
      * 从Token中提取用户ID
      */
@@ -98,35 +124,22 @@ public class JwtUtil {
     }
 
     /**
-     * 验证Token是否有效
-     *
-     * @param token JWT Token
-     * @param username 用户名
-     * @return 是否有效
-     */
-    public boolean validateToken(String token, String username) {
-        try {
-            final String tokenUsername = getUsernameFromToken(token);
-            return (tokenUsername.equals(username) && !isTokenExpired(token));
-        } catch (Exception e) {
-            log.error("Token验证失败", e);
-            return false;
-        }
-    }
-
-    /**
-     * 检查Token是否过期
+     * 获取Token过期时间
      */
-    private boolean isTokenExpired(String token) {
-        final Date expiration = getExpirationDateFromToken(token);
-        return expiration.before(new Date());
+    public Date getExpirationDateFromToken(String token) {
+        return getClaimsFromToken(token).getExpiration();
     }
 
     /**
-     * 获取Token过期时间
+     * 解析并校验Token（签名、过期时间），返回Claims
+     * 调用方需要多个字段时使用此方法，避免重复解析
+     *
+     * @param token JWT Token
+     * @return Claims
+     * @throws JwtException Token无效或已过期
      */
-    public Date getExpirationDateFromToken(String token) {
-        return getClaimsFromToken(token).getExpiration();
+    public Claims parseToken(String token) {
+        return getClaimsFromToken(token);
     }
 
     /**
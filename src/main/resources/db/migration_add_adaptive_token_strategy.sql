@@ -0,0 +1,9 @@
+-- ====================================
+-- 新增 adaptive Token 选择策略
+-- ====================================
+
+ALTER TABLE providers
+    MODIFY `token_strategy_type` enum('round-robin','weighted','random','least-used','adaptive')
+        COLLATE utf8mb4_general_ci DEFAULT 'round-robin' COMMENT 'Token轮询策略';
+
+-- 按Token统计活跃会话时使用 idx_sessions_status 过滤，无需新增索引
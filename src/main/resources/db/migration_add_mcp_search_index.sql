@@ -0,0 +1,15 @@
+-- ====================================
+-- MCP 服务器搜索索引
+-- ====================================
+
+-- 原搜索使用 name/description LIKE '%kw%'，无法使用索引，每次搜索全表扫描
+-- 新增 ngram 全文索引（支持中文分词），用于按相关度检索名称和描述
+ALTER TABLE mcp_servers
+    ADD FULLTEXT INDEX ft_name_description (name, description) WITH PARSER ngram;
+
+-- 按用户过滤非模板服务器（搜索和列表查询的用户范围条件）
+CREATE INDEX idx_user_template ON mcp_servers(user_id, is_template);
+
+-- 说明：
+-- 1. ngram 分词长度由 ngram_token_size 控制（默认 2），单字关键词仅通过名称前缀匹配（idx_name）
+-- 2. 全文检索使用 NATURAL LANGUAGE MODE，部分词元命中即可返回，按相关度排序
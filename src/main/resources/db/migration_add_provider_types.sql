@@ -0,0 +1,26 @@
+-- ====================================
+-- Provider 类型索引表
+-- ====================================
+
+-- providers.types 是 JSON 数组，按类型过滤只能用 JSON_CONTAINS 全表扫描
+-- 新增规范化的 provider_types 表，由应用在写入 Provider 时同步维护
+CREATE TABLE IF NOT EXISTS `provider_types` (
+    `provider_id` varchar(50) COLLATE utf8mb4_general_ci NOT NULL COMMENT 'Provider ID（外键）',
+    `user_id` bigint NOT NULL COMMENT '用户ID（冗余，用于按用户+类型过滤）',
+    `cli_type` enum('claude code','codex','gemini','qoder') CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT 'CLI 类型',
+    PRIMARY KEY (`provider_id`,`cli_type`),
+    KEY `idx_user_cli_type` (`user_id`,`cli_type`) COMMENT '按用户和类型查询Provider',
+    CONSTRAINT `fk_provider_types_provider` FOREIGN KEY (`provider_id`) REFERENCES `providers` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='Provider CLI 类型索引表（providers.types 的规范化副本）';
+
+-- 从现有 providers.types 回填
+INSERT IGNORE INTO provider_types (provider_id, user_id, cli_type)
+SELECT p.id, p.user_id, jt.cli_type
+FROM providers p,
+     JSON_TABLE(p.types, '$[*]' COLUMNS (cli_type varchar(20) PATH '$')) jt
+WHERE jt.cli_type IN ('claude code', 'codex', 'gemini', 'qoder');
+
+-- 说明：
+-- 1. getProvidersByType / countProvidersByType 通过 idx_user_cli_type 索引查询，不再解析 JSON
+-- 2. 删除 Provider 时通过 ON DELETE CASCADE 自动清理
+-- 3. JSON_TABLE 需要 MySQL 8.0+
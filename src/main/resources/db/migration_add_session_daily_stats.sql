@@ -0,0 +1,40 @@
+-- ====================================
+-- 会话每日统计汇总表
+-- ====================================
+
+-- Dashboard 统计原先每次都对 sessions 明细做 TIMESTAMPDIFF 聚合
+-- 新增按 (用户, 日期, Provider) 汇总的统计表，由会话启动 / 结束事件增量更新
+CREATE TABLE IF NOT EXISTS `session_daily_stats` (
+                                       `user_id` bigint NOT NULL COMMENT '用户ID',
+                                       `stat_date` date NOT NULL COMMENT '统计日期（会话启动日期）',
+                                       `provider_id` varchar(50) COLLATE utf8mb4_general_ci NOT NULL COMMENT 'Provider ID',
+                                       `session_count` int NOT NULL DEFAULT '0' COMMENT '当日启动的会话数',
+                                       `active_count` int NOT NULL DEFAULT '0' COMMENT '当日启动且仍活跃的会话数',
+                                       `ended_count` int NOT NULL DEFAULT '0' COMMENT '当日启动且已结束的会话数',
+                                       `total_duration_minutes` bigint NOT NULL DEFAULT '0' COMMENT '已结束会话的总时长（分钟）',
+                                       `updated_at` timestamp NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+                                       PRIMARY KEY (`user_id`,`stat_date`,`provider_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='会话每日统计汇总表（由会话生命周期事件增量维护）';
+
+-- 从现有 sessions 回填（未结束会话计入 active_count；已结束会话按 end_time / last_activity 计算时长）
+INSERT INTO session_daily_stats (user_id, stat_date, provider_id, session_count, active_count, ended_count, total_duration_minutes)
+SELECT user_id,
+       DATE(start_time),
+       provider_id,
+       COUNT(*),
+       SUM(CASE WHEN status = 'active' THEN 1 ELSE 0 END),
+       SUM(CASE WHEN status = 'active' THEN 0 ELSE 1 END),
+       SUM(CASE WHEN status = 'active' THEN 0
+                ELSE TIMESTAMPDIFF(MINUTE, start_time, COALESCE(end_time, last_activity, start_time)) END)
+FROM sessions
+WHERE start_time IS NOT NULL
+GROUP BY user_id, DATE(start_time), provider_id
+ON DUPLICATE KEY UPDATE
+    session_count = VALUES(session_count),
+    active_count = VALUES(active_count),
+    ended_count = VALUES(ended_count),
+    total_duration_minutes = VALUES(total_duration_minutes);
+
+-- 说明：
+-- 1. 统计接口只读取汇总表，时长趋势最多读取 days × Provider 数 行
+-- 2. 平均时长按已结束会话计算；会话重新激活视为一次新的运行
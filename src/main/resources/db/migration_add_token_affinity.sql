@@ -0,0 +1,11 @@
+-- ====================================
+-- Provider 新增按工作目录粘滞 Token 开关
+-- ====================================
+
+ALTER TABLE providers
+    ADD COLUMN `token_affinity_enabled` tinyint(1) NOT NULL DEFAULT '0' COMMENT '是否按工作目录粘滞Token'
+        AFTER `token_fallback_on_error`;
+
+-- 说明：
+-- 1. 默认关闭，已有 Provider 行为不变
+-- 2. 开启后同一用户在同一工作目录下启动会话时，优先复用一致性哈希环上对应的 Token
@@ -0,0 +1,12 @@
+-- ====================================
+-- Token 新增熔断器租约字段
+-- ====================================
+
+ALTER TABLE tokens
+    ADD COLUMN `breaker_lease_at` timestamp NULL DEFAULT NULL COMMENT '熔断器租约时间（非空表示由熔断器标记为不健康）'
+        AFTER `healthy`;
+
+-- 说明：
+-- 1. 熔断器打开时写入，持有打开/半开熔断器的实例每 30 秒续期一次，熔断器关闭时清空
+-- 2. 租约过期（实例重启或下线）后由任一实例恢复为健康；手动设置的不健康状态不带租约，不会被自动恢复
+-- 3. 已有的不健康 Token 视为手动设置，保持不变
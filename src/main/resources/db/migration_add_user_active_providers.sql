@@ -0,0 +1,27 @@
+-- ====================================
+-- 活跃Provider改为按用户保存
+-- ====================================
+
+CREATE TABLE IF NOT EXISTS `user_active_providers` (
+    `user_id` bigint NOT NULL COMMENT '用户ID',
+    `provider_id` varchar(50) COLLATE utf8mb4_general_ci NOT NULL COMMENT '活跃Provider ID',
+    `updated_at` timestamp NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`user_id`),
+    KEY `idx_provider_id` (`provider_id`),
+    CONSTRAINT `fk_active_provider_user` FOREIGN KEY (`user_id`) REFERENCES `users` (`id`) ON DELETE CASCADE,
+    CONSTRAINT `fk_active_provider_provider` FOREIGN KEY (`provider_id`) REFERENCES `providers` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='用户活跃Provider表';
+
+-- 迁移原全局活跃Provider：归属到该Provider的所有者
+INSERT IGNORE INTO user_active_providers (user_id, provider_id)
+SELECT p.user_id, p.id
+FROM global_config g
+JOIN providers p ON p.id = g.config_value
+WHERE g.config_key = 'active_provider_id';
+
+DELETE FROM global_config WHERE config_key = 'active_provider_id';
+
+-- 说明：
+-- 1. 此前所有用户共用 global_config 中的 active_provider_id 一行，切换时互相覆盖并争用同一行锁
+-- 2. 迁移后每个用户一行；Provider 删除时对应记录级联删除
+-- 3. 原全局值只迁移给该 Provider 的所有者，其他用户需重新选择活跃Provider
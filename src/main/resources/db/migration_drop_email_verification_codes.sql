@@ -0,0 +1,10 @@
+-- ====================================
+-- 邮箱验证码迁移至 Redis，删除 email_verification_codes 表
+-- ====================================
+
+DROP TABLE IF EXISTS email_verification_codes;
+
+-- 说明：
+-- 1. 验证码改为保存在 Redis（verify:code:{purpose}:{email}），依靠 TTL 自动过期，不再产生过期行
+-- 2. 发送限流（60 秒冷却、每日上限）同样由 Redis 计数实现，参见 application.yml 中的 verification.code 配置
+-- 3. 升级时尚未使用的验证码会失效，用户重新获取即可
@@ -0,0 +1,15 @@
+-- ====================================
+-- usage_statistics 主键与唯一键
+-- ====================================
+
+-- Token 用量计量按 (token_id, date) 聚合后批量 upsert，需要唯一键判重
+-- 原表没有主键，id 也不是自增列
+ALTER TABLE usage_statistics
+    MODIFY `id` bigint NOT NULL AUTO_INCREMENT,
+    ADD PRIMARY KEY (`id`),
+    ADD UNIQUE KEY `uk_token_date` (`token_id`, `date`),
+    ADD KEY `idx_provider_date` (`provider_id`, `date`);
+
+-- 说明：
+-- 1. 原表此前没有任何写入方，执行前无需清理数据
+-- 2. 如表中已有 id 重复的数据，需先清理后再执行
@@ -11,22 +11,6 @@ DEFAULT COLLATE utf8mb4_0900_ai_ci;
 -- 使用数据库
 USE `llmctl`;
 
--- llmctl.email_verification_codes definition
-
-CREATE TABLE `email_verification_codes` (
-                                            `id` varchar(36) COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '验证码ID',
-                                            `email` varchar(255) COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '邮箱地址',
-                                            `code` varchar(6) COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '验证码(6位数字)',
-                                            `purpose` enum('REGISTER','LOGIN','RESET_PASSWORD','CHANGE_PASSWORD') COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '验证码用途',
-                                            `used` tinyint(1) DEFAULT '0' COMMENT '是否已使用',
-                                            `expire_time` datetime NOT NULL COMMENT '过期时间',
-                                            `created_at` datetime DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-                                            PRIMARY KEY (`id`),
-                                            KEY `idx_email_purpose` (`email`,`purpose`),
-                                            KEY `idx_expire_time` (`expire_time`)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='邮箱验证码表';
-
-
 -- llmctl.global_config definition
 
 CREATE TABLE `global_config` (
@@ -63,7 +47,9 @@ CREATE TABLE `mcp_servers` (
                                KEY `idx_name` (`name`),
                                KEY `idx_enabled` (`enabled`),
                                KEY `idx_template` (`is_template`),
-                               KEY `idx_category` (`template_category`)
+                               KEY `idx_category` (`template_category`),
+                               KEY `idx_user_template` (`user_id`,`is_template`),
+                               FULLTEXT KEY `ft_name_description` (`name`,`description`) WITH PARSER ngram
 ) ENGINE=InnoDB AUTO_INCREMENT=22 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='MCP服务器配置表';
 
 
@@ -109,7 +95,7 @@ CREATE TABLE `providers_backup` (
 -- llmctl.usage_statistics definition
 
 CREATE TABLE `usage_statistics` (
-                                    `id` bigint NOT NULL,
+                                    `id` bigint NOT NULL AUTO_INCREMENT,
                                     `provider_id` varchar(50) COLLATE utf8mb4_general_ci DEFAULT NULL,
                                     `token_id` varchar(50) COLLATE utf8mb4_general_ci DEFAULT NULL,
                                     `request_count` int DEFAULT NULL,
@@ -118,7 +104,10 @@ CREATE TABLE `usage_statistics` (
                                     `total_tokens` int DEFAULT NULL,
                                     `date` date NOT NULL,
                                     `created_at` timestamp NULL DEFAULT NULL,
-                                    `updated_at` timestamp NULL DEFAULT NULL
+                                    `updated_at` timestamp NULL DEFAULT NULL,
+                                    PRIMARY KEY (`id`),
+                                    UNIQUE KEY `uk_token_date` (`token_id`,`date`),
+                                    KEY `idx_provider_date` (`provider_id`,`date`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='使用统计表';
 
 
@@ -205,8 +194,9 @@ CREATE TABLE `providers` (
                              `description` text COLLATE utf8mb4_general_ci COMMENT 'Provider描述',
                              `types` json DEFAULT NULL COMMENT 'Provider支持的CLI类型列表（JSON数组，claude code, codex, gemini, qoder）',
                              `extra_headers` json DEFAULT NULL COMMENT '额外HTTP头',
-                             `token_strategy_type` enum('round-robin','weighted','random','least-used') COLLATE utf8mb4_general_ci DEFAULT 'round-robin' COMMENT 'Token轮询策略',
+                             `token_strategy_type` enum('round-robin','weighted','random','least-used','adaptive') COLLATE utf8mb4_general_ci DEFAULT 'round-robin' COMMENT 'Token轮询策略',
                              `token_fallback_on_error` tinyint(1) DEFAULT '1' COMMENT '错误时是否故障切换',
+                             `token_affinity_enabled` tinyint(1) NOT NULL DEFAULT '0' COMMENT '是否按工作目录粘滞Token',
                              `is_active` tinyint(1) DEFAULT '1' COMMENT '是否启用',
                              `created_at` timestamp NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
                              `updated_at` timestamp NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
@@ -216,6 +206,21 @@ CREATE TABLE `providers` (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='LLM Provider配置表';
 
 
+-- llmctl.session_daily_stats definition
+
+CREATE TABLE `session_daily_stats` (
+                                       `user_id` bigint NOT NULL COMMENT '用户ID',
+                                       `stat_date` date NOT NULL COMMENT '统计日期（会话启动日期）',
+                                       `provider_id` varchar(50) COLLATE utf8mb4_general_ci NOT NULL COMMENT 'Provider ID',
+                                       `session_count` int NOT NULL DEFAULT '0' COMMENT '当日启动的会话数',
+                                       `active_count` int NOT NULL DEFAULT '0' COMMENT '当日启动且仍活跃的会话数',
+                                       `ended_count` int NOT NULL DEFAULT '0' COMMENT '当日启动且已结束的会话数',
+                                       `total_duration_minutes` bigint NOT NULL DEFAULT '0' COMMENT '已结束会话的总时长（分钟）',
+                                       `updated_at` timestamp NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+                                       PRIMARY KEY (`user_id`,`stat_date`,`provider_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='会话每日统计汇总表（由会话生命周期事件增量维护）';
+
+
 -- llmctl.sessions definition
 
 CREATE TABLE `sessions` (
@@ -250,6 +255,7 @@ CREATE TABLE `tokens` (
                           `weight` int DEFAULT '1' COMMENT '权重（用于加权轮询）',
                           `enabled` tinyint(1) DEFAULT '1' COMMENT '是否启用',
                           `healthy` tinyint(1) DEFAULT '1' COMMENT '健康状态',
+                          `breaker_lease_at` timestamp NULL DEFAULT NULL COMMENT '熔断器租约时间（非空表示由熔断器标记为不健康）',
                           `last_used` timestamp NULL DEFAULT NULL COMMENT '最后使用时间',
                           `encryption_version` varchar(20) COLLATE utf8mb4_general_ci DEFAULT NULL COMMENT '加密版本：null/plaintext=明文，v1=AES-256-GCM',
                           `created_at` timestamp NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
@@ -279,6 +285,18 @@ CREATE TABLE `provider_configs` (
 ) ENGINE=InnoDB AUTO_INCREMENT=77 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='Provider CLI 配置表';
 
 
+-- llmctl.provider_types definition
+
+CREATE TABLE `provider_types` (
+                                  `provider_id` varchar(50) COLLATE utf8mb4_general_ci NOT NULL COMMENT 'Provider ID（外键）',
+                                  `user_id` bigint NOT NULL COMMENT '用户ID（冗余，用于按用户+类型过滤）',
+                                  `cli_type` enum('claude code','codex','gemini','qoder') CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT 'CLI 类型',
+                                  PRIMARY KEY (`provider_id`,`cli_type`),
+                                  KEY `idx_user_cli_type` (`user_id`,`cli_type`) COMMENT '按用户和类型查询Provider',
+                                  CONSTRAINT `fk_provider_types_provider` FOREIGN KEY (`provider_id`) REFERENCES `providers` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='Provider CLI 类型索引表（providers.types 的规范化副本）';
+
+
 -- llmctl.provider_mcp_mappings definition
 
 CREATE TABLE `provider_mcp_mappings` (
@@ -298,4 +316,16 @@ CREATE TABLE `provider_mcp_mappings` (
                                          KEY `idx_cli_type` (`cli_type`),
                                          CONSTRAINT `provider_mcp_mappings_ibfk_1` FOREIGN KEY (`mcp_server_id`) REFERENCES `mcp_servers` (`id`) ON DELETE CASCADE,
                                          CONSTRAINT `provider_mcp_mappings_ibfk_2` FOREIGN KEY (`provider_id`) REFERENCES `providers` (`id`) ON DELETE CASCADE
-) ENGINE=InnoDB AUTO_INCREMENT=23 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='Provider与MCP服务器关联表';
\ No newline at end of file
+) ENGINE=InnoDB AUTO_INCREMENT=23 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='Provider与MCP服务器关联表';
+
+-- llmctl.user_active_providers definition
+
+CREATE TABLE `user_active_providers` (
+                                         `user_id` bigint NOT NULL COMMENT '用户ID',
+                                         `provider_id` varchar(50) COLLATE utf8mb4_general_ci NOT NULL COMMENT '活跃Provider ID',
+                                         `updated_at` timestamp NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+                                         PRIMARY KEY (`user_id`),
+                                         KEY `idx_provider_id` (`provider_id`),
+                                         CONSTRAINT `fk_active_provider_user` FOREIGN KEY (`user_id`) REFERENCES `users` (`id`) ON DELETE CASCADE,
+                                         CONSTRAINT `fk_active_provider_provider` FOREIGN KEY (`provider_id`) REFERENCES `providers` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='用户活跃Provider表';